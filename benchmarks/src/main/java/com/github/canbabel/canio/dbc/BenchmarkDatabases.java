@@ -0,0 +1,82 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Databases the benchmarks run against. A database is either the name of a
+ * DBC file bundled with the tests (e.g. "canfdtest") or the number of
+ * messages of a generated database (e.g. "10000").
+ */
+final class BenchmarkDatabases {
+
+    private BenchmarkDatabases() {
+    }
+
+    /**
+     * Creates a temporary copy of a bundled database or generates one.
+     *
+     * @param database Name of a bundled database or number of messages
+     * @return Temporary file, to be deleted by the caller
+     * @throws IOException if the file can not be written.
+     */
+    static File create(String database) throws IOException {
+        File file = File.createTempFile("benchmark", ".dbc");
+
+        if (database.chars().allMatch(Character::isDigit)) {
+            generate(file, Integer.parseInt(database));
+        } else {
+            try (InputStream in = BenchmarkDatabases.class.getResourceAsStream("/" + database + ".dbc")) {
+                if (in == null) {
+                    file.delete();
+                    throw new IOException("Unknown database " + database);
+                }
+                Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Generates a database with standard, extended and CAN-FD messages, a
+     * tenth of them multiplexed, with comments, value descriptions and
+     * attributes. The seed is fixed so every run measures the same file.
+     */
+    private static void generate(File file, int messages) throws IOException {
+        int fd = messages / 20;
+        int standard = Math.min(messages / 2, 0x400);
+
+        DbcGenerator generator = new DbcGenerator();
+        generator.seed(messages);
+        generator.nodes(8);
+        generator.standardMessages(standard);
+        generator.extendedMessages(messages - standard - fd);
+        generator.fdMessages(fd);
+        generator.signalsPerMessage(5);
+        generator.multiplexedMessages(messages / 10);
+        generator.valueDescriptions(messages);
+        generator.comments(2 * messages);
+        generator.attributes(2 * messages);
+        generator.write(file);
+    }
+}
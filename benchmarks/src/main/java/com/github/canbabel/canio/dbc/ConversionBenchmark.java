@@ -0,0 +1,119 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion of a complete database: DbcReader.parseFile() and
+ * writeKcdFile() with and without gzip, with JAXB and with the StAX based
+ * KcdStreamWriter, and the complete two pass conversion of the
+ * StreamingDbcConverter. The database is either the bundled
+ * canfdtest.dbc or a generated one with the given number of messages, e.g.
+ * "-p database=100000".
+ *
+ * parseFile of the generated databases also shows that resolving labels,
+ * comments and attributes scales linearly: ten times the messages should take
+ * about ten times as long, not a hundred times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx2g" })
+public class ConversionBenchmark {
+
+    @Param({ "canfdtest", "1000", "10000" })
+    public String database;
+
+    private File dbc;
+    private File kcd;
+    private DbcReader parsed;
+
+    private static final OutputStream NO_LOG = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+            // ignore
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        dbc = BenchmarkDatabases.create(database);
+        kcd = File.createTempFile("benchmark", ".kcd");
+        parsed = new DbcReader();
+        if (!parsed.parseFile(dbc, NO_LOG)) {
+            throw new IOException("Parsing " + database + " failed");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        dbc.delete();
+        kcd.delete();
+    }
+
+    @Benchmark
+    public DbcReader parseFile() {
+        DbcReader reader = new DbcReader();
+        reader.parseFile(dbc, NO_LOG);
+        return reader;
+    }
+
+    @Benchmark
+    public boolean writeKcdFile() {
+        parsed.streamingKcdWriter(false);
+        return parsed.writeKcdFile(kcd, true, false);
+    }
+
+    @Benchmark
+    public boolean writeKcdFileGzip() {
+        parsed.streamingKcdWriter(false);
+        return parsed.writeKcdFile(kcd, true, true);
+    }
+
+    @Benchmark
+    public boolean writeKcdFileStax() {
+        parsed.streamingKcdWriter(true);
+        return parsed.writeKcdFile(kcd, true, false);
+    }
+
+    @Benchmark
+    public boolean convertStreaming() {
+        return new StreamingDbcConverter().convert(dbc, kcd, true, false, NO_LOG);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per line hot paths of DbcReader: splitting a signal line,
+ * classifying statement lines by their keyword, parsing a signal into a
+ * message and the big endian bit offset calculation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DbcLineBenchmark {
+
+    private static final String SIGNAL = "56|8@1+ (1,0) [0|255] \"km/h\" Motor Brake Gearbox";
+
+    /** Typical lines of a DBC file, one per statement kind */
+    private static final String[] LINES = {
+        "VERSION \"\"",
+        "BU_: Motor Brake Gearbox",
+        "BO_ 2566861823 ExtMsgMuxLittle2: 6 Alice",
+        " SG_ TestSigLittleMuxed17 m1 : 7|1@1+ (1,0) [0|0] \"\" Vector__XXX",
+        "CM_ SG_ 291 TestSigLittleUnsigned1 \"Comment\";",
+        "BA_DEF_ BO_  \"GenMsgCycleTime\" INT 0 1000000;",
+        "BA_DEF_DEF_  \"GenMsgCycleTime\" 0;",
+        "BA_ \"GenMsgCycleTime\" BO_ 1110 20;",
+        "VAL_ 1112 TestSigBigUnsigned2 2147483647 \"invalid\" 2147483646 \"init\" ;",
+        "SIG_VALTYPE_ 837 TestSigBigFloat1 : 1;",
+        "",
+    };
+
+    private static final String[] SIGNALS = {
+        "Speed : 0|16@1+ (0.1,0) [0|6553.5] \"km/h\" Brake Gearbox",
+        "Temp : 23|8@0- (0.5,-20) [-84|43.5] \"degC\" Brake",
+        "Mode M : 24|2@1+ (1,0) [0|3] \"\" Gearbox",
+        "Low m0 : 32|16@1+ (1,0) [0|65535] \"\" Gearbox",
+    };
+
+    private final DbcMessageParser parser = new DbcMessageParser(false);
+
+    /* Fields instead of constants keep the JIT from folding the calculation */
+    private int firstMsb = 7;
+    private int length = 12;
+
+    @Benchmark
+    public String[] splitString() {
+        return DbcReader.splitString(SIGNAL);
+    }
+
+    @Benchmark
+    public void classifyLines(Blackhole bh) {
+        for (String line : LINES) {
+            bh.consume(DbcKeyword.lookup(line));
+        }
+    }
+
+    @Benchmark
+    public Message parseSignals() {
+        Message message = parser.parseMessageDefinition("BO_ 1984 Messagename: 8 Motor");
+        for (String line : SIGNALS) {
+            parser.parseSignal(message, line);
+        }
+        return message;
+    }
+
+    @Benchmark
+    public void bigEndianLeastSignificantBitOffset(Blackhole bh) {
+        for (int msb = firstMsb; msb < 64; msb += 8) {
+            bh.consume(DbcReader.bigEndianLeastSignificantBitOffset(msb, length));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast a large DBC file is read, once line by line through a
+ * BufferedReader and once from a memory mapped file. The lex* benchmarks only
+ * segment the file in statement blocks, the parse* benchmarks run the
+ * complete DbcReader.parseFile(), parseMappedParallel() with message definitions
+ * parsed on the common ForkJoinPool. Divide the file size printed during setup
+ * by the time per operation to get MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = { "-Xmx3g" })
+public class InputThroughputBenchmark {
+
+    @Param({ "200" })
+    public int megabytes;
+
+    private File file;
+
+    private static final DbcLexer.BlockHandler COUNTER = new DbcLexer.BlockHandler() {
+
+        @Override
+        public void block(DbcKeyword keyword, StringBuilder block) {
+            blocks += block.length();
+        }
+    };
+
+    private static long blocks;
+
+    private static final OutputStream NO_LOG = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+            // ignore
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        file = File.createTempFile("throughput", ".dbc");
+        long size = megabytes * 1024L * 1024L;
+
+        try (PrintWriter w = new PrintWriter(file, "ISO-8859-1")) {
+            w.println("VERSION \"\"");
+            w.println();
+            w.println("BU_: Motor Brake Gearbox");
+            w.println();
+            for (int i = 0; file.length() < size; i++) {
+                long id = 0x80000000L | i;
+                w.println("BO_ " + id + " Msg" + i + ": 8 Motor");
+                for (int s = 0; s < 8; s++) {
+                    w.println(" SG_ Sig" + i + "_" + s + " : " + (s * 8) + "|8@1+ (0.5,-20) [-20|107.5] \"degC\" Brake Gearbox");
+                }
+                w.println();
+                w.println("CM_ BO_ " + id + " \"Message " + i + "\";");
+                w.println("VAL_ " + id + " Sig" + i + "_0 0 \"off\" 1 \"on\" ;");
+                if (i % 1000 == 0) {
+                    w.flush();
+                }
+            }
+        }
+        System.out.println();
+        System.out.println("Generated " + file.length() / (1024 * 1024) + " MB");
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long lexReader() throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), "ISO-8859-1"))) {
+            new DbcLexer(COUNTER).read(reader);
+        }
+        return blocks;
+    }
+
+    @Benchmark
+    public long lexMapped() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            new DbcLexer(COUNTER).read(channel);
+        }
+        return blocks;
+    }
+
+    @Benchmark
+    public DbcReader parseReader() {
+        DbcReader reader = new DbcReader();
+        reader.mappedInputThreshold(Long.MAX_VALUE);
+        reader.parseFile(file, NO_LOG);
+        return reader;
+    }
+
+    @Benchmark
+    public DbcReader parseMapped() {
+        DbcReader reader = new DbcReader();
+        reader.mappedInputThreshold(0);
+        reader.parseFile(file, NO_LOG);
+        return reader;
+    }
+
+    @Benchmark
+    public DbcReader parseMappedParallel() {
+        DbcReader reader = new DbcReader();
+        reader.mappedInputThreshold(0);
+        reader.parallelParsing(true);
+        reader.parseFile(file, NO_LOG);
+        return reader;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares splitting and number parsing of a single signal line with the
+ * former String based splitString() and the DbcTokenizer. Run with "-prof gc"
+ * to see the allocation per signal line (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignalLineBenchmark {
+
+    @Param({ "56|8@1+ (1,0) [0|255] \"km/h\" Motor Brake Gearbox",
+        "39|16@0- (0.01,-40) [-40|615.35] \"degC\" Vector__XXX" })
+    public String line;
+
+    private final DbcTokenizer tokenizer = new DbcTokenizer();
+
+    @Benchmark
+    public void legacySplitString(Blackhole bh) {
+        String[] splitted = legacySplit(line);
+        String[] consumers = Arrays.copyOfRange(splitted, 9, splitted.length);
+
+        bh.consume(Integer.parseInt(splitted[0]));
+        bh.consume(Integer.parseInt(splitted[1]));
+        bh.consume(Double.valueOf(splitted[4]));
+        bh.consume(Double.valueOf(splitted[5]));
+        bh.consume(Double.valueOf(splitted[6]));
+        bh.consume(Double.valueOf(splitted[7]));
+        bh.consume(consumers);
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole bh) {
+        int fields = tokenizer.split(line);
+
+        bh.consume(tokenizer.parseInt(0));
+        bh.consume(tokenizer.parseInt(1));
+        bh.consume(tokenizer.parseDouble(4));
+        bh.consume(tokenizer.parseDouble(5));
+        bh.consume(tokenizer.parseDouble(6));
+        bh.consume(tokenizer.parseDouble(7));
+        bh.consume(fields);
+    }
+
+    /**
+     * splitString() as implemented before the DbcTokenizer, kept as baseline.
+     */
+    private static String[] legacySplit(String s) {
+        List<String> elements = new ArrayList<String>(10);
+        String element = "";
+        boolean inString = false;
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!inString && (c == '[' || c == ']' || c == '(' || c == ')' || c == '|' || c == ',' || c == '@'
+                    || c == ' ' || c == ';')) {
+                if (!"".equals(element)) {
+                    elements.add(element);
+                }
+                element = "";
+            } else if (!inString && (c == '+' || c == '-')) {
+                if (s.charAt(i - 2) == '@') {
+                    elements.add(element);
+                    element = "" + c;
+                } else {
+                    element += c;
+                }
+            } else if (c == '"') {
+                element += c;
+                if (inString) {
+                    elements.add(element);
+                    element = "";
+                    inString = false;
+                } else {
+                    inString = true;
+                }
+            } else {
+                element += c;
+            }
+        }
+
+        if (!"".equals(element)) {
+            elements.add(element);
+        }
+        return elements.toArray(new String[elements.size()]);
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a new process converting a single file from the command line,
+ * from its start to its end. On success the single file conversion prints
+ * nothing, so the end is its first observable result. Each invocation starts
+ * a new process of one of the variants:
+ *
+ * jar: java -jar with the jar-with-dependencies of the parent project,
+ * cds: the same with the AppCDS archive built by "mvn -Pcds package", which
+ * fails if the archive does not match the jar,
+ * native: the executable built by "mvn -Pnative package".
+ *
+ * The files are looked up in ../target, other locations are given with the
+ * system properties canbabel.jar, canbabel.cds and canbabel.native. A
+ * variant whose file is missing fails in its setup, the others are measured,
+ * e.g. "-p variant=jar,cds".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({ "jar", "cds", "native" })
+    public String variant;
+
+    @Param({ "canfdtest" })
+    public String database;
+
+    private List<String> command;
+    private File kcd;
+
+    private static File target(String property, String name) {
+        String path = System.getProperty(property);
+        if (path != null) {
+            return new File(path);
+        }
+        File[] files = new File("../target").listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().endsWith(name)) {
+                    return f;
+                }
+            }
+        }
+        return new File("../target", name);
+    }
+
+    private static File existing(File file, String hint) throws IOException {
+        if (!file.isFile()) {
+            throw new IOException(file + " not found, build it with " + hint);
+        }
+        /* The CDS archive records the absolute path of the jar */
+        return file.getCanonicalFile();
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        File dbc = BenchmarkDatabases.create(database);
+        kcd = File.createTempFile("startup", ".kcd");
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+
+        command = new ArrayList<String>();
+        if ("native".equals(variant)) {
+            command.add(existing(target("canbabel.native", "canbabel"), "mvn -Pnative package").getPath());
+        } else {
+            File jar = existing(target("canbabel.jar", "-jar-with-dependencies.jar"), "mvn package");
+            command.add(java);
+            if ("cds".equals(variant)) {
+                File archive = existing(target("canbabel.cds", ".jsa"), "mvn -Pcds package");
+                command.add("-XX:SharedArchiveFile=" + archive.getPath());
+                command.add("-Xshare:on");
+            } else if (!"jar".equals(variant)) {
+                throw new IllegalArgumentException("Unknown variant " + variant);
+            }
+            command.add("-jar");
+            command.add(jar.getPath());
+        }
+        command.add(dbc.getPath());
+        command.add(kcd.getPath());
+    }
+
+    @Benchmark
+    public int convertSingleFile() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        InputStream in = process.getInputStream();
+        byte[] buffer = new byte[8192];
+        int output = 0;
+        for (int n; (n = in.read(buffer)) >= 0;) {
+            output += n;
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("Conversion failed with exit code " + process.exitValue());
+        }
+        return output;
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        kcd.delete();
+    }
+}
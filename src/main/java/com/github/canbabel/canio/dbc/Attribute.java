@@ -1,6 +1,6 @@
 package com.github.canbabel.canio.dbc;
 
-class Attribute {
+public class Attribute {
 
 	private final AttributeDefinition definition;
 
@@ -46,7 +46,7 @@ class Attribute {
 		this.stringval = stringval;
 	}
 
-	long getInt()
+	public long getInt()
 	{
 		if (definition.type != AttributeDefinition.AttrType.INT && definition.type != AttributeDefinition.AttrType.HEX) {
 			throw new NumberFormatException("cannot get int type, if type is not int or hex");
@@ -54,7 +54,7 @@ class Attribute {
 		return intval;
 	}
 
-	float getFloat()
+	public float getFloat()
 	{
 		if (definition.type != AttributeDefinition.AttrType.FLOAT) {
 			throw new NumberFormatException("cannot get float type, if type is not float");
@@ -62,7 +62,7 @@ class Attribute {
 		return floatval;
 	}
 
-	String getString()
+	public String getString()
 	{
 		if (definition.type != AttributeDefinition.AttrType.STRING) {
 			throw new NumberFormatException("cannot get string type, if type is not string");
@@ -70,7 +70,7 @@ class Attribute {
 		return stringval;
 	}
 
-	long getEnumAsInt()
+	public long getEnumAsInt()
 	{
 		if (definition.type != AttributeDefinition.AttrType.ENUM) {
 			throw new NumberFormatException("cannot get enum type, if type is not enum");
@@ -78,7 +78,7 @@ class Attribute {
 		return intval;
 	}
 
-	String getEnumAsString()
+	public String getEnumAsString()
 	{
 		if (definition.type != AttributeDefinition.AttrType.ENUM) {
 			throw new NumberFormatException("cannot get enum type, if type is not enum");
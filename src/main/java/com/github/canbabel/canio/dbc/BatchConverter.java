@@ -0,0 +1,357 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.canbabel.canio.kcd.NetworkChecker;
+
+/**
+ * Converts a batch of CAN database files to KCD files on a bounded pool of
+ * worker threads. All files share the resources of one ConversionEngine.
+ *
+ * The log output of each file is collected separately and handed over
+ * complete with its result, so the output of files converted at the same
+ * time is not interleaved. Interrupting the thread that called convert()
+ * cancels all files that are not finished yet.
+ *
+ * @author julietkilo
+ */
+public class BatchConverter {
+
+    /**
+     * Receives the result of each file as soon as it is finished. Calls are
+     * made from the worker threads one at a time, in the order the files are
+     * finished.
+     */
+    public interface Listener {
+
+        /**
+         * @param result Result of the finished file
+         */
+        void finished(Result result);
+    }
+
+    /**
+     * Result of converting a single file.
+     */
+    public static final class Result {
+
+        private final File dbc;
+        private final File kcd;
+        private final boolean converted;
+        private final boolean valid;
+        private final List<NetworkChecker.Finding> findings;
+        private final String log;
+        private final long nanos;
+        private final boolean cached;
+
+        Result(File dbc, File kcd, boolean converted, boolean valid, List<NetworkChecker.Finding> findings,
+                String log, long nanos, boolean cached) {
+            this.dbc = dbc;
+            this.kcd = kcd;
+            this.converted = converted;
+            this.valid = valid;
+            this.findings = findings;
+            this.log = log;
+            this.nanos = nanos;
+            this.cached = cached;
+        }
+
+        public File getDbcFile() {
+            return dbc;
+        }
+
+        public File getKcdFile() {
+            return kcd;
+        }
+
+        /**
+         * @return True, if the DBC file has been parsed and the KCD file has
+         *         been written.
+         */
+        public boolean isConverted() {
+            return converted;
+        }
+
+        /**
+         * @return True, if the KCD file conforms to Definition.xsd.
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * @return Errors found by the NetworkChecker, empty if the file could
+         *         not be parsed.
+         */
+        public List<NetworkChecker.Finding> getFindings() {
+            return findings;
+        }
+
+        /**
+         * @return Everything logged while converting the file.
+         */
+        public String getLog() {
+            return log;
+        }
+
+        /**
+         * @return Time spent converting the file in milliseconds.
+         */
+        public long getMillis() {
+            return nanos / 1000000;
+        }
+
+        /**
+         * @return True, if the KCD file has been copied from the conversion
+         *         cache instead of being converted. It has been valid when it
+         *         was stored, findings are not reported again.
+         */
+        public boolean isCached() {
+            return cached;
+        }
+    }
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean prettyPrint = true;
+    private boolean gzip = false;
+    private boolean omitUnconsumedSignals = false;
+    private ConversionEngine engine = ConversionEngine.getDefault();
+    private ConversionCache cache = null;
+
+    private final Object listenerLock = new Object();
+    private volatile boolean cancelled;
+
+    /**
+     * Returns the KCD file a DBC file is converted to: the same path with the
+     * extension replaced by ".kcd" or ".kcd.gz".
+     *
+     * @param dbc  CAN database file
+     * @param gzip True, if the KCD file is compressed
+     * @return KCD file next to the DBC file
+     */
+    public static File kcdFile(File dbc, boolean gzip) {
+        String filename = dbc.getPath();
+        if (filename.toLowerCase().endsWith(".dbc")) {
+            filename = filename.substring(0, filename.length() - 4);
+        }
+        return new File(filename + (gzip ? ".kcd.gz" : ".kcd"));
+    }
+
+    /**
+     * Number of files converted at the same time. The default is the number
+     * of available processors.
+     * This method has to be called before convert()
+     * @param threads Number of worker threads, at least 1
+     */
+    public void parallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelism " + threads + " is less than 1");
+        }
+        parallelism = threads;
+    }
+
+    /**
+     * Format the KCD files for human reading, the default.
+     * This method has to be called before convert()
+     * @param p True, to pretty print KCD files
+     */
+    public void prettyPrint(boolean p) {
+        prettyPrint = p;
+    }
+
+    /**
+     * Compress the KCD files.
+     * This method has to be called before convert()
+     * @param g True, to write gzipped KCD files
+     */
+    public void gzip(boolean g) {
+        gzip = g;
+    }
+
+    /**
+     * Omit signals without defined consumers in the resulting KCD-files.
+     * This method has to be called before convert()
+     * @param o True, if unused signals should be omitted
+     */
+    public void omitUnconsumedSignals(boolean o) {
+        omitUnconsumedSignals = o;
+    }
+
+    /**
+     * Engine shared by all conversions of the batch.
+     * This method has to be called before convert()
+     * @param e Conversion engine to use
+     */
+    public void conversionEngine(ConversionEngine e) {
+        if (e == null) {
+            throw new IllegalArgumentException("Conversion engine must not be null");
+        }
+        engine = e;
+    }
+
+    /**
+     * Copy the KCD files of unchanged DBC files from a cache instead of
+     * converting them again. Valid results are added to the cache. KCD files
+     * are written reproducibly while a cache is used.
+     * This method has to be called before convert()
+     * @param c Cache to use, null to convert all files
+     */
+    public void cache(ConversionCache c) {
+        cache = c;
+    }
+
+    /**
+     * Converts all files and waits until they are finished. Each file is
+     * written to kcdFile(), validated while writing and checked with the
+     * NetworkChecker.
+     *
+     * @param files    DBC files to convert
+     * @param listener Receives each result as soon as it is finished, may be
+     *                 null
+     * @return Results in the order of the files.
+     * @throws InterruptedException if the calling thread is interrupted. Files
+     *                              not finished yet are cancelled and no
+     *                              further results are reported.
+     */
+    public List<Result> convert(List<File> files, final Listener listener) throws InterruptedException {
+        cancelled = false;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(files.size(), 1)),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "BatchConverter-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+
+        List<Future<Result>> futures = new ArrayList<Future<Result>>(files.size());
+        try {
+            for (final File dbc : files) {
+                futures.add(pool.submit(new Callable<Result>() {
+
+                    @Override
+                    public Result call() {
+                        Result result = convert(dbc);
+                        synchronized (listenerLock) {
+                            if (listener != null && !cancelled) {
+                                listener.finished(result);
+                            }
+                        }
+                        return result;
+                    }
+                }));
+            }
+
+            List<Result> results = new ArrayList<Result>(files.size());
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            synchronized (listenerLock) {
+                cancelled = true;
+            }
+            for (Future<Result> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (CancellationException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Converts a single file on a worker thread.
+     */
+    private Result convert(File dbc) {
+        long start = System.nanoTime();
+        ByteArrayOutputStream logStream = new ByteArrayOutputStream();
+        PrintWriter logWriter = new PrintWriter(new OutputStreamWriter(logStream, StandardCharsets.ISO_8859_1), true);
+        File kcd = kcdFile(dbc, gzip);
+        boolean converted = false;
+        boolean valid = false;
+        List<NetworkChecker.Finding> findings = Collections.emptyList();
+
+        String key = null;
+        if (cache != null && cache.isEnabled()) {
+            try {
+                key = cache.key(dbc, prettyPrint, gzip, omitUnconsumedSignals);
+                if (cache.restore(key, kcd)) {
+                    return new Result(dbc, kcd, true, true, findings, "", System.nanoTime() - start, true);
+                }
+            } catch (IOException e) {
+                /* Convert without cache */
+                e.printStackTrace(logWriter);
+            }
+        }
+
+        try {
+            DbcReader reader = new DbcReader();
+            reader.conversionEngine(engine);
+            reader.omitUnconsumedSignals(omitUnconsumedSignals);
+            reader.reproducibleOutput(cache != null);
+            reader.validateKcdFile(true);
+            if (reader.parseFile(dbc, logStream) && !Thread.currentThread().isInterrupted()) {
+                findings = new NetworkChecker().check(reader.getNetwork());
+                for (NetworkChecker.Finding finding : findings) {
+                    logWriter.println(finding);
+                }
+                converted = reader.writeKcdFile(kcd, prettyPrint, gzip);
+                valid = reader.isKcdFileValid();
+                if (converted && !valid) {
+                    logWriter.println("Failed to validate output KCD.");
+                }
+            }
+            if (key != null && converted && valid) {
+                cache.store(key, kcd);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(logWriter);
+        } catch (RuntimeException e) {
+            e.printStackTrace(logWriter);
+        }
+        logWriter.flush();
+        return new Result(dbc, kcd, converted, valid, findings,
+                new String(logStream.toByteArray(), StandardCharsets.ISO_8859_1), System.nanoTime() - start, false);
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Directory of KCD files indexed by the content of the CAN database they have
+ * been converted from. The key of an entry is a SHA-256 hash of the DBC file,
+ * the conversion options and the build of CANBabel, so a file only has to
+ * be converted again if one of them has changed. The build is identified by a
+ * hash of the jar or class directory CANBabel has been loaded from, so any
+ * change of the converter invalidates the entries, also without a release.
+ * If the build can not be identified, the cache is disabled.
+ *
+ * Only reproducible output can be cached, see DbcReader.reproducibleOutput().
+ * Entries are written to a temporary file and moved in place, several
+ * processes may share a cache directory. Entries are never removed, the
+ * directory can be deleted at any time.
+ *
+ * @author julietkilo
+ */
+public class ConversionCache {
+
+    /** Changes whenever the content of the entries changes */
+    private static final String FORMAT = "CANBabel conversion cache 1";
+
+    private final File directory;
+    private final String version;
+
+    /**
+     * Identifies the running build once, hashing the code takes a moment.
+     */
+    private static final class Build {
+        static final String VERSION = toolVersion();
+    }
+
+    /**
+     * @param directory Directory holding the entries, created if missing
+     */
+    public ConversionCache(File directory) {
+        this(directory, Build.VERSION);
+    }
+
+    /**
+     * @param directory Directory holding the entries
+     * @param version   Build of the converter the entries are valid for, null
+     *                  if unknown
+     */
+    ConversionCache(File directory, String version) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Cache directory must not be null");
+        }
+        this.directory = directory;
+        this.version = version;
+    }
+
+    /**
+     * @return Version from the manifest of the CANBabel jar followed by a hash
+     *         of the code CANBabel has been loaded from, null if the code can
+     *         not be read.
+     */
+    static String toolVersion() {
+        String v = ConversionCache.class.getPackage().getImplementationVersion();
+        try {
+            CodeSource source = ConversionCache.class.getProtectionDomain().getCodeSource();
+            if (source == null || source.getLocation() == null) {
+                return null;
+            }
+            return (v != null ? v : "development") + " " + codeHash(Paths.get(source.getLocation().toURI()));
+        } catch (IOException e) {
+            return null;
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (RuntimeException e) {
+            /* Location is not a file, e.g. a nested or remote jar */
+            return null;
+        }
+    }
+
+    /**
+     * @param code Jar file or class directory
+     * @return Hash of the jar or of the names and content of all files below
+     *         the directory.
+     * @throws IOException if the code can not be read.
+     */
+    static String codeHash(Path code) throws IOException {
+        MessageDigest digest = sha256();
+        List<Path> files = new ArrayList<Path>();
+        if (Files.isDirectory(code)) {
+            try (Stream<Path> paths = Files.walk(code)) {
+                Iterator<Path> i = paths.iterator();
+                while (i.hasNext()) {
+                    Path path = i.next();
+                    if (Files.isRegularFile(path)) {
+                        files.add(path);
+                    }
+                }
+            }
+            Collections.sort(files);
+        } else {
+            files.add(code);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        for (Path file : files) {
+            digest.update(code.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            update(digest, file.toFile(), buffer);
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            /* Every Java platform supports SHA-256 */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, File file, byte[] buffer) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return True, if the build of the converter is known. Otherwise entries
+     *         could outlive changes of the converter and key() fails.
+     */
+    public boolean isEnabled() {
+        return version != null;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Calculates the key of a conversion.
+     *
+     * @param dbc                   CAN database to convert
+     * @param prettyPrint           True, if the KCD file is pretty printed
+     * @param gzip                  True, if the KCD file is compressed
+     * @param omitUnconsumedSignals True, if unused signals are omitted
+     * @return Key as hex string
+     * @throws IOException if the DBC file can not be read or the cache is
+     *                     disabled.
+     */
+    public String key(File dbc, boolean prettyPrint, boolean gzip, boolean omitUnconsumedSignals)
+            throws IOException {
+        if (version == null) {
+            throw new IOException("Build of CANBabel unknown, cache disabled");
+        }
+        MessageDigest digest = sha256();
+        String options = FORMAT + '\n' + version + '\n' + prettyPrint + '\n' + gzip + '\n'
+                + omitUnconsumedSignals + '\n';
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        update(digest, dbc, new byte[64 * 1024]);
+        return hex(digest.digest());
+    }
+
+    /**
+     * @param key Key of a conversion
+     * @return File of the entry, it may not exist.
+     */
+    File entry(String key) {
+        /* Two levels like git objects, keeps directories small */
+        return new File(new File(directory, key.substring(0, 2)), key.substring(2));
+    }
+
+    /**
+     * @param key Key of a conversion
+     * @return True, if the cache holds the result of the conversion.
+     */
+    public boolean contains(String key) {
+        return entry(key).isFile();
+    }
+
+    /**
+     * Copies the cached result of a conversion to a KCD file.
+     *
+     * @param key Key of a conversion
+     * @param kcd File to write, replaced if it exists
+     * @return True, if the entry has been copied, false if there is none.
+     * @throws IOException if copying fails.
+     */
+    public boolean restore(String key, File kcd) throws IOException {
+        File entry = entry(key);
+        if (!entry.isFile()) {
+            return false;
+        }
+        Files.copy(entry.toPath(), kcd.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * Stores a KCD file as result of a conversion. The file should only be
+     * stored if it has been converted successfully and is valid.
+     *
+     * @param key Key of the conversion
+     * @param kcd File to store
+     * @throws IOException if writing the entry fails.
+     */
+    public void store(String key, File kcd) throws IOException {
+        File entry = entry(key);
+        File parent = entry.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+
+        File temp = File.createTempFile(key.substring(2, 10), ".tmp", parent);
+        try {
+            Files.copy(kcd.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.InputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.SAXException;
+
+import com.github.canbabel.canio.kcd.NetworkDefinition;
+
+/**
+ * Holds the resources that are expensive to build but can be shared by any
+ * number of conversions: the JAXBContext of the KCD model and the compiled
+ * Definition.xsd schema. Both are created on first use or by warmUp() and
+ * kept for the lifetime of the engine.
+ *
+ * Marshaller and Validator are not thread-safe, so each thread gets its own
+ * instance that is reused for all conversions on that thread.
+ *
+ * @author julietkilo
+ */
+public class ConversionEngine {
+
+    private static final ConversionEngine DEFAULT = new ConversionEngine();
+
+    private JAXBContext context;
+    private Schema schema;
+    private boolean schemaLoaded = false;
+    private Exception schemaError;
+
+    private final ThreadLocal<Marshaller> marshallers = new ThreadLocal<Marshaller>();
+    private final ThreadLocal<Validator> validators = new ThreadLocal<Validator>();
+
+    /**
+     * @return Engine shared by all readers and validators that are not given
+     *         an engine explicitly.
+     */
+    public static ConversionEngine getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Builds the JAXBContext and compiles the schema, so the first conversion
+     * does not have to. Also creates the Marshaller and Validator of the
+     * calling thread.
+     *
+     * @throws JAXBException if the JAXBContext can not be created.
+     */
+    public void warmUp() throws JAXBException {
+        marshaller(false);
+        validator();
+    }
+
+    /**
+     * @return JAXBContext of the KCD model.
+     * @throws JAXBException if the context can not be created.
+     */
+    public synchronized JAXBContext context() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(new Class[] { NetworkDefinition.class });
+        }
+        return context;
+    }
+
+    /**
+     * @return Compiled KCD schema, null if Definition.xsd is not found or can
+     *         not be compiled. See schemaError().
+     */
+    public synchronized Schema schema() {
+        if (!schemaLoaded) {
+            schemaLoaded = true;
+            InputStream resourceAsStream = NetworkDefinition.class.getResourceAsStream("Definition.xsd");
+            if (resourceAsStream != null) {
+                SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                try {
+                    schema = schemaFactory.newSchema(new StreamSource(resourceAsStream));
+                } catch (SAXException ex) {
+                    schemaError = ex;
+                }
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * @return Exception thrown while compiling the schema, null if the schema
+     *         was compiled or not found at all.
+     */
+    public synchronized Exception schemaError() {
+        schema();
+        return schemaError;
+    }
+
+    /**
+     * Returns the Marshaller of the calling thread configured for UTF-8
+     * output. The Marshaller must not be passed over to other threads.
+     *
+     * @param prettyPrint True, to format for human reading.
+     * @return Marshaller of the calling thread.
+     * @throws JAXBException if the Marshaller can not be created.
+     */
+    public Marshaller marshaller(boolean prettyPrint) throws JAXBException {
+        return marshaller(prettyPrint, null);
+    }
+
+    /**
+     * Returns the Marshaller of the calling thread configured for UTF-8
+     * output. If a handler is given, the Marshaller validates the document
+     * against the schema while marshalling and reports violations to the
+     * handler. The Marshaller must not be passed over to other threads.
+     *
+     * @param prettyPrint True, to format for human reading.
+     * @param handler     Receives validation errors, null to not validate.
+     * @return Marshaller of the calling thread.
+     * @throws JAXBException if the Marshaller can not be created.
+     */
+    public Marshaller marshaller(boolean prettyPrint, ValidationEventHandler handler) throws JAXBException {
+        Marshaller marshaller = marshallers.get();
+        if (marshaller == null) {
+            marshaller = context().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+            marshallers.set(marshaller);
+        }
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.valueOf(prettyPrint));
+        marshaller.setSchema(handler != null ? schema() : null);
+        marshaller.setEventHandler(handler);
+        return marshaller;
+    }
+
+    /**
+     * Returns the Validator of the calling thread. The Validator must not be
+     * passed over to other threads. Callers should set their ErrorHandler
+     * before each validation.
+     *
+     * @return Validator of the calling thread, null if the schema is not
+     *         available.
+     */
+    public Validator validator() {
+        Validator validator = validators.get();
+        if (validator == null) {
+            Schema s = schema();
+            if (s == null) {
+                return null;
+            }
+            validator = s.newValidator();
+            validators.set(validator);
+        }
+        return validator;
+    }
+
+    /**
+     * Creates a handler that validates a document given as SAX events, e.g.
+     * while it is written by the KcdStreamWriter. A handler validates a single
+     * document.
+     *
+     * @return New ValidatorHandler, null if the schema is not available.
+     */
+    public ValidatorHandler newValidatorHandler() {
+        Schema s = schema();
+        return s != null ? s.newValidatorHandler() : null;
+    }
+}
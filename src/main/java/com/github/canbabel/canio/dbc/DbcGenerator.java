@@ -0,0 +1,588 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates synthetic CAN database (*.dbc) files for scale and stress tests.
+ *
+ * The generated database contains the configured number of nodes, standard,
+ * extended and CAN-FD messages with plain, big endian and multiplexed signals,
+ * as well as value descriptions, comments and attributes spread over the
+ * messages and signals. Equal settings and seed always give the same file.
+ *
+ * The generator can be used from the command line:
+ * <pre>
+ * java -cp CANBabel-{version}-jar-with-dependencies.jar com.github.canbabel.canio.dbc.DbcGenerator out.dbc -standard 1000 -extended 9000 -seed 42
+ * </pre>
+ *
+ * @author julietkilo
+ */
+public class DbcGenerator {
+
+    private static final String USAGE = "Usage: DbcGenerator dbc-out [-seed n] [-nodes n] [-standard n]"
+            + " [-extended n] [-fd n] [-signals n] [-multiplexed n] [-groups n] [-values n] [-comments n]"
+            + " [-attributes n]";
+
+    /* Line break of the files written by CANdb++ */
+    private static final String CRLF = "\r\n";
+    private static final int STANDARD_IDS = 0x800;
+    private static final int MAX_SIGNAL_LENGTH = 64;
+    private static final int EXTENDED_IDS = 0x20000000;
+    private static final int[] FD_LENGTHS = { 12, 16, 20, 24, 32, 48, 64 };
+    private static final String[] UNITS = { "", "km/h", "degC", "V", "A", "rpm", "%", "bar" };
+    private static final String[] FACTORS = { "1", "0.1", "0.5", "0.01", "0.25", "2" };
+    private static final String[] LABELS = { "off", "on", "error", "init", "invalid", "idle", "active",
+        "reserved" };
+
+    /**
+     * Signal of a generated message.
+     */
+    private static final class SignalSpec {
+        private String name;
+        private String multiplex = "";
+        private int startBit;
+        private int length;
+        private boolean bigEndian;
+    }
+
+    /**
+     * Generated message.
+     */
+    private static final class MessageSpec {
+        private long rawId;
+        private String name;
+        private int length;
+        private boolean fd;
+        private int transmitter;
+        private final List<SignalSpec> signals = new ArrayList<SignalSpec>();
+    }
+
+    private long seed = 0;
+    private int nodes = 4;
+    private int standardMessages = 100;
+    private int extendedMessages = 0;
+    private int fdMessages = 0;
+    private int signalsPerMessage = 8;
+    private int multiplexedMessages = 0;
+    private int multiplexGroups = 2;
+    private int valueDescriptions = 0;
+    private int comments = 0;
+    private int attributes = 0;
+
+    private Random random;
+
+    /**
+     * Seed of the random number generator.
+     * @param s Seed
+     */
+    public void seed(long s) {
+        seed = s;
+    }
+
+    /**
+     * Number of network nodes, messages are sent and received by them.
+     * @param n Number of nodes, at least 1
+     */
+    public void nodes(int n) {
+        nodes = atLeast(n, 1, "nodes");
+    }
+
+    /**
+     * Number of classic CAN messages with 11 bit identifiers.
+     * @param n Number of messages, at most 2048 together with the CAN-FD
+     *          messages that get a standard identifier.
+     */
+    public void standardMessages(int n) {
+        standardMessages = atLeast(n, 0, "standard messages");
+    }
+
+    /**
+     * Number of classic CAN messages with 29 bit identifiers.
+     * @param n Number of messages
+     */
+    public void extendedMessages(int n) {
+        extendedMessages = atLeast(n, 0, "extended messages");
+    }
+
+    /**
+     * Number of CAN-FD messages with up to 64 bytes. They get a standard
+     * identifier as long as there are unused ones, an extended otherwise.
+     * @param n Number of messages
+     */
+    public void fdMessages(int n) {
+        fdMessages = atLeast(n, 0, "CAN-FD messages");
+    }
+
+    /**
+     * Number of signals of each message. A classic message holds at most 64
+     * signals of one bit.
+     * @param n Number of signals, at least 1
+     */
+    public void signalsPerMessage(int n) {
+        signalsPerMessage = atLeast(n, 1, "signals");
+    }
+
+    /**
+     * Number of messages with a multiplexor.
+     * @param n Number of messages
+     */
+    public void multiplexedMessages(int n) {
+        multiplexedMessages = atLeast(n, 0, "multiplexed messages");
+    }
+
+    /**
+     * Number of multiplexed groups in each multiplexed message.
+     * @param n Number of groups, 1 to 256
+     */
+    public void multiplexGroups(int n) {
+        if (n > 256) {
+            throw new IllegalArgumentException("Number of multiplex groups must be at most 256");
+        }
+        multiplexGroups = atLeast(n, 1, "multiplex groups");
+    }
+
+    /**
+     * Number of signals with value descriptions (VAL_).
+     * @param n Number of value descriptions
+     */
+    public void valueDescriptions(int n) {
+        valueDescriptions = atLeast(n, 0, "value descriptions");
+    }
+
+    /**
+     * Number of comments (CM_) on messages and signals.
+     * @param n Number of comments
+     */
+    public void comments(int n) {
+        comments = atLeast(n, 0, "comments");
+    }
+
+    /**
+     * Number of cycle time and start value attributes (BA_) on messages and
+     * signals. The frame format attributes of CAN-FD messages are not counted.
+     * @param n Number of attributes
+     */
+    public void attributes(int n) {
+        attributes = atLeast(n, 0, "attributes");
+    }
+
+    private static int atLeast(int n, int min, String what) {
+        if (n < min) {
+            throw new IllegalArgumentException("Number of " + what + " must be at least " + min);
+        }
+        return n;
+    }
+
+    /**
+     * Writes the database to a file.
+     *
+     * @param file File to write
+     * @throws IOException if the file can not be written.
+     */
+    public void write(File file) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1"))) {
+            write(w);
+        }
+    }
+
+    /**
+     * Writes the database.
+     *
+     * @param writer Writer to write the database to, it is not closed.
+     * @throws IOException if writing fails.
+     */
+    public void write(Writer writer) throws IOException {
+        if (valueDescriptions > countSignals()) {
+            throw new IllegalArgumentException("More value descriptions than signals");
+        }
+        if (comments > standardMessages + extendedMessages + fdMessages + countSignals()
+                || attributes > standardMessages + extendedMessages + fdMessages + countSignals()) {
+            throw new IllegalArgumentException("More comments or attributes than messages and signals");
+        }
+
+        random = new Random(seed);
+        List<MessageSpec> messages = createMessages();
+        PrintWriter w = new PrintWriter(writer);
+
+        writeHeader(w);
+        for (MessageSpec message : messages) {
+            writeMessage(w, message);
+        }
+        writeComments(w, messages);
+        writeAttributes(w, messages);
+        writeValueDescriptions(w, messages);
+
+        w.flush();
+        if (w.checkError()) {
+            throw new IOException("Writing the database failed");
+        }
+    }
+
+    /**
+     * @return Number of signals of all messages, multiplexors included.
+     */
+    private long countSignals() {
+        long total = 0;
+        int messages = standardMessages + extendedMessages + fdMessages;
+        for (int i = 0; i < messages; i++) {
+            total += signalCount(i < multiplexedMessages, i >= standardMessages + extendedMessages ? 512 : 64);
+        }
+        return total;
+    }
+
+    private int signalCount(boolean multiplexed, int maxBits) {
+        if (multiplexed) {
+            /* Multiplexor of 8 bits and the groups sharing the remaining bits */
+            return 1 + groupSignalCount(maxBits) * multiplexGroups;
+        }
+        return Math.min(signalsPerMessage, maxBits);
+    }
+
+    private int groupSignalCount(int maxBits) {
+        return Math.min(Math.max(signalsPerMessage / multiplexGroups, 1), maxBits - 8);
+    }
+
+    private List<MessageSpec> createMessages() {
+        int total = standardMessages + extendedMessages + fdMessages;
+        List<MessageSpec> messages = new ArrayList<MessageSpec>(total);
+        Set<Long> usedIds = new HashSet<Long>();
+        int standardIds = 0;
+
+        for (int i = 0; i < total; i++) {
+            MessageSpec message = new MessageSpec();
+            message.fd = i >= standardMessages + extendedMessages;
+            boolean extended = i >= standardMessages && !message.fd;
+            if (message.fd) {
+                extended = standardIds == STANDARD_IDS || random.nextBoolean();
+            }
+
+            if (extended) {
+                long id;
+                do {
+                    id = STANDARD_IDS + random.nextInt(EXTENDED_IDS - STANDARD_IDS);
+                } while (!usedIds.add(id));
+                message.rawId = 0x80000000L | id;
+            } else {
+                if (standardIds == STANDARD_IDS) {
+                    throw new IllegalArgumentException("More than " + STANDARD_IDS + " standard messages");
+                }
+                long id;
+                do {
+                    id = random.nextInt(STANDARD_IDS);
+                } while (!usedIds.add(id));
+                standardIds++;
+                message.rawId = id;
+            }
+            message.name = (message.fd ? "FdMsg" : "Msg") + i;
+            message.length = message.fd ? FD_LENGTHS[random.nextInt(FD_LENGTHS.length)] : 8;
+            message.transmitter = random.nextInt(nodes);
+
+            int bits = message.length * 8;
+            if (i < multiplexedMessages) {
+                SignalSpec multiplexor = new SignalSpec();
+                multiplexor.name = "Mux" + i;
+                multiplexor.multiplex = "M";
+                multiplexor.startBit = 0;
+                multiplexor.length = 8;
+                message.signals.add(multiplexor);
+                for (int g = 0; g < multiplexGroups; g++) {
+                    addSignals(message, "Sig" + i + "_" + g + "_", "m" + g, 8, bits - 8, groupSignalCount(bits));
+                }
+            } else {
+                addSignals(message, "Sig" + i + "_", "", 0, bits, signalCount(false, bits));
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Spreads signals evenly over a range of bits. Byte aligned signals of
+     * whole bytes are big endian by chance.
+     */
+    private void addSignals(MessageSpec message, String prefix, String multiplex, int firstBit, int bits, int count) {
+        int length = Math.min(Math.max(bits / count, 1), MAX_SIGNAL_LENGTH);
+        for (int s = 0; s < count; s++) {
+            SignalSpec signal = new SignalSpec();
+            signal.name = prefix + s;
+            signal.multiplex = multiplex;
+            signal.length = length;
+            signal.startBit = firstBit + s * length;
+            if (length % 8 == 0 && signal.startBit % 8 == 0 && random.nextBoolean()) {
+                /* Motorola byte order starts at the most significant bit */
+                signal.bigEndian = true;
+                signal.startBit += 7;
+            }
+            message.signals.add(signal);
+        }
+    }
+
+    private void writeHeader(PrintWriter w) {
+        w.print("VERSION \"\"" + CRLF);
+        w.print(CRLF);
+        w.print(CRLF);
+        w.print("NS_ :" + CRLF);
+        w.print("\tCM_" + CRLF);
+        w.print("\tBA_DEF_" + CRLF);
+        w.print("\tBA_" + CRLF);
+        w.print("\tVAL_" + CRLF);
+        w.print("\tBA_DEF_DEF_" + CRLF);
+        w.print(CRLF);
+        w.print("BS_:" + CRLF);
+        w.print(CRLF);
+        w.print("BU_:");
+        for (int n = 0; n < nodes; n++) {
+            w.print(" Node" + n);
+        }
+        w.print(CRLF);
+        w.print(CRLF);
+        w.print(CRLF);
+    }
+
+    private void writeMessage(PrintWriter w, MessageSpec message) {
+        w.print("BO_ " + message.rawId + " " + message.name + ": " + message.length + " Node" + message.transmitter
+                + CRLF);
+        for (SignalSpec signal : message.signals) {
+            boolean multiplexor = "M".equals(signal.multiplex);
+            boolean signed = !multiplexor && signal.length > 1 && random.nextInt(4) == 0;
+            String factor = multiplexor ? "1" : FACTORS[random.nextInt(FACTORS.length)];
+            int offset = signed || multiplexor ? 0 : random.nextInt(3) * -10;
+            long range = signal.length >= 32 ? 0xFFFFFFFFL : (1L << signal.length) - 1;
+            long min = signed ? -(range / 2) - 1 : 0;
+            long max = signed ? range / 2 : range;
+
+            w.print(" SG_ " + signal.name + " ");
+            if (!signal.multiplex.isEmpty()) {
+                w.print(signal.multiplex + " ");
+            }
+            w.print(": " + signal.startBit + "|" + signal.length + "@" + (signal.bigEndian ? "0" : "1")
+                    + (signed ? "-" : "+"));
+            w.print(" (" + factor + "," + offset + ") [" + physical(factor, offset, min) + "|"
+                    + physical(factor, offset, max) + "] \"" + UNITS[random.nextInt(UNITS.length)] + "\" ");
+            w.print(receivers(message.transmitter) + CRLF);
+        }
+        w.print(CRLF);
+    }
+
+    /**
+     * Physical value of a raw value without rounding errors.
+     */
+    private static String physical(String factor, int offset, long raw) {
+        return new BigDecimal(factor).multiply(BigDecimal.valueOf(raw)).add(BigDecimal.valueOf(offset))
+                .stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * One to three receiving nodes other than the transmitter.
+     */
+    private String receivers(int transmitter) {
+        if (nodes == 1) {
+            return "Vector__XXX";
+        }
+        StringBuilder receivers = new StringBuilder();
+        int count = 1 + random.nextInt(Math.min(3, nodes - 1));
+        int node = random.nextInt(nodes);
+        for (int r = 0; r < count; r++) {
+            if (node == transmitter) {
+                node = (node + 1) % nodes;
+            }
+            if (r > 0) {
+                receivers.append(',');
+            }
+            receivers.append("Node").append(node);
+            node = (node + 1) % nodes;
+            if (node == transmitter) {
+                node = (node + 1) % nodes;
+            }
+        }
+        return receivers.toString();
+    }
+
+    /**
+     * Selects each of the remaining candidates with the probability that
+     * results in exactly the requested number of selections.
+     */
+    private boolean select(long[] remaining) {
+        boolean selected = random.nextDouble() * remaining[1] < remaining[0];
+        if (selected) {
+            remaining[0]--;
+        }
+        remaining[1]--;
+        return selected;
+    }
+
+    private void writeComments(PrintWriter w, List<MessageSpec> messages) {
+        long[] remaining = { comments, messages.size() + countSignals() };
+
+        for (MessageSpec message : messages) {
+            if (select(remaining)) {
+                w.print("CM_ BO_ " + message.rawId + " \"" + text(message.name) + "\";" + CRLF);
+            }
+            for (SignalSpec signal : message.signals) {
+                if (select(remaining)) {
+                    w.print("CM_ SG_ " + message.rawId + " " + signal.name + " \"" + text(signal.name) + "\";" + CRLF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Comment text, some comments span two lines.
+     */
+    private String text(String name) {
+        if (random.nextInt(8) == 0) {
+            return "Description of " + name + "\r\nsecond line";
+        }
+        return "Description of " + name;
+    }
+
+    private void writeAttributes(PrintWriter w, List<MessageSpec> messages) {
+        w.print("BA_DEF_ BO_  \"GenMsgCycleTime\" INT 0 10000;" + CRLF);
+        w.print("BA_DEF_ SG_  \"GenSigStartValue\" INT 0 100000;" + CRLF);
+        w.print("BA_DEF_  \"BusType\" STRING ;" + CRLF);
+        w.print("BA_DEF_  \"DBName\" STRING ;" + CRLF);
+        if (fdMessages > 0) {
+            w.print("BA_DEF_ BO_  \"VFrameFormat\" ENUM  \"StandardCAN\",\"ExtendedCAN\",\"reserved\",\"reserved\","
+                    + "\"reserved\",\"reserved\",\"reserved\",\"reserved\",\"reserved\",\"reserved\",\"reserved\","
+                    + "\"reserved\",\"reserved\",\"reserved\",\"StandardCAN_FD\",\"ExtendedCAN_FD\";" + CRLF);
+            w.print("BA_DEF_ BO_  \"CANFD_BRS\" ENUM  \"0\",\"1\";" + CRLF);
+        }
+        w.print("BA_DEF_DEF_  \"GenMsgCycleTime\" 0;" + CRLF);
+        w.print("BA_DEF_DEF_  \"GenSigStartValue\" 0;" + CRLF);
+        w.print("BA_DEF_DEF_  \"BusType\" \"\";" + CRLF);
+        w.print("BA_DEF_DEF_  \"DBName\" \"\";" + CRLF);
+        if (fdMessages > 0) {
+            w.print("BA_DEF_DEF_  \"VFrameFormat\" \"StandardCAN\";" + CRLF);
+            w.print("BA_DEF_DEF_  \"CANFD_BRS\" \"1\";" + CRLF);
+        }
+        w.print("BA_ \"BusType\" \"" + (fdMessages > 0 ? "CAN FD" : "CAN") + "\";" + CRLF);
+        w.print("BA_ \"DBName\" \"Synthetic" + seed + "\";" + CRLF);
+
+        long[] remaining = { attributes, messages.size() + countSignals() };
+        for (MessageSpec message : messages) {
+            if (select(remaining)) {
+                w.print("BA_ \"GenMsgCycleTime\" BO_ " + message.rawId + " " + (10 + 10 * random.nextInt(100)) + ";" + CRLF);
+            }
+            if (message.fd) {
+                boolean extended = message.rawId > 0x7FFFFFFFL;
+                w.print("BA_ \"VFrameFormat\" BO_ " + message.rawId + " " + (extended ? 15 : 14) + ";" + CRLF);
+            }
+            for (SignalSpec signal : message.signals) {
+                if (select(remaining)) {
+                    w.print("BA_ \"GenSigStartValue\" SG_ " + message.rawId + " " + signal.name + " "
+                            + random.nextInt(1 << Math.min(signal.length, 16)) + ";" + CRLF);
+                }
+            }
+        }
+    }
+
+    private void writeValueDescriptions(PrintWriter w, List<MessageSpec> messages) {
+        long[] remaining = { valueDescriptions, countSignals() };
+
+        for (MessageSpec message : messages) {
+            for (SignalSpec signal : message.signals) {
+                if (select(remaining)) {
+                    w.print("VAL_ " + message.rawId + " " + signal.name);
+                    int values = signal.length >= 3 ? 2 + random.nextInt(LABELS.length - 1) : 1 << signal.length;
+                    for (int v = values - 1; v >= 0; v--) {
+                        w.print(" " + v + " \"" + LABELS[v % LABELS.length] + "\"");
+                    }
+                    w.print(" ;" + CRLF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Command line interface of the generator.
+     *
+     * @param args File to write followed by options
+     */
+    public static void main(String[] args) {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        DbcGenerator generator = new DbcGenerator();
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                long value = Long.parseLong(args[i + 1]);
+                int n = (int) Math.min(value, Integer.MAX_VALUE);
+                switch (args[i]) {
+                case "-seed":
+                    generator.seed(value);
+                    break;
+                case "-nodes":
+                    generator.nodes(n);
+                    break;
+                case "-standard":
+                    generator.standardMessages(n);
+                    break;
+                case "-extended":
+                    generator.extendedMessages(n);
+                    break;
+                case "-fd":
+                    generator.fdMessages(n);
+                    break;
+                case "-signals":
+                    generator.signalsPerMessage(n);
+                    break;
+                case "-multiplexed":
+                    generator.multiplexedMessages(n);
+                    break;
+                case "-groups":
+                    generator.multiplexGroups(n);
+                    break;
+                case "-values":
+                    generator.valueDescriptions(n);
+                    break;
+                case "-comments":
+                    generator.comments(n);
+                    break;
+                case "-attributes":
+                    generator.attributes(n);
+                    break;
+                default:
+                    System.out.println(USAGE);
+                    return;
+                }
+            }
+            generator.write(new File(args[0]));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+        } catch (IOException e) {
+            System.out.println("Writing " + args[0] + " failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+import com.github.canbabel.canio.kcd.Multiplex;
+import com.github.canbabel.canio.kcd.Signal;
+
+/**
+ * Receives the content of a CAN database (*.dbc) file from a DbcParser
+ * statement by statement.
+ *
+ * Messages are reported with onMessageStart(), followed by their plain
+ * signals, their multiplexor and multiplexed signals and finally
+ * onMessageEnd(). The message passed to these methods is already complete.
+ * Attribute definitions are reported when they are defined, a default value
+ * given later in the file is set on the same object.
+ *
+ * @author julietkilo
+ */
+public interface DbcHandler {
+
+    /**
+     * @param version Version string of the database without quotes
+     */
+    void onVersion(String version);
+
+    /**
+     * @param name Name of a network node defined by BU_
+     */
+    void onNode(String name);
+
+    /**
+     * @param message Message defined by BO_
+     */
+    void onMessageStart(Message message);
+
+    /**
+     * @param message Message the signal belongs to
+     * @param signal  Plain signal of the message
+     */
+    void onSignal(Message message, Signal signal);
+
+    /**
+     * @param message   Message the multiplexor belongs to
+     * @param multiplex Multiplexor signal of the message
+     */
+    void onMultiplexor(Message message, Multiplex multiplex);
+
+    /**
+     * @param message Message the signal belongs to
+     * @param count   Value of the multiplexor the signal is valid for
+     * @param signal  Multiplexed signal of the message
+     */
+    void onMultiplexedSignal(Message message, long count, Signal signal);
+
+    /**
+     * @param message Message that has been reported completely
+     */
+    void onMessageEnd(Message message);
+
+    /**
+     * @param description Labels of a signal defined by VAL_
+     */
+    void onValueDescription(LabelDescription description);
+
+    /**
+     * @param comment Comment of a message (MessageComment) or signal
+     *                (SignalComment) defined by CM_
+     */
+    void onComment(Comment comment);
+
+    /**
+     * @param definition Attribute definition defined by BA_DEF_
+     */
+    void onAttributeDefinition(AttributeDefinition definition);
+
+    /**
+     * @param attribute Attribute value defined by BA_
+     */
+    void onAttribute(Attribute attribute);
+}
@@ -0,0 +1,187 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+/**
+ * Keywords that start a statement block in a CAN database (*.dbc) file.
+ *
+ * A line starts a new block if it begins with one of these keywords followed
+ * by whitespace, a colon, a semicolon, a quote or the end of the line. The
+ * keywords are held in a trie, so a line is classified by looking at each
+ * character of its first word once.
+ *
+ * @author julietkilo
+ */
+enum DbcKeyword {
+
+    VERSION("VERSION"),
+    NEW_SYMBOLS("NS_"),
+    BIT_TIMING("BS_"),
+    NODES("BU_"),
+    VALUE_TABLE("VAL_TABLE_"),
+    MESSAGE("BO_"),
+    MESSAGE_TRANSMITTERS("BO_TX_BU_"),
+    ENVIRONMENT_VARIABLE("EV_"),
+    ENVIRONMENT_VARIABLE_DATA("ENVVAR_DATA_"),
+    ENVIRONMENT_VARIABLE_DATA_OLD("EV_DATA_"),
+    SIGNAL_TYPE("SGTYPE_"),
+    SIGNAL_TYPE_VALUE("SGTYPE_VAL_"),
+    SIGNAL_TYPE_REFERENCE("SIG_TYPE_REF_"),
+    SIGNAL_GROUP("SIG_GROUP_"),
+    SIGNAL_VALUE_TYPE("SIG_VALTYPE_"),
+    SIGNAL_TYPE_VALUE_TYPE("SIGTYPE_VALTYPE_"),
+    SIGNAL_MULTIPLEX_VALUE("SG_MUL_VAL_"),
+    COMMENT("CM_"),
+    ATTRIBUTE_DEFINITION("BA_DEF_"),
+    ATTRIBUTE_DEFINITION_SIGNAL_TYPE("BA_DEF_SGTYPE_"),
+    ATTRIBUTE_DEFAULT("BA_DEF_DEF_"),
+    ATTRIBUTE("BA_"),
+    ATTRIBUTE_SIGNAL_TYPE("BA_SGTYPE_"),
+    RELATION_ATTRIBUTE_DEFINITION("BA_DEF_REL_"),
+    RELATION_ATTRIBUTE_DEFAULT("BA_DEF_DEF_REL_"),
+    RELATION_ATTRIBUTE("BA_REL_"),
+    NODE_SIGNAL_RELATION("BU_SG_REL_"),
+    NODE_ENVIRONMENT_VARIABLE_RELATION("BU_EV_REL_"),
+    NODE_MESSAGE_RELATION("BU_BO_REL_"),
+    VALUE_DESCRIPTION("VAL_"),
+    CATEGORY_DEFINITION("CAT_DEF_"),
+    CATEGORY("CAT_"),
+    FILTER("FILTER");
+
+    private final String keyword;
+
+    private DbcKeyword(String keyword) {
+        this.keyword = keyword;
+    }
+
+    /**
+     * @return The keyword as written in the DBC file.
+     */
+    String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * @return Number of characters of the keyword.
+     */
+    int length() {
+        return keyword.length();
+    }
+
+    /**
+     * Node of the keyword trie. Keywords only consist of upper case letters
+     * and underscores.
+     */
+    private static final class TrieNode {
+        private final TrieNode[] children = new TrieNode[27];
+        private DbcKeyword keyword;
+    }
+
+    private static final TrieNode ROOT = new TrieNode();
+
+    static {
+        for (DbcKeyword k : values()) {
+            TrieNode node = ROOT;
+            for (int i = 0; i < k.keyword.length(); i++) {
+                int slot = slot(k.keyword.charAt(i));
+                if (node.children[slot] == null) {
+                    node.children[slot] = new TrieNode();
+                }
+                node = node.children[slot];
+            }
+            node.keyword = k;
+        }
+    }
+
+    /**
+     * @param c Character of a keyword
+     * @return Index of the child in a trie node, -1 if the character can not
+     *         be part of a keyword.
+     */
+    private static int slot(int c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c == '_') {
+            return 26;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true, if the character terminates a keyword.
+     *
+     * @param c Character following the keyword
+     * @return True, if the character separates the keyword from the rest of
+     *         the statement.
+     */
+    private static boolean isTerminator(int c) {
+        return c == ' ' || c == '\t' || c == ':' || c == ';' || c == '"';
+    }
+
+    /**
+     * Classifies a line of a DBC file by the keyword it begins with.
+     *
+     * @param line Line or statement block to classify
+     * @return Keyword the line starts with, null if the line does not start
+     *         with a keyword.
+     */
+    static DbcKeyword lookup(CharSequence line) {
+        TrieNode node = ROOT;
+        int length = line.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            int slot = slot(c);
+            if (slot < 0) {
+                return isTerminator(c) ? node.keyword : null;
+            }
+            node = node.children[slot];
+            if (node == null) {
+                return null;
+            }
+        }
+        return node.keyword;
+    }
+
+    /**
+     * Classifies a line of a DBC file given as ISO-8859-1 encoded bytes by the
+     * keyword it begins with.
+     *
+     * @param bytes Array holding the line
+     * @param start Index of the first byte of the line
+     * @param end   Index after the last byte of the line
+     * @return Keyword the line starts with, null if the line does not start
+     *         with a keyword.
+     */
+    static DbcKeyword lookup(byte[] bytes, int start, int end) {
+        TrieNode node = ROOT;
+
+        for (int i = start; i < end; i++) {
+            int c = bytes[i] & 0xFF;
+            int slot = slot(c);
+            if (slot < 0) {
+                return isTerminator(c) ? node.keyword : null;
+            }
+            node = node.children[slot];
+            if (node == null) {
+                return null;
+            }
+        }
+        return node.keyword;
+    }
+}
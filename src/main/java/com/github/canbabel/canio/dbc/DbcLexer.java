@@ -0,0 +1,317 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Segments a CAN database (*.dbc) file in statement blocks. A block starts
+ * with a line that begins with a keyword and contains all following lines
+ * that do not, e.g. a BO_ line and its SG_ lines. The lines of a block are
+ * concatenated without line separators. A line inside the quoted string of a
+ * comment spanning several lines never starts a block.
+ *
+ * The input is either read line by line from a BufferedReader or directly
+ * from ISO-8859-1 encoded bytes, e.g. a memory mapped file. The byte path
+ * neither decodes characters nor creates a String per line.
+ *
+ * @author julietkilo
+ */
+final class DbcLexer {
+
+    /**
+     * Receives the statement blocks of a DBC file in file order.
+     */
+    interface BlockHandler {
+
+        /**
+         * @param keyword Keyword the block starts with, null if the first block
+         *                of the file does not start with a keyword.
+         * @param block   Content of the block. The buffer is reused for the
+         *                next block and may be modified by the handler.
+         */
+        void block(DbcKeyword keyword, StringBuilder block);
+    }
+
+    /** Largest part of a file that is mapped into memory at once */
+    static final int MAPPING_WINDOW = 1 << 30;
+
+    /** Initial number of bytes copied from a buffer at once */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final BlockHandler handler;
+    private final StringBuilder block = new StringBuilder();
+    private DbcKeyword keyword = null;
+    private boolean isFirstLine = true;
+    /* True, if the current block ends inside a quoted string */
+    private boolean inString = false;
+    private byte[] bytes = new byte[CHUNK_SIZE];
+    private char[] chars = new char[CHUNK_SIZE];
+
+    /* Byte offsets, only maintained when reading bytes */
+    private boolean offsets = false;
+    private long chunkOffset = 0;
+    private long lineOffset = 0;
+    private long blockStart = 0;
+    private long blockEnd = -1;
+
+    DbcLexer(BlockHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Decides whether the line starting with the given keyword begins a new
+     * block and passes the finished block over to the handler.
+     *
+     * @param next Keyword of the line, null if the line does not start with a
+     *             keyword. Ignored while a quoted string is open.
+     */
+    private void startLine(DbcKeyword next) {
+        if (inString) {
+            next = null;
+        }
+        if (next != null && !isFirstLine) {
+            blockEnd = offsets ? lineOffset : -1;
+            handler.block(keyword, block);
+            block.setLength(0);
+            blockStart = lineOffset;
+        }
+        if (next != null || isFirstLine) {
+            keyword = next;
+        }
+        isFirstLine = false;
+    }
+
+    /**
+     * Updates whether the quoted string of a comment is open after a line has
+     * been appended to the block. Inside the string, quotes escaped with a
+     * backslash are skipped. A line ending with the end of a statement closes
+     * the string anyway, so that a backslash at the end of a comment, e.g. of
+     * a Windows path, or a single unbalanced quote does not swallow the rest
+     * of the file.
+     *
+     * @param start Index of the first character of the line in the block
+     */
+    private void endLine(int start) {
+        if (keyword != DbcKeyword.COMMENT) {
+            inString = false;
+            return;
+        }
+        for (int i = start; i < block.length(); i++) {
+            char c = block.charAt(i);
+            if (c == '\\' && inString) {
+                i++;
+            } else if (c == '"') {
+                inString = !inString;
+            }
+        }
+        int end = block.length();
+        while (end > start && Character.isWhitespace(block.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start >= 2 && block.charAt(end - 1) == ';' && block.charAt(end - 2) == '"') {
+            inString = false;
+        }
+    }
+
+    /**
+     * Passes the last block over to the handler. Since there is no last keyword
+     * to trigger the parsing of the last block, we just parse it.
+     */
+    private void finish() {
+        blockEnd = offsets ? lineOffset : -1;
+        handler.block(keyword, block);
+        block.setLength(0);
+    }
+
+    /**
+     * @return Offset of the first byte of the block passed to the handler,
+     *         relative to the start of the input. Only valid while reading
+     *         bytes.
+     */
+    long blockStart() {
+        return blockStart;
+    }
+
+    /**
+     * @return Offset after the last byte of the block passed to the handler
+     *         including its line terminators, -1 while reading characters.
+     */
+    long blockEnd() {
+        return blockEnd;
+    }
+
+    /**
+     * Reads all blocks from a character stream.
+     *
+     * @param reader Reader to read lines from
+     * @throws IOException if reading fails.
+     */
+    void read(BufferedReader reader) throws IOException {
+        String text;
+
+        while ((text = reader.readLine()) != null) {
+            startLine(DbcKeyword.lookup(text));
+            int start = block.length();
+            block.append(text);
+            endLine(start);
+        }
+        finish();
+    }
+
+    /**
+     * Reads all blocks from ISO-8859-1 encoded bytes between position and limit
+     * of the buffer.
+     *
+     * @param buffer Bytes to read
+     */
+    void read(ByteBuffer buffer) {
+        offsets = true;
+        read(buffer, -buffer.position(), buffer.position(), buffer.limit(), true);
+        lineOffset = buffer.limit() - buffer.position();
+        finish();
+    }
+
+    /**
+     * Reads all blocks from a file channel. The file is mapped into memory in
+     * windows of at most MAPPING_WINDOW bytes.
+     *
+     * @param channel File to read
+     * @throws IOException if mapping the file fails.
+     */
+    void read(FileChannel channel) throws IOException {
+        read(channel, MAPPING_WINDOW);
+    }
+
+    /**
+     * Reads all blocks from a file channel mapped in windows of the given size.
+     *
+     * @param channel File to read
+     * @param window  Largest number of bytes mapped at once, has to be larger
+     *                than the longest line of the file.
+     * @throws IOException if mapping the file fails.
+     */
+    void read(FileChannel channel, int window) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        offsets = true;
+
+        while (position < size) {
+            long length = Math.min(window, size - position);
+            boolean last = position + length == size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            int consumed = read(buffer, position, 0, (int) length, last);
+            if (consumed == 0 && !last) {
+                throw new IOException("Line at offset " + position + " exceeds " + window + " bytes");
+            }
+            position += consumed;
+        }
+        lineOffset = size;
+        finish();
+    }
+
+    /**
+     * Reads the complete lines of a range of bytes. The bytes are copied chunk
+     * by chunk into an array, a line that does not fit into the remainder of
+     * the current chunk starts the next one.
+     *
+     * @param buffer Bytes to read
+     * @param base   Offset of the first byte of the buffer in the input
+     * @param start  Index of the first byte to read
+     * @param limit  Index after the last byte to read
+     * @param last   True, if the range ends with the end of the file. Otherwise
+     *               an unterminated line at the end is left for the next range.
+     * @return Number of bytes consumed.
+     */
+    private int read(ByteBuffer buffer, long base, int start, int limit, boolean last) {
+        int position = start;
+
+        while (position < limit) {
+            int length = Math.min(bytes.length, limit - position);
+            buffer.get(position, bytes, 0, length);
+            chunkOffset = base + position;
+
+            int consumed = readLines(length, last && position + length == limit);
+            if (consumed == 0) {
+                if (length < bytes.length) {
+                    /* Incomplete line at the end of the range */
+                    break;
+                }
+                /* Line longer than a chunk */
+                bytes = new byte[bytes.length * 2];
+                chars = new char[bytes.length];
+            }
+            position += consumed;
+        }
+        return position - start;
+    }
+
+    /**
+     * Reads the complete lines of the current chunk. A line is terminated by
+     * '\n', '\r' or "\r\n" like BufferedReader.readLine().
+     *
+     * @param limit Number of bytes in the chunk
+     * @param last  True, if the chunk ends with the end of the file
+     * @return Number of bytes consumed.
+     */
+    private int readLines(int limit, boolean last) {
+        int i = 0;
+
+        while (i < limit) {
+            int end = i;
+            while (end < limit && bytes[end] != '\n' && bytes[end] != '\r') {
+                end++;
+            }
+
+            int next;
+            if (end == limit) {
+                if (!last) {
+                    return i;
+                }
+                next = end;
+            } else if (bytes[end] == '\r') {
+                if (end + 1 < limit) {
+                    next = bytes[end + 1] == '\n' ? end + 2 : end + 1;
+                } else if (!last) {
+                    /* "\r\n" might be split between two chunks */
+                    return i;
+                } else {
+                    next = end + 1;
+                }
+            } else {
+                next = end + 1;
+            }
+
+            lineOffset = chunkOffset + i;
+            startLine(DbcKeyword.lookup(bytes, i, end));
+            for (int j = i; j < end; j++) {
+                chars[j - i] = (char) (bytes[j] & 0xFF);
+            }
+            int start = block.length();
+            block.append(chars, 0, end - i);
+            endLine(start);
+            i = next;
+        }
+        return i;
+    }
+}
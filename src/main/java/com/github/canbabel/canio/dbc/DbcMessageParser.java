@@ -0,0 +1,323 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a message definition block of a CAN database (*.dbc) file, i.e. a
+ * BO_ line and its SG_ lines, into a Message.
+ *
+ * A message definition does not depend on any other statement of the file,
+ * so independent parsers can process the blocks of a file concurrently. A
+ * single parser is not thread-safe.
+ *
+ * @author julietkilo
+ */
+final class DbcMessageParser {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern SIGNAL_SEPARATOR = Pattern.compile("\\s*SG_\\s+");
+    private static final Pattern MULTIPLEX_CODING = Pattern.compile("\\w+\\s+\\w+");
+    private static final String NOT_DEFINED = "Vector__XXX";
+
+    private static final ObjectFactory factory = new ObjectFactory();
+
+    private final DbcTokenizer tokens = new DbcTokenizer();
+    private final boolean omitUnconsumedSignals;
+    private Map<Long, Set<Signal>> muxed = new TreeMap<Long, Set<Signal>>();
+
+    /**
+     * @param omitUnconsumedSignals True, if signals without defined consumers
+     *                              are omitted.
+     */
+    DbcMessageParser(boolean omitUnconsumedSignals) {
+        this.omitUnconsumedSignals = omitUnconsumedSignals;
+    }
+
+    private enum SignalType {
+
+        MULTIPLEXOR, MULTIPLEX, PLAIN
+    };
+
+    /**
+     * Handling method for message definition starting by a line that begins with
+     * BO_ {decimal}.
+     *
+     * @param line passed over buffer of the line (starting with BO_ including all
+     *             corresponding signals e.g. BO_ 2684354547 ExtMsgBig2: 8 Bob SG_
+     *             TestSigBigDouble1 : 7|64@0- (2,0) [0|0] "" Vector__XXX
+     * @return Parsed message
+     */
+    Message parseMessageDefinition(CharSequence line) {
+
+        muxed = new TreeMap<Long, Set<Signal>>();
+
+        // BO_ 1984 Messagename: 8 Producername
+
+        // remove BO_
+        String[] lineArray = SIGNAL_SEPARATOR.split(line.subSequence(4, line.length()));
+
+        String[] messageArray = WHITESPACE.split(lineArray[0]);
+        Message message = (Message) factory.createMessage();
+        int messageIdDecimal = DbcReader.getCanIdFromString(messageArray[0]);
+
+        message.setId("0x" + Integer.toString(messageIdDecimal, 16).toUpperCase());
+        if (DbcReader.isExtendedFrameFormat(messageArray[0])) {
+            message.setFormat("extended");
+        }
+
+        message.setName(messageArray[1].replace(":", ""));
+        message.setLength(messageArray[2]);
+        if (!messageArray[3].contains(NOT_DEFINED)) {
+            Producer producer = (Producer) factory.createProducer();
+            NodeRef ref = (NodeRef) factory.createNodeRef();
+            ref.setId(messageArray[3]);
+            producer.getNodeRef().add(ref);
+            message.setProducer(producer);
+        }
+        for (int i = 1; i < lineArray.length; i++) {
+            parseSignal(message, lineArray[i]);
+        }
+
+        /*
+         * Check if we have to add a multiplex definition to the last message.
+         */
+        if (muxed != null && muxed.size() > 0) {
+            if (message.getMultiplex().size() == 1) {
+                Multiplex mul = message.getMultiplex().get(0);
+                List<MuxGroup> muxgroups = mul.getMuxGroup();
+
+                for (Long i : muxed.keySet()) {
+                    MuxGroup group = new MuxGroup();
+                    group.setCount(i);
+                    group.getSignal().addAll(muxed.get(i));
+                    muxgroups.add(group);
+                }
+            }
+
+        } else {
+            /* Make sure there is no empty multiplex in the message */
+            message.getMultiplex().clear();
+        }
+
+        return message;
+    }
+
+    /**
+     * Parses a the part of a signal line that is same for plain, multiplexor or
+     * muxed signal.
+     *
+     * @param message    message object where the signal line belongs to and shall
+     *                   append to.
+     * @param signalName name of the signal as parsed before the line string begins
+     * @param type       signal type that is one of multiplexor, multiplex or plain
+     *                   signal.
+     * @param line       signal line String to parse e.g. "39|16@0+ (0.01,0)
+     *                   [0|655.35] "Km/h" ECU3"
+     */
+    private Signal parseSignalLine(Message message, String signalName, SignalType type, CharSequence line) {
+        Value value = null;
+
+        Signal tSignal = (Signal) factory.createSignal();
+
+        tSignal.setName(signalName);
+        int fields = tokens.split(line);
+        if (fields < 9) {
+            throw new IllegalArgumentException("Incomplete signal line: '" + line + "'");
+        }
+        boolean undefinedConsumer = fields == 10 && tokens.equals(9, NOT_DEFINED);
+
+        int offset = tokens.parseInt(0);
+        int length = tokens.parseInt(1);
+        boolean isBigEndian = tokens.equals(2, "0");
+
+        // Omit length == "1" (default)
+        if (length > 1) {
+            tSignal.setLength(length);
+        }
+
+        if (isBigEndian && length > 1) {
+            // big endian signal and signal length greater than 1
+            tSignal.setOffset(DbcReader.bigEndianLeastSignificantBitOffset(offset, length));
+        } else {
+            // little endian OR signal length == 1
+            tSignal.setOffset(offset);
+        }
+
+        if (isBigEndian) {
+            tSignal.setEndianess("big");
+        }
+
+        double slope = tokens.parseDouble(4);
+        double intercept = tokens.parseDouble(5);
+        double min = tokens.parseDouble(6);
+        double max = tokens.parseDouble(7);
+
+        // omit entry with NOT_DEFINED consumers
+        if (!undefinedConsumer) {
+            Consumer consumer = (Consumer) factory.createConsumer();
+            for (int i = 9; i < fields; i++) {
+                NodeRef ref = (NodeRef) factory.createNodeRef();
+                consumer.getNodeRef().add(ref);
+                ref.setId(tokens.toString(i));
+            }
+            tSignal.setConsumer(consumer);
+        }
+
+        boolean signed = tokens.equals(3, "-");
+        if ((intercept != 0.0) || (slope != 1.0) || tokens.length(8) != 0 || signed
+                || (min != 0.0) || (max != 1.0)) {
+
+            value = (Value) factory.createValue();
+
+            if (signed) {
+                value.setType("signed");
+            }
+
+            // Omit default slope
+            if (slope != 1.0) {
+                value.setSlope(slope);
+            }
+
+            // Omit default intercept = 0.0
+            if (intercept != 0.0) {
+                value.setIntercept(intercept);
+            }
+
+            // Omit empty units
+            if (!tokens.isEmptyUnQuoted(8)) {
+                value.setUnit(tokens.unQuoted(8));
+            }
+
+            // Omit default min = 0.0
+            if (min != 0.0) {
+                value.setMin(min);
+            }
+
+            // Omit default max = 1.0
+            if (max != 1.0) {
+                value.setMax(max);
+            }
+            // End value part
+        }
+
+        if (type == SignalType.MULTIPLEXOR) {
+
+            Multiplex mux = (Multiplex) factory.createMultiplex();
+            mux.setName(tSignal.getName());
+            mux.setOffset(tSignal.getOffset());
+            mux.setConsumer(tSignal.getConsumer());
+            if (tSignal.getLength() != 1) {
+                mux.setLength(tSignal.getLength());
+            }
+            if ("big".equals(tSignal.getEndianess())) {
+                mux.setEndianess(tSignal.getEndianess());
+            }
+            mux.setValue(value);
+            message.getMultiplex().add(mux);
+            return null;
+
+        } else {
+            Signal signal = (Signal) factory.createSignal();
+            signal.setName(tSignal.getName());
+            signal.setOffset(tSignal.getOffset());
+            signal.setConsumer(tSignal.getConsumer());
+            if (tSignal.getLength() != 1) {
+                signal.setLength(tSignal.getLength());
+            }
+            if ("big".equals(tSignal.getEndianess())) {
+                signal.setEndianess(tSignal.getEndianess());
+            }
+            signal.setValue(value);
+            if (type == SignalType.PLAIN) {
+                // Prevent from adding MULTIPLEX signals twice
+                if (!omitUnconsumedSignals || !undefinedConsumer) {
+                    // if option set, omit signals with undefined consumers
+                    message.getSignal().add(signal);
+                }
+            }
+            return signal;
+        }
+    }
+
+    /**
+     * Parses a dbc file signal line without the SG_ header. Parses also signal
+     * lines with multiplexed signals (e.g. m2) and multiplexors (M).
+     *
+     * @param message message object where the signal line belongs to and shall
+     *                append to.
+     * @param line    signal line String to parse
+     */
+    void parseSignal(Message message, String line) {
+
+        // Split signalname and mux coding from rest of line, '2' limits split to first ':' occurence
+        String[] lineArray = line.split(":",2);
+        String signalName = lineArray[0].trim();
+        // Check if this is a multiplex
+        if (MULTIPLEX_CODING.matcher(lineArray[0]).find()) {
+            /* line is multiplexer or multiplexed signal */
+
+            if (signalName.endsWith("M")) {
+                /* signal type is multiplexor */
+                /* FIN_MUX M : 0|2@1+ (1,0) [0|255] "" Motor */
+                // Remove multiplex coding ' M' from name "Muxname M"
+                parseSignalLine(message, signalName.substring(0, signalName.length() - 2), SignalType.MULTIPLEXOR,
+                        lineArray[1]);
+
+            } else {
+                /* signal type is multiplex */
+                /* Signal: FIN17 m2 : 43|8@1+ (1,0) [0|255] "" YBOX,CO2,Clima */
+
+                /* Parse multiplex count */
+                String countstring = lineArray[0].trim();
+                for (int i = countstring.length() - 1; i > 0; i--) {
+                    if (countstring.charAt(i) == 'm') {
+                        countstring = countstring.substring(i + 1);
+                        break;
+                    }
+                }
+                long muxcount = Long.parseLong(countstring);
+
+                Signal signal = parseSignalLine(message, lineArray[0].split(" ")[0], SignalType.MULTIPLEX,
+                        lineArray[1]);
+
+                /* Do we have a signal list for muxcount? Keep the signals in file order. */
+                Set<Signal> signalSet = muxed.get(muxcount);
+                if (signalSet == null) {
+                    signalSet = new LinkedHashSet<Signal>();
+                    muxed.put(muxcount, signalSet);
+                }
+
+                signalSet.add(signal);
+            }
+
+        } else {
+            /* signal type is plain */
+            parseSignalLine(message, signalName, SignalType.PLAIN, lineArray[1].trim());
+        }
+
+    }
+}
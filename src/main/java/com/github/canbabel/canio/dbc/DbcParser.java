@@ -0,0 +1,1012 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Label;
+import com.github.canbabel.canio.kcd.Message;
+import com.github.canbabel.canio.kcd.Multiplex;
+import com.github.canbabel.canio.kcd.MuxGroup;
+import com.github.canbabel.canio.kcd.Signal;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a CAN database (*.dbc) file statement by statement and reports its
+ * content to a DbcHandler, similar to a SAX parser. Only the statement that
+ * is currently parsed is held in memory, so also very large databases can be
+ * processed in constant memory, as long as the handler does not keep what it
+ * is given.
+ *
+ * The events are reported in the order of the file. With parallel parsing
+ * enabled, message definitions are parsed on the common ForkJoinPool and their
+ * events may be reported after the events of statements that follow them in
+ * the file. The messages themselves are always reported in file order.
+ *
+ * Interrupting the parsing thread stops parsing at the next statement with an
+ * InterruptedIOException. The interrupt status stays set.
+ *
+ * A parser can be reused for several files but is not thread-safe.
+ *
+ * @author julietkilo
+ */
+public class DbcParser {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    /** Files of at least this size are read memory mapped by default */
+    public static final long DEFAULT_MAPPED_INPUT_THRESHOLD = 4L * 1024 * 1024;
+    /** Characters of message definitions that are parsed by one parallel task */
+    private static final int BATCH_LENGTH = 64 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, AttributeDefinition> attribute_definitions = new HashMap<String, AttributeDefinition>();
+    private final DbcTokenizer tokens = new DbcTokenizer();
+    private DbcHandler handler;
+    private PrintWriter logWriter;
+    private DbcMessageParser messageParser;
+    private boolean omitUnconsumedSignals = false;
+    private boolean messageDefinitions = true;
+    private boolean otherStatements = true;
+    private long mappedInputThreshold = DEFAULT_MAPPED_INPUT_THRESHOLD;
+    private ForkJoinPool pool = null;
+    private List<String> pendingBlocks = new ArrayList<String>();
+    private int pendingLength = 0;
+    private final Deque<ForkJoinTask<List<Message>>> batches = new ArrayDeque<ForkJoinTask<List<Message>>>();
+
+    private final DbcLexer.BlockHandler blockHandler = new DbcLexer.BlockHandler() {
+
+        @Override
+        public void block(DbcKeyword keyword, StringBuilder block) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new Interrupted();
+            }
+            if (keyword == DbcKeyword.MESSAGE ? messageDefinitions : otherStatements) {
+                processLine(keyword, block);
+            }
+        }
+    };
+
+    /**
+     * Leaves the lexer when the parsing thread has been interrupted.
+     */
+    private static final class Interrupted extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Interrupted() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Source of the statements of a DBC file.
+     */
+    private interface Input {
+
+        void read(DbcLexer lexer) throws IOException;
+    }
+
+    /**
+     * Read in given CAN database file (*.dbc) and report its content. Files
+     * ending with ".gz" are decompressed.
+     *
+     * @param file      CAN database filehandle to read.
+     * @param handler   Handler that receives the content of the file
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @throws IOException if the file can not be read.
+     */
+    public void parse(File file, DbcHandler handler, OutputStream logStream) throws IOException {
+        parse(file.toPath(), handler, logStream);
+    }
+
+    /**
+     * Read in given CAN database file (*.dbc) and report its content. Files
+     * ending with ".gz" are decompressed.
+     *
+     * @param path      Path of the CAN database to read.
+     * @param handler   Handler that receives the content of the file
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @throws IOException if the file can not be read.
+     */
+    public void parse(final Path path, DbcHandler handler, OutputStream logStream) throws IOException {
+        PrintWriter log = logWriter(logStream);
+        try {
+            parse(path, handler, log);
+        } finally {
+            log.flush();
+        }
+    }
+
+    /**
+     * Read in a CAN database from a stream of ISO-8859-1 encoded bytes and
+     * report its content. The stream is not closed.
+     *
+     * @param in        Stream to read the CAN database from
+     * @param handler   Handler that receives the content of the database
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @throws IOException if reading the stream fails.
+     */
+    public void parse(InputStream in, DbcHandler handler, OutputStream logStream) throws IOException {
+        PrintWriter log = logWriter(logStream);
+        try {
+            parse(in, handler, log);
+        } finally {
+            log.flush();
+        }
+    }
+
+    /**
+     * Read in a CAN database from a character stream and report its content.
+     * The reader is not closed.
+     *
+     * @param reader    Reader to read the CAN database from
+     * @param handler   Handler that receives the content of the database
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @throws IOException if reading fails.
+     */
+    public void parse(Reader reader, DbcHandler handler, OutputStream logStream) throws IOException {
+        PrintWriter log = logWriter(logStream);
+        try {
+            parse(reader, handler, log);
+        } finally {
+            log.flush();
+        }
+    }
+
+    /**
+     * Read in a CAN database from the ISO-8859-1 encoded bytes between position
+     * and limit of a buffer and report its content. Position and limit of the
+     * buffer are not changed.
+     *
+     * @param buffer    Buffer holding the CAN database
+     * @param handler   Handler that receives the content of the database
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @throws UncheckedIOException if the thread has been interrupted.
+     */
+    public void parse(ByteBuffer buffer, DbcHandler handler, OutputStream logStream) {
+        PrintWriter log = logWriter(logStream);
+        try {
+            parse(buffer, handler, log);
+        } finally {
+            log.flush();
+        }
+    }
+
+    private static PrintWriter logWriter(OutputStream logStream) {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(logStream, StandardCharsets.ISO_8859_1)), true);
+    }
+
+    /**
+     * @param path Path of a file
+     * @return True, if the file is gzip compressed judging by its name.
+     */
+    static boolean isGzip(Path path) {
+        Path name = path.getFileName();
+        return name != null && name.toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    void parse(final Path path, DbcHandler handler, PrintWriter log) throws IOException {
+        if (isGzip(path)) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path), GZIP_BUFFER_SIZE)) {
+                parse(in, handler, log);
+            }
+        } else if (Files.size(path) >= mappedInputThreshold) {
+            /* Large files are lexed directly from the mapped bytes */
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                parse(new Input() {
+
+                    @Override
+                    public void read(DbcLexer lexer) throws IOException {
+                        lexer.read(channel);
+                    }
+                }, handler, log);
+            }
+        } else {
+            try (InputStream in = Files.newInputStream(path)) {
+                parse(in, handler, log);
+            }
+        }
+    }
+
+    void parse(InputStream in, DbcHandler handler, PrintWriter log) throws IOException {
+        parse(new InputStreamReader(in, StandardCharsets.ISO_8859_1), handler, log);
+    }
+
+    void parse(Reader reader, DbcHandler handler, PrintWriter log) throws IOException {
+        final BufferedReader buffered = reader instanceof BufferedReader ? (BufferedReader) reader
+                : new BufferedReader(reader);
+
+        parse(new Input() {
+
+            @Override
+            public void read(DbcLexer lexer) throws IOException {
+                lexer.read(buffered);
+            }
+        }, handler, log);
+    }
+
+    void parse(final ByteBuffer buffer, DbcHandler handler, PrintWriter log) {
+        try {
+            parse(new Input() {
+
+                @Override
+                public void read(DbcLexer lexer) {
+                    lexer.read(buffer);
+                }
+            }, handler, log);
+        } catch (IOException e) {
+            /* only thrown when interrupted, reading from memory does not fail */
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void parse(Input input, DbcHandler handler, PrintWriter log) throws IOException {
+        this.handler = handler;
+        this.logWriter = log;
+        attribute_definitions.clear();
+        messageParser = new DbcMessageParser(omitUnconsumedSignals);
+        pendingBlocks = new ArrayList<String>();
+        pendingLength = 0;
+
+        try {
+            input.read(new DbcLexer(blockHandler));
+            if (pool != null) {
+                submitMessages();
+                joinMessages(0);
+            }
+        } catch (Interrupted e) {
+            throw new InterruptedIOException("Parsing interrupted");
+        } finally {
+            for (ForkJoinTask<List<Message>> batch : batches) {
+                batch.cancel(false);
+            }
+            batches.clear();
+        }
+    }
+
+    /**
+     * Files of at least the given size are read through a memory mapped,
+     * byte-oriented lexer instead of a character stream. Both paths report
+     * the same content.
+     * This method has to be called before parse()
+     * @param bytes Minimal file size in bytes, 0 to map all files and
+     *              Long.MAX_VALUE to never map a file.
+     */
+    public void mappedInputThreshold(long bytes) {
+        mappedInputThreshold = bytes;
+    }
+
+    /**
+     * Parse message definitions (BO_ blocks with their SG_ lines) concurrently
+     * on the common ForkJoinPool. The messages are reported in the order of the
+     * file.
+     * This method has to be called before parse()
+     * @param p True, if message definitions should be parsed in parallel
+     */
+    public void parallelParsing(boolean p) {
+        pool = p ? ForkJoinPool.commonPool() : null;
+    }
+
+    /**
+     * Omit signals without defined consumers in the reported messages.
+     * This method has to be called before parse()
+     * @param o True, if unused signals should be omitted
+     */
+    public void omitUnconsumedSignals(boolean o) {
+        omitUnconsumedSignals = o;
+    }
+
+    /**
+     * Selects the statements that are parsed and reported, all others are
+     * skipped without a log entry. Used for conversions in two passes that
+     * read side data and message definitions separately.
+     * This method has to be called before parse()
+     * @param messages True, if message definitions (BO_ blocks) are parsed
+     * @param others   True, if all other statements are parsed
+     */
+    void statements(boolean messages, boolean others) {
+        messageDefinitions = messages;
+        otherStatements = others;
+    }
+
+    private void addAttributeDefinition(AttributeDefinition definition) {
+        attribute_definitions.put(definition.getName(), definition);
+        handler.onAttributeDefinition(definition);
+    }
+
+    /**
+     * Returns true, if the keyword at the beginning of a line is followed by a
+     * decimal number, e.g. the CAN identifier in "BO_ 1984 ...".
+     *
+     * @param line    Line starting with the keyword
+     * @param keyword Keyword the line starts with
+     * @return true, if the first field after the keyword is a number.
+     */
+    private static boolean isFollowedByNumber(CharSequence line, DbcKeyword keyword) {
+        int i = skipWhitespace(line, keyword.length());
+        return i < line.length() && Character.isDigit(line.charAt(i));
+    }
+
+    /**
+     * Returns true, if the keyword at the beginning of a line is followed by the
+     * given word, e.g. "SG_" in "CM_ SG_ 1984 ...".
+     *
+     * @param line    Line starting with the keyword
+     * @param keyword Keyword the line starts with
+     * @param word    Word to check for
+     * @return true, if the first field after the keyword equals the word.
+     */
+    private static boolean isFollowedBy(CharSequence line, DbcKeyword keyword, String word) {
+        int i = skipWhitespace(line, keyword.length());
+        int end = i + word.length();
+        if (end > line.length()) {
+            return false;
+        }
+        for (int j = 0; j < word.length(); j++) {
+            if (line.charAt(i + j) != word.charAt(j)) {
+                return false;
+            }
+        }
+        return end == line.length() || Character.isWhitespace(line.charAt(end));
+    }
+
+    private static int skipWhitespace(CharSequence line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Several lines of a DBC-File, which begins with a keyword will be sorted here
+     * for further processing.
+     *
+     * @param keyword Keyword the block starts with, null if the block does not
+     *                start with a known keyword.
+     * @param line Related parts of a dbc-file will be passed over to the suitable
+     *             handling method.
+     */
+    private void processLine(DbcKeyword keyword, StringBuilder line) {
+
+        if (keyword == null) {
+            logWriter.write("Line does not match:'" + line + "'\n");
+            return;
+        }
+
+        switch (keyword) {
+        case MESSAGE:
+            if (isFollowedByNumber(line, keyword)) {
+                parseMessageDefinition(line);
+            } else {
+                logWriter.write("Line does not match:'" + line + "'\n");
+            }
+            break;
+        case VALUE_DESCRIPTION:
+            if (isFollowedByNumber(line, keyword)) {
+                try {
+                    parseValueDescription(line);
+                } catch (Exception e) {
+                    logWriter.println(line + " FAIL: " + e.getMessage());
+                }
+            } else {
+                parseEnvironmentVariableDescription(line);
+            }
+            break;
+        case ATTRIBUTE_DEFINITION:
+        case ATTRIBUTE_DEFAULT:
+            try {
+                parseAttributeDefinition(line);
+            } catch (Exception e) {
+                logWriter.println(line + " FAIL: " + e.getMessage());
+            }
+            break;
+        case ATTRIBUTE:
+            try {
+                parseAttribute(line);
+            } catch (Exception e) {
+                logWriter.println(line + " failed with: " + e.getMessage());
+            }
+            break;
+        case COMMENT:
+            if (isFollowedBy(line, keyword, "SG_")) {
+                parseSignalComment(line);
+            } else if (isFollowedBy(line, keyword, "BO_")) {
+                parseMessageComment(line);
+            } else {
+                parseComment(line);
+            }
+            break;
+        case MESSAGE_TRANSMITTERS:
+            parseMessageTransmitter(line);
+            break;
+        case NODES:
+            parseNetworkNode(line);
+            break;
+        case NEW_SYMBOLS:
+            parseNewSymbols(line);
+            break;
+        case BIT_TIMING:
+            parseBitTimingSection(line);
+            break;
+        case VERSION:
+            parseVersion(line);
+            break;
+        case ENVIRONMENT_VARIABLE:
+            parseEnvironmentVariable(line);
+            break;
+        case ENVIRONMENT_VARIABLE_DATA:
+        case ENVIRONMENT_VARIABLE_DATA_OLD:
+            parseEnvironmentVariableData(line);
+            break;
+        case VALUE_TABLE:
+            parseValueTable(line);
+            break;
+        case SIGNAL_VALUE_TYPE:
+            parseSignalValueType(line);
+            break;
+        case SIGNAL_MULTIPLEX_VALUE:
+            parseSignalMultiplexValue(line);
+            break;
+        case SIGNAL_GROUP:
+            parseSignalGroup(line);
+            break;
+        case SIGNAL_TYPE:
+        case SIGNAL_TYPE_VALUE:
+        case SIGNAL_TYPE_REFERENCE:
+        case SIGNAL_TYPE_VALUE_TYPE:
+        case ATTRIBUTE_DEFINITION_SIGNAL_TYPE:
+        case ATTRIBUTE_SIGNAL_TYPE:
+            parseSignalType(line);
+            break;
+        case RELATION_ATTRIBUTE_DEFINITION:
+        case RELATION_ATTRIBUTE_DEFAULT:
+        case RELATION_ATTRIBUTE:
+        case NODE_SIGNAL_RELATION:
+        case NODE_ENVIRONMENT_VARIABLE_RELATION:
+        case NODE_MESSAGE_RELATION:
+            parseRelation(line);
+            break;
+        case CATEGORY_DEFINITION:
+        case CATEGORY:
+        case FILTER:
+            parseCategory(line);
+            break;
+        }
+
+    }
+
+    private void parseVersion(StringBuilder line) {
+        tokens.split(line);
+        handler.onVersion(tokens.unQuoted(1));
+    }
+
+    private static void parseBitTimingSection(StringBuilder line) {
+        // ignore
+    }
+
+    private static void parseNewSymbols(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for network node starting by a line that begins with BU_.
+     *
+     * @param line line from dbc-file to handle.
+     */
+    private void parseNetworkNode(StringBuilder line) {
+        line.replace(0, 5, "");
+        line.trimToSize();
+        String[] lineArray = WHITESPACE.split(line);
+
+        for (String nodeString : lineArray) {
+            if (!nodeString.isEmpty()) {
+                handler.onNode(nodeString);
+            }
+        }
+    }
+
+    /**
+     * Handling method for message transmitter starting by a line that begins with
+     * BO_TX_BU_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseMessageTransmitter(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for message transmitter starting by a line that begins with
+     * CM_.
+     *
+     * @param line line from dbc-file to handle.
+     */
+    private static void parseComment(StringBuilder line) {
+        // ignore
+    }
+
+    private void parseAttributeDefinition(StringBuilder line) {
+        int fields = tokens.split(line);
+        if (tokens.equals(0, "BA_DEF_")) {
+            if (fields < 3) {
+                // ignore unparsable lines
+                return;
+            }
+
+            AttributeDefinition.AttrTarget trgt = AttributeDefinition.getAttrTargetFromString(tokens.toString(1));
+
+            int attr_def_start = 2;
+            if (trgt == AttributeDefinition.AttrTarget.NETWORK) {
+                // since the target string is missing all the attribute values are one earlier
+                // in the following string array.
+                attr_def_start = 1;
+            }
+
+            if (trgt == null) {
+                // unrecognized attribute target.
+                return;
+            }
+            // attribute definition for messages
+            String name = tokens.unQuoted(attr_def_start);
+
+            AttributeDefinition.AttrType type = AttributeDefinition.getAttrTypeFromString(tokens.toString(attr_def_start + 1));
+
+            switch (type) {
+            case ENUM:
+                List<String> evalues = new ArrayList<String>();
+                for (int i = attr_def_start + 2; i < fields; ++i) {
+                    evalues.add(tokens.unQuoted(i));
+                }
+                addAttributeDefinition(new AttributeDefinitionEnum(name, trgt, evalues));
+                break;
+            case INT:
+                if (fields < 5) {
+                    return;
+                }
+                addAttributeDefinition(
+                        new AttributeDefinitionInt(name, trgt, tokens.parseLong(attr_def_start + 2),
+                                tokens.parseLong(attr_def_start + 3)));
+                break;
+            case FLOAT:
+                if (fields < 5) {
+                    return;
+                }
+                addAttributeDefinition(
+                        new AttributeDefinitionFloat(name, trgt, Float.parseFloat(tokens.toString(attr_def_start + 2)),
+                                Float.parseFloat(tokens.toString(attr_def_start + 3))));
+                break;
+            case STRING:
+                if (fields < 3) {
+                    return;
+                }
+                addAttributeDefinition(new AttributeDefinitionString(name, trgt));
+                break;
+            case HEX:
+                if (fields < 5) {
+                    return;
+                }
+                addAttributeDefinition(
+                        new AttributeDefinitionHex(name, trgt, tokens.parseLong(attr_def_start + 2),
+                                tokens.parseLong(attr_def_start + 3)));
+                break;
+            }
+
+            // logWriter.println("read attribute def for " + name + " is " +
+            // tokens.toString(attr_def_start + 1));
+        } else if (tokens.equals(0, "BA_DEF_DEF_")) {
+            // attribute default value
+            if (fields < 3) {
+                // ignore unparsable lines
+                return;
+            }
+
+            String name = tokens.unQuoted(1);
+
+            AttributeDefinition def = attribute_definitions.get(name);
+            if (def != null) {
+                // DBCs like to set empty default values as empty strings, even if the attribute type is not a string
+                if (!tokens.isEmptyUnQuoted(2)) {
+                    switch (def.getType()) {
+                    case ENUM:
+                        ((AttributeDefinitionEnum) def).setDefault(tokens.unQuoted(2));
+                        break;
+                    case HEX:
+                        ((AttributeDefinitionHex) def).setDefault(tokens.parseLong(2));
+                        break;
+                    case STRING:
+                        ((AttributeDefinitionString) def).setDefault(tokens.unQuoted(2));
+                        break;
+                    case INT: {
+                        long lval = 0;
+                        // this is a DBC idiosyncrasy. some ints are written as float/double values.
+                        lval = (long) tokens.parseDouble(2);
+                        ((AttributeDefinitionInt) def).setDefault(lval);
+                    }
+                        break;
+                    case FLOAT:
+                        ((AttributeDefinitionFloat) def).setDefault(Float.parseFloat(tokens.unQuoted(2)));
+                        break;
+                    }
+                }
+            } else {
+                logWriter.println("missing attribute definition for default value for: " + name);
+            }
+        }
+    }
+
+    /**
+     * Handling method for attributes starting by a line that begins with BA_.
+     *
+     * @param line line from dbc-file to handle.
+     */
+    private void parseAttribute(StringBuilder line) {
+        tokens.split(line);
+        if (tokens.equals(0, "BA_")) {
+            String name = tokens.unQuoted(1);
+
+            AttributeDefinition def = attribute_definitions.get(name);
+
+            if (def != null) {
+                Attribute newattr = null;
+
+                int attr_val;
+                switch (def.target) {
+                case MESSAGE:
+                case NODE:
+                    attr_val = 4;
+                    break;
+                case SIGNAL:
+                    attr_val = 5;
+                    break;
+                case NETWORK:
+                default:
+                    attr_val = 2;
+                    break;
+                }
+
+                if (tokens.equals(attr_val, "null")) {
+                    logWriter.println("ignoring \"null\" attribute value " + name);
+                    return;
+                }
+
+                switch (def.type) {
+                case STRING:
+                    newattr = new Attribute(def, tokens.unQuoted(attr_val));
+                    break;
+                case INT:
+                case HEX:
+                case ENUM:
+                    newattr = new Attribute(def, tokens.parseLong(attr_val));
+                    break;
+                case FLOAT:
+                    newattr = new Attribute(def, Float.parseFloat(tokens.unQuoted(attr_val)));
+                    break;
+                }
+                switch (def.target) {
+                case SIGNAL:
+                    newattr.setSignal(tokens.toString(4));
+                    // fall through
+                case MESSAGE:
+                    newattr.setMessage(tokens.parseLong(3));
+                    break;
+                case NODE:
+                    newattr.setNode(tokens.toString(3));
+                    break;
+                case NETWORK:
+                    break;
+                }
+                handler.onAttribute(newattr);
+            } else {
+                logWriter.write("missing attribute definition for attribute \"" + name + '\"');
+            }
+        }
+    }
+
+    /**
+     * Handling method for message definition starting by a line that begins with
+     * BO_ {decimal}.
+     *
+     * @param line passed over buffer of the line (starting with BO_ including all
+     *             corresponding signals e.g. BO_ 2684354547 ExtMsgBig2: 8 Bob SG_
+     *             TestSigBigDouble1 : 7|64@0- (2,0) [0|0] "" Vector__XXX
+     */
+    private void parseMessageDefinition(StringBuilder line) {
+        if (pool != null) {
+            /* Parsed concurrently, the messages are reported in file order by joinMessages() */
+            pendingBlocks.add(line.toString());
+            pendingLength += line.length();
+            if (pendingLength >= BATCH_LENGTH) {
+                submitMessages();
+                joinMessages(pool.getParallelism() * 2);
+            }
+        } else {
+            fireMessage(messageParser.parseMessageDefinition(line));
+        }
+    }
+
+    /**
+     * Reports a parsed message and its signals to the handler.
+     *
+     * @param message Message to report
+     */
+    private void fireMessage(Message message) {
+        handler.onMessageStart(message);
+        for (Signal signal : message.getSignal()) {
+            handler.onSignal(message, signal);
+        }
+        for (Multiplex multiplex : message.getMultiplex()) {
+            handler.onMultiplexor(message, multiplex);
+            for (MuxGroup group : multiplex.getMuxGroup()) {
+                for (Signal signal : group.getSignal()) {
+                    handler.onMultiplexedSignal(message, group.getCount(), signal);
+                }
+            }
+        }
+        handler.onMessageEnd(message);
+    }
+
+    /**
+     * Hands the collected message definition blocks over to the pool. Each
+     * batch is parsed by its own parser.
+     */
+    private void submitMessages() {
+        if (pendingBlocks.isEmpty()) {
+            return;
+        }
+        final List<String> blocks = pendingBlocks;
+        final boolean omit = omitUnconsumedSignals;
+
+        batches.add(pool.submit(new Callable<List<Message>>() {
+
+            @Override
+            public List<Message> call() {
+                DbcMessageParser parser = new DbcMessageParser(omit);
+                List<Message> messages = new ArrayList<Message>(blocks.size());
+                for (String block : blocks) {
+                    messages.add(parser.parseMessageDefinition(block));
+                }
+                return messages;
+            }
+        }));
+        pendingBlocks = new ArrayList<String>();
+        pendingLength = 0;
+    }
+
+    /**
+     * Waits for the oldest batches of concurrently parsed messages and reports
+     * their messages in the order of the file.
+     *
+     * @param inFlight Number of batches that may remain in the pool
+     */
+    private void joinMessages(int inFlight) {
+        while (batches.size() > inFlight) {
+            for (Message message : batches.poll().join()) {
+                fireMessage(message);
+            }
+        }
+    }
+
+    /**
+     * Handling method for environment variable starting by a line that begins with
+     * EV_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private void parseEnvironmentVariable(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for environment variable starting by a line that begins with
+     * VAL_ {string}.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private void parseEnvironmentVariableDescription(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for environment variable data starting by a line that
+     * begins with ENVVAR_DATA_ or EV_DATA_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseEnvironmentVariableData(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for value tables starting by a line that begins with
+     * VAL_TABLE_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseValueTable(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for signal value types (float, double) starting by a
+     * line that begins with SIG_VALTYPE_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseSignalValueType(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for extended multiplexing starting by a line that begins
+     * with SG_MUL_VAL_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseSignalMultiplexValue(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for signal groups starting by a line that begins with
+     * SIG_GROUP_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseSignalGroup(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for signal types and their attributes starting by a line
+     * that begins with SGTYPE_, SGTYPE_VAL_, SIG_TYPE_REF_, SIGTYPE_VALTYPE_,
+     * BA_DEF_SGTYPE_ or BA_SGTYPE_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseSignalType(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for relations between nodes, messages, signals and
+     * environment variables starting by a line that begins with BA_DEF_REL_,
+     * BA_DEF_DEF_REL_, BA_REL_, BU_SG_REL_, BU_EV_REL_ or BU_BO_REL_.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseRelation(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Handling method for categories starting by a line that begins with
+     * CAT_DEF_, CAT_ or FILTER.
+     *
+     * @param line line from dbc-file to handle.
+     *
+     */
+    private static void parseCategory(StringBuilder line) {
+        // ignore
+    }
+
+    /**
+     * Parses a field of the current statement as integer value of arbitrary
+     * size.
+     *
+     * @param index Index of the field
+     * @return Parsed value
+     */
+    private BigInteger parseBigInteger(int index) {
+        try {
+            return BigInteger.valueOf(tokens.parseLong(index));
+        } catch (NumberFormatException e) {
+            return new BigInteger(tokens.toString(index));
+        }
+    }
+
+    /**
+     * Handling method for value description starting by a line that begins with
+     * VAL_ {integer}.
+     *
+     * @param line line from dbc-file to handle e.g. "VAL_ 1234 signalname 1 "on" 2
+     *             "off" ;".
+     *
+     */
+    private void parseValueDescription(StringBuilder line) {
+
+        int fields = tokens.split(line);
+
+        LabelDescription description = new LabelDescription();
+        long rawId = tokens.parseLong(1);
+        description.setExtended(DbcReader.isExtendedFrameFormat(rawId));
+        description.setId(DbcReader.getCanId(rawId));
+        description.setSignalName(tokens.toString(2));
+        Set<Label> labelSet = new TreeSet<Label>(new LabelComparator());
+
+        for (int i = 3; i < (fields - 1); i += 2) {
+            Label label = new Label();
+
+            label.setName(tokens.unQuoted(i + 1));
+            label.setValue(DbcReader.int32ToBigInt(parseBigInteger(i)));
+            labelSet.add(label);
+        }
+
+        description.setLabels(labelSet);
+
+        handler.onValueDescription(description);
+    }
+
+    /**
+     * Handling method for signal comments starting by a line that begins with CM_
+     * SG_ {integer}.
+     *
+     * @param line line from dbc-file to handle e.g. "CM_ SG_ 1234 signalname 1
+     *             "comment";".
+     */
+    private void parseSignalComment(StringBuilder line) {
+        tokens.split(line);
+        SignalComment comment = new SignalComment();
+        long rawId = tokens.parseLong(2);
+        comment.setExtended(DbcReader.isExtendedFrameFormat(rawId));
+        comment.setId(DbcReader.getCanId(rawId));
+        comment.setSignalName(tokens.toString(3));
+        comment.setComment(tokens.unQuoted(4));
+
+        handler.onComment(comment);
+    }
+
+    private void parseMessageComment(StringBuilder line) {
+        tokens.split(line);
+        MessageComment comment = new MessageComment();
+
+        long rawId = tokens.parseLong(2);
+        comment.setExtended(DbcReader.isExtendedFrameFormat(rawId));
+        comment.setId(DbcReader.getCanId(rawId));
+        comment.setComment(tokens.unQuoted(3));
+
+        handler.onComment(comment);
+    }
+
+}
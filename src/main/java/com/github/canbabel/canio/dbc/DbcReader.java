@@ -20,16 +20,17 @@ package com.github.canbabel.canio.dbc;
 import com.github.canbabel.canio.dbc.AttributeDefinition.AttrType;
 import com.github.canbabel.canio.kcd.*;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.validation.ValidatorHandler;
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
 /**
  * Reads industry widespread CAN database (*.dbc) format.
@@ -40,26 +41,88 @@ import java.util.zip.GZIPOutputStream;
  */
 public class DbcReader {
 
-    private static final String[] KEYWORDS = { "VERSION ", "NS_ : ", "BS_:", "BU_: ", "BO_ ", "BO_TX_BU_ ", "CM_ ",
-        "CM_ BO_ ", "CM_ EV_ ", "CM_ SG_ ", "BA_DEF_ ", "BA_DEF_ BU_ ", "BA_DEF_REL_ BU_SG_REL_ ", "BA_DEF_ SG_ ",
-        "BA_ ", "EV_ ", "VAL_ ", "BA_DEF_DEF_ ", "BA_DEF_DEF_REL_ ", "VAL_TABLE_ ", "SIG_VALTYPE_ ", "CAT_DEF_" };
-    private static final String NOT_DEFINED = "Vector__XXX";
-    private static final String ORPHANED_SIGNALS = "VECTOR__INDEPENDENT_SIG_MSG";
-    private static final String DOC_CONTENT = "Converted with CANBabel (https://github.com/julietkilo/CANBabel)";
+    static final String ORPHANED_SIGNALS = "VECTOR__INDEPENDENT_SIG_MSG";
+    static final String DOC_CONTENT = "Converted with CANBabel (https://github.com/julietkilo/CANBabel)";
     private static final String UTF8 = "UTF-8";
+    /** Files of at least this size are read memory mapped by default */
+    public static final long DEFAULT_MAPPED_INPUT_THRESHOLD = DbcParser.DEFAULT_MAPPED_INPUT_THRESHOLD;
 
-    private Collection<String> nodes = new ArrayList<String>();
     private ObjectFactory factory = null;
     private NetworkDefinition network = null;
     private Document document = null;
     private Bus bus;
-    private Map<Long, Set<Signal>> muxed = new TreeMap<Long, Set<Signal>>();
-    private final Set<LabelDescription> labels = new HashSet<LabelDescription>();
-    private final Set<SignalComment> signalComments = new HashSet<SignalComment>();
-    private final Set<MessageComment> messageComments = new HashSet<MessageComment>();
+    /* Insertion ordered, so duplicates resolve in file order */
+    private final Set<LabelDescription> labels = new LinkedHashSet<LabelDescription>();
+    private final Set<SignalComment> signalComments = new LinkedHashSet<SignalComment>();
+    private final Set<MessageComment> messageComments = new LinkedHashSet<MessageComment>();
+    private final Map<Long, Message> messageIndex = new HashMap<Long, Message>();
+    private final Map<Long, Map<String, Signal>> signalIndex = new HashMap<Long, Map<String, Signal>>();
     private String version = "";
     private PrintWriter logWriter;
     private boolean omitUnconsumedSignals = false;
+    private boolean streamingKcdWriter = false;
+    private int gzipLevel = Deflater.DEFAULT_COMPRESSION;
+    private int gzipBlockSize = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
+    private ConversionEngine engine = ConversionEngine.getDefault();
+    private boolean validateKcdFile = false;
+    private boolean kcdFileValid = false;
+    private boolean reproducibleOutput = false;
+    private final DbcParser parser = new DbcParser();
+    private DbcMessageParser messageParser = null;
+
+    /**
+     * Builds the network definition from the content reported by the parser.
+     * Labels, comments and attributes are collected and resolved after the
+     * file has been parsed completely.
+     */
+    private final DbcHandler networkBuilder = new DefaultDbcHandler() {
+
+        @Override
+        public void onVersion(String v) {
+            version = v;
+        }
+
+        @Override
+        public void onNode(String name) {
+            Node node = (Node) factory.createNode();
+            node.setId(name);
+            node.setName(name);
+            network.getNode().add(node);
+        }
+
+        @Override
+        public void onMessageEnd(Message message) {
+            /* Skip messages with signals that have not defined a parent message */
+            if (!message.getName().contains(ORPHANED_SIGNALS)) {
+                bus.getMessage().add(message);
+                indexMessage(message);
+            }
+        }
+
+        @Override
+        public void onValueDescription(LabelDescription description) {
+            labels.add(description);
+        }
+
+        @Override
+        public void onComment(Comment comment) {
+            if (comment instanceof SignalComment) {
+                signalComments.add((SignalComment) comment);
+            } else if (comment instanceof MessageComment) {
+                messageComments.add((MessageComment) comment);
+            }
+        }
+
+        @Override
+        public void onAttributeDefinition(AttributeDefinition definition) {
+            attribute_definitions.put(definition.getName(), definition);
+        }
+
+        @Override
+        public void onAttribute(Attribute attribute) {
+            attributes.add(attribute);
+        }
+    };
 
     public DbcReader() {
         this.bus = null;
@@ -76,74 +139,179 @@ public class DbcReader {
     List<Attribute> attributes = new ArrayList<Attribute>();
 
     /**
-     * Find a single CAN message from the list of messages
+     * Builds the key of a CAN message in the message index.
+     *
+     * @param id CAN identifier of the message
+     * @param e  True, if the message is of extended frame format
+     * @return Key combining identifier and frame format
+     */
+    static long messageKey(long id, boolean e) {
+        return e ? id | 0x100000000L : id;
+    }
+
+    /**
+     * Adds a parsed CAN message and its signals to the message and signal
+     * index. If several messages share the same identifier, the first one
+     * wins.
+     *
+     * @param message Message object to add
+     */
+    private void indexMessage(Message message) {
+        long key = messageKey(Long.parseLong(message.getId().substring(2), 16),
+                "extended".equals(message.getFormat()));
+        if (messageIndex.containsKey(key)) {
+            return;
+        }
+        messageIndex.put(key, message);
+
+        Map<String, Signal> signals = new HashMap<String, Signal>();
+        for (Signal signal : message.getSignal()) {
+            signals.putIfAbsent(signal.getName(), signal);
+        }
+        for (Multiplex multiplex : message.getMultiplex()) {
+            for (MuxGroup group : multiplex.getMuxGroup()) {
+                for (Signal signal : group.getSignal()) {
+                    signals.putIfAbsent(signal.getName(), signal);
+                }
+            }
+        }
+        signalIndex.put(key, signals);
+    }
+
+    /**
+     * Find a single CAN message in the message index
      *
-     * @param messages List of message objects
      * @param id       CAN identifier of the message to find
      * @param e        True, if the message to find is of extended frame format
      * @return Message object found, null otherwise
      */
-    private static Message findMessage(List<Message> messages, long id, boolean e) {
-        for (Message message : messages) {
-            boolean extended = "extended".equals(message.getFormat());
-            if (Long.parseLong(message.getId().substring(2), 16) == id && extended == e) {
-                return message;
-            }
-        }
-        return null;
+    private Message findMessage(long id, boolean e) {
+        return messageIndex.get(messageKey(id, e));
     }
 
     /**
-     * Find a single CAN signal from list of CAN messages.
+     * Find a single CAN signal in the signal index.
      *
-     * @param messages List of messages object
      * @param id       Identifier of CAN message to find
      * @param e        True, if CAN message to find is extended frame format
      * @param name     Name of signal to find
      * @return Signal object found, null otherwise
      */
-    private static Signal findSignal(List<Message> messages, long id, boolean e, String name) {
-        Message message;
-        message = findMessage(messages, id, e);
-        List<Signal> signals;
-
-        if (message != null) {
-            signals = message.getSignal();
-        } else if (id == 0) {
-            /* orphaned signal found */
-            return null;
-        } else {
-            /* valid signal found but message not defined */
+    private Signal findSignal(long id, boolean e, String name) {
+        Map<String, Signal> signals = signalIndex.get(messageKey(id, e));
+
+        if (signals == null) {
+            /* orphaned signal or valid signal found but message not defined */
             return null;
         }
+        return signals.get(name);
+    }
 
-        /* Find signal name */
-        for (Signal signal : signals) {
-            if (signal.getName().equals(name)) {
-                return signal;
-            }
+    /**
+     * Read in given CAN database file (*.dbc)
+     *
+     * @param file      CAN database filehandle to read.
+     * @param logStream OutputStream to write out stack traces
+     * @return true, if file has been successfully read.
+     */
+    public boolean parseFile(File file, OutputStream logStream) {
+        startNetwork(file.getName(), logStream);
+
+        if (!(file.canRead() && file.exists())) {
+            throw new RuntimeException("could not open file");
         }
 
-        for (Multiplex multiplex : message.getMultiplex()) {
-            for (MuxGroup group : multiplex.getMuxGroup()) {
-                for (Signal signal : group.getSignal()) {
-                    if (signal.getName().equals(name)) {
-                        return signal;
-                    }
-                }
-            }
+        try {
+            parser.parse(file.toPath(), networkBuilder, logWriter);
+        } catch (IOException e) {
+            e.printStackTrace(logWriter);
+            return false;
         }
-        return null;
+        return finishNetwork();
     }
 
     /**
-     * Read in given CAN database file (*.dbc)
+     * Read in given CAN database file (*.dbc). Files ending with ".gz" are
+     * decompressed while reading.
      *
-     * @param file      CAN database filehandle to read.
+     * @param path      Path of the CAN database to read.
+     * @param name      Name of the resulting document
      * @param logStream OutputStream to write out stack traces
      * @return true, if file has been successfully read.
      */
-    public boolean parseFile(File file, OutputStream logStream) {
+    public boolean parse(Path path, String name, OutputStream logStream) {
+        startNetwork(name, logStream);
+        try {
+            parser.parse(path, networkBuilder, logWriter);
+        } catch (IOException e) {
+            e.printStackTrace(logWriter);
+            return false;
+        }
+        return finishNetwork();
+    }
+
+    /**
+     * Read in a CAN database from a stream of ISO-8859-1 encoded bytes, e.g.
+     * an entry of a zip archive. The stream is not closed.
+     *
+     * @param in        Stream to read the CAN database from
+     * @param name      Name of the resulting document
+     * @param logStream OutputStream to write out stack traces
+     * @return true, if the database has been successfully read.
+     */
+    public boolean parse(InputStream in, String name, OutputStream logStream) {
+        startNetwork(name, logStream);
+        try {
+            parser.parse(in, networkBuilder, logWriter);
+        } catch (IOException e) {
+            e.printStackTrace(logWriter);
+            return false;
+        }
+        return finishNetwork();
+    }
+
+    /**
+     * Read in a CAN database from a character stream. The reader is not
+     * closed.
+     *
+     * @param reader    Reader to read the CAN database from
+     * @param name      Name of the resulting document
+     * @param logStream OutputStream to write out stack traces
+     * @return true, if the database has been successfully read.
+     */
+    public boolean parse(Reader reader, String name, OutputStream logStream) {
+        startNetwork(name, logStream);
+        try {
+            parser.parse(reader, networkBuilder, logWriter);
+        } catch (IOException e) {
+            e.printStackTrace(logWriter);
+            return false;
+        }
+        return finishNetwork();
+    }
+
+    /**
+     * Read in a CAN database from the ISO-8859-1 encoded bytes between
+     * position and limit of a buffer.
+     *
+     * @param buffer    Buffer holding the CAN database
+     * @param name      Name of the resulting document
+     * @param logStream OutputStream to write out stack traces
+     * @return true, if the database has been successfully read.
+     */
+    public boolean parse(ByteBuffer buffer, String name, OutputStream logStream) {
+        startNetwork(name, logStream);
+        parser.parse(buffer, networkBuilder, logWriter);
+        return finishNetwork();
+    }
+
+    /**
+     * Creates an empty network definition the parsed content is added to.
+     *
+     * @param name      Name of the document
+     * @param logStream OutputStream to write out stack traces
+     */
+    private void startNetwork(String name, OutputStream logStream) {
         try {
             logWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(logStream, "ISO-8859-1")), true);
         } catch (UnsupportedEncodingException ex) {
@@ -153,54 +321,27 @@ public class DbcReader {
         network = (NetworkDefinition) (factory.createNetworkDefinition());
         document = (Document) (factory.createDocument());
         document.setContent(DOC_CONTENT);
-        document.setName(file.getName());
-        Date now = Calendar.getInstance().getTime();
-        document.setDate(now.toString());
+        document.setName(name);
+        if (!reproducibleOutput) {
+            Date now = Calendar.getInstance().getTime();
+            document.setDate(now.toString());
+        }
         network.setDocument(document);
 
         bus = (Bus) (factory.createBus());
 
         bus.setName("Private");
+        parser.omitUnconsumedSignals(omitUnconsumedSignals);
+    }
 
-        if (!(file.canRead() && file.exists())) {
-            throw new RuntimeException("could not open file");
-        }
-
-        StringBuilder contents = new StringBuilder();
-        BufferedReader reader = null;
-
-        try {
-            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "ISO-8859-1"));
-            String text;
-            boolean isFirstLine = true;
-
-            while ((text = reader.readLine()) != null) {
-                if (startsWithKeyword(text) && !isFirstLine) {
-                    processLine(contents);
-                    contents.delete(0, contents.length());
-                }
-                contents.append(text);
-                isFirstLine = false;
-            }
-            // since there is no last keyword to trigger the parsing of the last block, we
-            // just parse it.
-            processLine(contents);
-            network.getBus().add(bus);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace(logWriter);
-            return false;
-        } catch (IOException e) {
-            e.printStackTrace(logWriter);
-            return false;
-        } finally {
-            try {
-                if (reader != null) {
-                    reader.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace(logWriter);
-            }
-        }
+    /**
+     * Adds the bus to the network and resolves labels, comments and attributes
+     * once the database has been parsed completely.
+     *
+     * @return true
+     */
+    private boolean finishNetwork() {
+        network.getBus().add(bus);
 
         /*
          * File has been completely parsed. Now the labels can be added to the
@@ -214,7 +355,7 @@ public class DbcReader {
             labellist.addAll(description.getLabels());
 
             Signal signal;
-            signal = findSignal(messages, description.getId(), description.isExtended(), description.getSignalName());
+            signal = findSignal(description.getId(), description.isExtended(), description.getSignalName());
 
             if (signal != null) {
                 signal.setLabelSet(set);
@@ -227,14 +368,14 @@ public class DbcReader {
          */
         for (SignalComment comment : signalComments) {
             /* Find ID */
-            Signal signal = findSignal(messages, comment.getId(), comment.isExtended(), comment.getSignalName());
+            Signal signal = findSignal(comment.getId(), comment.isExtended(), comment.getSignalName());
             if (signal != null) {
                 signal.setNotes(comment.getComment());
             }
         }
 
         for (MessageComment comment : messageComments) {
-            Message m = findMessage(messages, comment.getId(), comment.isExtended());
+            Message m = findMessage(comment.getId(), comment.isExtended());
             if (m != null) {
                 m.setNotes(comment.getComment());
             }
@@ -279,7 +420,7 @@ public class DbcReader {
             switch (attr.getTarget()) {
             case MESSAGE:
                 long mid = attr.getMessage();
-                Message m = findMessage(messages, mid & 0x1FFFFFFF, ((mid & 0x80000000) > 0) ? true : false);
+                Message m = findMessage(mid & 0x1FFFFFFF, ((mid & 0x80000000) > 0) ? true : false);
                 if (m != null) {
                     if (attr.getName().equals("GenMsgCycleTime")) {
                         m.setInterval((int) attr.getInt());
@@ -337,602 +478,72 @@ public class DbcReader {
      * @return True, if operation successful.
      */
     public boolean writeKcdFile(File file, boolean prettyPrint, boolean gzip) {
-        Writer w = null;
-        try {
-            JAXBContext context = JAXBContext
-                    .newInstance(new Class[] { com.github.canbabel.canio.kcd.NetworkDefinition.class });
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_ENCODING, UTF8);
+        KcdValidationHandler validation = null;
+        kcdFileValid = false;
 
-            if (prettyPrint) {
-                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        if (validateKcdFile) {
+            if (engine.schema() != null) {
+                validation = new KcdValidationHandler(logWriter);
+            } else {
+                logWriter.println("Could not validate resulting KCD. Schema not found/usable.");
             }
+        }
 
-            if (gzip) {
-                FileOutputStream fo = new FileOutputStream(file);
-                GZIPOutputStream stream = new GZIPOutputStream(fo);
-                w = new OutputStreamWriter(stream, UTF8);
+        try (FileOutputStream fo = new FileOutputStream(file);
+                Writer w = new OutputStreamWriter(gzip ? gzipStream(fo) : fo, UTF8)) {
+            if (streamingKcdWriter) {
+                ValidatorHandler validator = null;
+                if (validation != null) {
+                    validator = engine.newValidatorHandler();
+                    validator.setErrorHandler(validation);
+                }
+                new KcdStreamWriter(new BufferedWriter(w), prettyPrint, validator).write(network);
             } else {
-                FileOutputStream fo = new FileOutputStream(file);
-                w = new OutputStreamWriter(fo, UTF8);
+                engine.marshaller(prettyPrint, validation).marshal(network, w);
             }
-            marshaller.marshal(network, w);
+            kcdFileValid = validation != null && validation.isValid();
         } catch (JAXBException jxbe) {
             jxbe.printStackTrace(logWriter);
             return false;
+        } catch (XMLStreamException xse) {
+            xse.printStackTrace(logWriter);
+            return false;
         } catch (IOException ioe) {
             ioe.printStackTrace(logWriter);
             return false;
-        } finally {
-            try {
-                if (w != null)
-                    w.close();
-            } catch (IOException e) {
-                e.printStackTrace(logWriter);
-            }
         }
 
         return true;
     }
 
     /**
-     * Returns true, if a line from the input file starts with a keyword from the
-     * list of
-     * <p>
-     * KEYWORDS
-     * </p>
-     * .
-     *
-     * @param line String to check for Keyword
-     * @return true, if line starts with a keyword.
-     */
-    private static boolean startsWithKeyword(String line) {
-        for (String keyword : KEYWORDS) {
-            if (line.startsWith(keyword)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Several lines of a DBC-File, which begins with a keyword will be sorted here
-     * for further processing.
-     *
-     * @param line Related parts of a dbc-file will be passed over to the suitable
-     *             handling method.
-     */
-    private void processLine(StringBuilder line) {
-
-        if (Pattern.matches("BO_.?\\d+.*", line)) {
-            parseMessageDefinition(line);
-        } else if (Pattern.matches("VAL_TABLE_.*", line)) {
-        } else if (Pattern.matches("VAL_.?\\d+.*", line)) {
-            try {
-                parseValueDescription(line);
-            } catch (Exception e) {
-                logWriter.println(line + " FAIL: " + e.getMessage());
-            }
-        } else if (Pattern.matches("BA_DEF_.+\".*", line)) {
-            try {
-                parseAttributeDefinition(line);
-            } catch (Exception e) {
-                logWriter.println(line + " FAIL: " + e.getMessage());
-            }
-        } else if (Pattern.matches("BA_\\s+\".*", line)) {
-            try {
-                parseAttribute(line);
-            } catch (Exception e) {
-                logWriter.println(line + " failed with: " + e.getMessage());
-            }
-        } else if (Pattern.matches("CM_ SG_.*", line)) {
-            parseSignalComment(line);
-        } else if (Pattern.matches("CM_ BO_.*", line)) {
-            parseMessageComment(line);
-        } else if (Pattern.matches("CM.*", line)) {
-            parseComment(line);
-        } else if (Pattern.matches("BO_TX_BU_.*", line)) {
-            parseMessageTransmitter(line);
-        } else if (Pattern.matches("BU_.*", line)) {
-            parseNetworkNode(line);
-        } else if (Pattern.matches("NS_.?:.*", line)) {
-            parseNewSymbols(line);
-        } else if (Pattern.matches("BS_.*", line)) {
-            parseBitTimingSection(line);
-        } else if (Pattern.matches("VERSION.*", line)) {
-            parseVersion(line);
-        } else if (Pattern.matches("EV_.*", line)) {
-            parseEnvironmentVariable(line);
-        } else if (Pattern.matches("VAL_.?\\w+.*", line)) {
-            parseEnvironmentVariableDescription(line);
-        } else {
-            logWriter.write("Line does not match:'" + line + "'\n");
-        }
-
-    }
-
-    private void parseVersion(StringBuilder line) {
-        String[] splitted = splitString(line.toString());
-        version = splitted[1];
-    }
-
-    private static void parseBitTimingSection(StringBuilder line) {
-        // ignore
-    }
-
-    private static void parseNewSymbols(StringBuilder line) {
-        // ignore
-    }
-
-    /**
-     * Handling method for network node starting by a line that begins with BU_.
-     *
-     * @param line line from dbc-file to handle.
-     */
-    private void parseNetworkNode(StringBuilder line) {
-        line.replace(0, 5, "");
-        line.trimToSize();
-        String[] lineArray = line.toString().split("\\s+");
-
-        nodes = Arrays.asList(lineArray);
-
-        for (String nodeString : nodes) {
-            Node node = (Node) factory.createNode();
-            node.setId(nodeString);
-            node.setName(nodeString);
-            network.getNode().add(node);
-        }
-    }
-
-    /**
-     * Handling method for message transmitter starting by a line that begins with
-     * BO_TX_BU_.
-     *
-     * @param line line from dbc-file to handle.
-     *
-     */
-    private static void parseMessageTransmitter(StringBuilder line) {
-        // ignore
-    }
-
-    /**
-     * Handling method for message transmitter starting by a line that begins with
-     * CM_.
-     *
-     * @param line line from dbc-file to handle.
-     */
-    private static void parseComment(StringBuilder line) {
-        // ignore
-    }
-
-    private void parseAttributeDefinition(StringBuilder line) {
-        String[] splitted = splitString(line.toString());
-        if (splitted[0].equals("BA_DEF_")) {
-            if (splitted.length < 3) {
-                // ignore unparsable lines
-                return;
-            }
-
-            AttributeDefinition.AttrTarget trgt = AttributeDefinition.getAttrTargetFromString(splitted[1]);
-
-            int attr_def_start = 2;
-            if (trgt == AttributeDefinition.AttrTarget.NETWORK) {
-                // since the target string is missing all the attribute values are one earlier
-                // in the following string array.
-                attr_def_start = 1;
-            }
-
-            if (trgt == null) {
-                // unrecognized attribute target.
-                return;
-            }
-            // attribute definition for messages
-            String name = unQuote(splitted[attr_def_start]);
-
-            AttributeDefinition.AttrType type = AttributeDefinition.getAttrTypeFromString(splitted[attr_def_start + 1]);
-
-            switch (type) {
-            case ENUM:
-                List<String> evalues = new ArrayList<String>();
-                for (int i = attr_def_start + 2; i < splitted.length; ++i) {
-                    evalues.add(unQuote(splitted[i]));
-                }
-                attribute_definitions.put(name, new AttributeDefinitionEnum(name, trgt, evalues));
-                break;
-            case INT:
-                if (splitted.length < 5) {
-                    return;
-                }
-                attribute_definitions.put(name,
-                        new AttributeDefinitionInt(name, trgt, Long.parseLong
-                             (splitted[attr_def_start + 2]),
-                                Long.parseLong(splitted[attr_def_start + 3])));
-                break;
-            case FLOAT:
-                if (splitted.length < 5) {
-                    return;
-                }
-                attribute_definitions.put(name,
-                        new AttributeDefinitionFloat(name, trgt, Float.parseFloat(splitted[attr_def_start + 2]),
-                                Float.parseFloat(splitted[attr_def_start + 3])));
-                break;
-            case STRING:
-                if (splitted.length < 3) {
-                    return;
-                }
-                attribute_definitions.put(name, new AttributeDefinitionString(name, trgt));
-                break;
-            case HEX:
-                if (splitted.length < 5) {
-                    return;
-                }
-                attribute_definitions.put(name,
-                        new AttributeDefinitionHex(name, trgt, Long.parseLong(splitted[attr_def_start + 2]),
-                                Long.parseLong(splitted[attr_def_start + 3])));
-                break;
-            }
-
-            // logWriter.println("read attribute def for " + name + " is " +
-            // splitted[attr_def_start + 1]);
-        } else if (splitted[0].equals("BA_DEF_DEF_")) {
-            // attribute default value
-            if (splitted.length < 3) {
-                // ignore unparsable lines
-                return;
-            }
-
-            String name = unQuote(splitted[1]);
-
-            AttributeDefinition def = attribute_definitions.get(name);
-            if (def != null) {
-                String attr_val = unQuote(splitted[2]);
-                // DBCs like to set empty default values as empty strings, even if the attribute type is not a string
-                if (!attr_val.isEmpty()) {
-                    switch (def.getType()) {
-                    case ENUM:
-                        ((AttributeDefinitionEnum) def).setDefault(attr_val);
-                        break;
-                    case HEX:
-                        ((AttributeDefinitionHex) def).setDefault(Long.parseLong(attr_val));
-                        break;
-                    case STRING:
-                        ((AttributeDefinitionString) def).setDefault(attr_val);
-                        break;
-                    case INT: {
-                        long lval = 0;
-                        // this is a DBC idiosyncrasy. some ints are written as float/double values.
-                        lval = Double.valueOf(attr_val).longValue();
-                        ((AttributeDefinitionInt) def).setDefault(lval);
-                    }
-                        break;
-                    case FLOAT:
-                        ((AttributeDefinitionFloat) def).setDefault(Float.parseFloat(attr_val));
-                        break;
-                    }
-                }
-            } else {
-                logWriter.println("missing attribute definition for default value for: " + name);
-            }
-        }
-    }
-
-    /**
-     * Handling method for attributes starting by a line that begins with BA_.
-     *
-     * @param line line from dbc-file to handle.
+     * @param out Stream to compress to
+     * @return Stream writing compressed data to out.
+     * @throws IOException if writing the gzip header fails.
      */
-    private void parseAttribute(StringBuilder line) {
-        String[] splitted = splitString(line.toString());
-        if (splitted[0].equals("BA_")) {
-            String name = unQuote(splitted[1]);
-
-            AttributeDefinition def = attribute_definitions.get(name);
-
-            if (def != null) {
-                Attribute newattr = null;
-
-                String attr_val;
-                switch (def.target) {
-                case MESSAGE:
-                case NODE:
-                    attr_val = splitted[4];
-                    break;
-                case SIGNAL:
-                    attr_val = splitted[5];
-                    break;
-                case NETWORK:
-                default:
-                    attr_val = splitted[2];
-                    break;
-                }
-
-                if (attr_val.equals("null")) {
-                    logWriter.println("ignoring \"null\" attribute value " + name);
-                    return;
-                }
-
-                attr_val = unQuote(attr_val);
-
-                switch (def.type) {
-                case STRING:
-                    newattr = new Attribute(def, attr_val);
-                    break;
-                case INT:
-                case HEX:
-                case ENUM:
-                    newattr = new Attribute(def, Long.parseLong(attr_val));
-                    break;
-                case FLOAT:
-                    newattr = new Attribute(def, Float.parseFloat(attr_val));
-                    break;
-                }
-                switch (def.target) {
-                case SIGNAL:
-                    newattr.setSignal(splitted[4]);
-                    // fall through
-                case MESSAGE:
-                    newattr.setMessage(Long.parseLong(splitted[3]));
-                    break;
-                case NODE:
-                    newattr.setNode(splitted[3]);
-                    break;
-                case NETWORK:
-                    break;
-                }
-                attributes.add(newattr);
-            } else {
-                logWriter.write("missing attribute definition for attribute \"" + name + '\"');
-            }
-        }
+    private OutputStream gzipStream(OutputStream out) throws IOException {
+        /* Block-wise compression does not depend on the number of processors */
+        return reproducibleOutput ? new ParallelGzipOutputStream(out, gzipLevel, gzipBlockSize, true)
+                : new ParallelGzipOutputStream(out, gzipLevel, gzipBlockSize);
     }
 
-    /**
-     * Handling method for message definition starting by a line that begins with
-     * BO_ {decimal}.
-     *
-     * @param line passed over buffer of the line (starting with BO_ including all
-     *             corresponding signals e.g. BO_ 2684354547 ExtMsgBig2: 8 Bob SG_
-     *             TestSigBigDouble1 : 7|64@0- (2,0) [0|0] "" Vector__XXX
-     */
-    private void parseMessageDefinition(StringBuilder line) {
-
-        muxed = new TreeMap<Long, Set<Signal>>();
-
-        // BO_ 1984 Messagename: 8 Producername
-
-        // remove BO_
-        line.replace(0, 4, "");
-        line.trimToSize();
-        String[] lineArray = line.toString().split("\\s*SG_\\s+");
-
-        String[] messageArray = lineArray[0].split("\\s+");
-        Message message = (Message) factory.createMessage();
-        int messageIdDecimal = getCanIdFromString(messageArray[0]);
-
-        message.setId("0x" + Integer.toString(messageIdDecimal, 16).toUpperCase());
-        if (isExtendedFrameFormat(messageArray[0])) {
-            message.setFormat("extended");
-        }
-
-        message.setName(messageArray[1].replace(":", ""));
-        message.setLength(messageArray[2]);
-        if (!messageArray[3].contains(NOT_DEFINED)) {
-            Producer producer = (Producer) factory.createProducer();
-            NodeRef ref = (NodeRef) factory.createNodeRef();
-            ref.setId(messageArray[3]);
-            producer.getNodeRef().add(ref);
-            message.setProducer(producer);
-        }
-        for (int i = 1; i < lineArray.length; i++) {
-            parseSignal(message, lineArray[i]);
-        }
-
-        /*
-         * Check if we have to add a multiplex definition to the last message.
-         */
-        if (muxed != null && muxed.size() > 0) {
-            if (message.getMultiplex().size() == 1) {
-                Multiplex mul = message.getMultiplex().get(0);
-                List<MuxGroup> muxgroups = mul.getMuxGroup();
-
-                for (Long i : muxed.keySet()) {
-                    MuxGroup group = new MuxGroup();
-                    group.setCount(i);
-                    group.getSignal().addAll(muxed.get(i));
-                    muxgroups.add(group);
-                }
-            }
-
-        } else {
-            /* Make sure there is no empty multiplex in the message */
-            message.getMultiplex().clear();
-        }
-
-        /* Skip messages with signals that have not defined a parent message */
-        if (!message.getName().contains(ORPHANED_SIGNALS)) {
-            bus.getMessage().add(message);
-        }
-    }
-
-    /**
-     * Handling method for environment variable starting by a line that begins with
-     * EV_.
-     *
-     * @param line line from dbc-file to handle.
-     *
-     */
-    private void parseEnvironmentVariable(StringBuilder line) {
-        // ignore
+    public static int getCanIdFromString(String canIdStr) {
+        return getCanId(Long.valueOf(canIdStr));
     }
 
-    /**
-     * Handling method for environment variable starting by a line that begins with
-     * VAL_ {string}.
-     *
-     * @param line line from dbc-file to handle.
-     *
-     */
-    private void parseEnvironmentVariableDescription(StringBuilder line) {
-        // ignore
+    public static boolean isExtendedFrameFormat(String canIdStr) {
+        return isExtendedFrameFormat(Long.valueOf(canIdStr));
     }
 
-    public static int getCanIdFromString(String canIdStr) {
-
-        long canIdLong = Long.valueOf(canIdStr);
+    static int getCanId(long canIdLong) {
         int canId = (int) canIdLong & 0x1FFFFFFF;
         return canId;
     }
 
-    public static boolean isExtendedFrameFormat(String canIdStr) {
-
-        long canIdLong = Long.valueOf(canIdStr);
+    static boolean isExtendedFrameFormat(long canIdLong) {
         return ((canIdLong >>> 31 & 1) == 1);
     }
 
-    private enum SignalType {
-
-        MULTIPLEXOR, MULTIPLEX, PLAIN
-    };
-
-    /**
-     * Parses a the part of a signal line that is same for plain, multiplexor or
-     * muxed signal.
-     *
-     * @param message    message object where the signal line belongs to and shall
-     *                   append to.
-     * @param signalName name of the signal as parsed before the line string begins
-     * @param type       signal type that is one of multiplexor, multiplex or plain
-     *                   signal.
-     * @param line       signal line String to parse e.g. "39|16@0+ (0.01,0)
-     *                   [0|655.35] "Km/h" ECU3"
-     */
-    private Signal parseSignalLine(Message message, String signalName, SignalType type, String line) {
-        Value value = null;
-
-        Signal tSignal = (Signal) factory.createSignal();
-
-        tSignal.setName(signalName);
-        String[] splitted = splitString(line);
-        String[] sConsumers = Arrays.copyOfRange(splitted, 9, splitted.length);
-
-        if (splitted != null) {
-            int offset = Integer.parseInt(splitted[0]);
-            int length = Integer.parseInt(splitted[1]);
-            boolean isBigEndian = "0".equals(splitted[2]);
-
-            // Omit length == "1" (default)
-            if (length > 1) {
-                tSignal.setLength(length);
-            }
-
-            if (isBigEndian && length > 1) {
-                // big endian signal and signal length greater than 1
-                tSignal.setOffset(bigEndianLeastSignificantBitOffset(offset, length));
-            } else {
-                // little endian OR signal length == 1
-                tSignal.setOffset(offset);
-            }
-
-            if (isBigEndian) {
-                tSignal.setEndianess("big");
-            }
-
-            double slope = Double.valueOf(splitted[4]);
-            double intercept = Double.valueOf(splitted[5]);
-            double min = Double.valueOf(splitted[6]);
-            double max = Double.valueOf(splitted[7]);
-
-            // omit entry with NOT_DEFINED consumers
-            if (sConsumers.length != 1 || !NOT_DEFINED.equals(sConsumers[0])) {
-                Consumer consumer = (Consumer) factory.createConsumer();
-                for (String sConsumer : sConsumers) {
-                    NodeRef ref = (NodeRef) factory.createNodeRef();
-                    consumer.getNodeRef().add(ref);
-                    ref.setId(sConsumer);
-                }
-                tSignal.setConsumer(consumer);
-            }
-
-            if ((intercept != 0.0) || (slope != 1.0) || !"".equals(splitted[8]) || "-".equals(splitted[3])
-                    || (min != 0.0) || (max != 1.0)) {
-
-                value = (Value) factory.createValue();
-
-                if ("-".equals(splitted[3])) {
-                    value.setType("signed");
-                }
-
-                // Omit default slope
-                if (slope != 1.0) {
-                    value.setSlope(slope);
-                }
-
-                // Omit default intercept = 0.0
-                if (intercept != 0.0) {
-                    value.setIntercept(intercept);
-                }
-
-                // Omit empty units
-                {
-                    String unit = unQuote(splitted[8]);
-                    if (!unit.isEmpty()) {
-                        value.setUnit(unit);
-                    }
-                }
-
-                // Omit default min = 0.0
-                if (min != 0.0) {
-                    value.setMin(min);
-                }
-
-                // Omit default max = 1.0
-                if (max != 1.0) {
-                    value.setMax(max);
-                }
-                // End value part
-            }
-            // End line split
-        }
-
-        if (type == SignalType.MULTIPLEXOR) {
-
-            Multiplex mux = (Multiplex) factory.createMultiplex();
-            mux.setName(tSignal.getName());
-            mux.setOffset(tSignal.getOffset());
-            mux.setConsumer(tSignal.getConsumer());
-            if (tSignal.getLength() != 1) {
-                mux.setLength(tSignal.getLength());
-            }
-            if ("big".equals(tSignal.getEndianess())) {
-                mux.setEndianess(tSignal.getEndianess());
-            }
-            mux.setValue(value);
-            message.getMultiplex().add(mux);
-            return null;
-
-        } else {
-            Signal signal = (Signal) factory.createSignal();
-            signal.setName(tSignal.getName());
-            signal.setOffset(tSignal.getOffset());
-            signal.setConsumer(tSignal.getConsumer());
-            if (tSignal.getLength() != 1) {
-                signal.setLength(tSignal.getLength());
-            }
-            if ("big".equals(tSignal.getEndianess())) {
-                signal.setEndianess(tSignal.getEndianess());
-            }
-            signal.setValue(value);
-            if (type == SignalType.PLAIN) {
-                // Prevent from adding MULTIPLEX signals twice
-                if (!omitUnconsumedSignals || sConsumers.length != 1 || !NOT_DEFINED.equals(sConsumers[0])){
-                    // if option set, omit signals with undefined consumers
-                    message.getSignal().add(signal);
-                }
-            }
-            return signal;
-        }
-    }
-
     /**
      * Parses a dbc file signal line without the SG_ header. Parses also signal
      * lines with multiplexed signals (e.g. m2) and multiplexors (M).
@@ -942,86 +553,10 @@ public class DbcReader {
      * @param line    signal line String to parse
      */
     protected void parseSignal(Message message, String line) {
-
-        // Split signalname and mux coding from rest of line, '2' limits split to first ':' occurence
-        String[] lineArray = line.split(":",2);
-        String signalName = lineArray[0].trim();
-        // Check if this is a multiplex
-        if (Pattern.compile("\\w+\\s+\\w+").matcher(lineArray[0]).find()) {
-            /* line is multiplexer or multiplexed signal */
-
-            if (signalName.endsWith("M")) {
-                /* signal type is multiplexor */
-                /* FIN_MUX M : 0|2@1+ (1,0) [0|255] "" Motor */
-                // Remove multiplex coding ' M' from name "Muxname M"
-                parseSignalLine(message, signalName.substring(0, signalName.length() - 2), SignalType.MULTIPLEXOR,
-                        lineArray[1]);
-
-            } else {
-                /* signal type is multiplex */
-                /* Signal: FIN17 m2 : 43|8@1+ (1,0) [0|255] "" YBOX,CO2,Clima */
-
-                /* Parse multiplex count */
-                String countstring = lineArray[0].trim();
-                for (int i = countstring.length() - 1; i > 0; i--) {
-                    if (countstring.charAt(i) == 'm') {
-                        countstring = countstring.substring(i + 1);
-                        break;
-                    }
-                }
-                long muxcount = Long.parseLong(countstring);
-
-                Signal signal = parseSignalLine(message, lineArray[0].split(" ")[0], SignalType.MULTIPLEX,
-                        lineArray[1]);
-
-                /* Do we have a signal list for muxcount? */
-                Set<Signal> signalSet = muxed.get(muxcount);
-                if (signalSet == null) {
-                    signalSet = new HashSet<Signal>();
-                    muxed.put(muxcount, signalSet);
-                }
-
-                signalSet.add(signal);
-            }
-
-        } else {
-            /* signal type is plain */
-            parseSignalLine(message, signalName, SignalType.PLAIN, lineArray[1].trim());
+        if (messageParser == null) {
+            messageParser = new DbcMessageParser(omitUnconsumedSignals);
         }
-
-    }
-
-    /**
-     * Check for character classes. Returns true if the checked character is a
-     * devider.
-     *
-     * @param c Character to check
-     * @return True, if the character is a devider.
-     */
-    private static boolean isDivider(char c) {
-        return c == '[' || c == ']' || c == '(' || c == ')' || c == '|' || c == ',' || c == '@' || c == ' ' || c == ';';
-    }
-
-    /**
-     * Check for character classes. Returns true if the checked character is a
-     * symbol.
-     *
-     * @param c Character to check
-     * @return True, if the character is a symbol.
-     */
-    private static boolean isSymbol(char c) {
-        return c == '+' || c == '-';
-    }
-
-    /**
-     * Check for character classes. Returns true if the checked character is a
-     * quotation.
-     *
-     * @param c Character to check
-     * @return True, if the character is a quotation.
-     */
-    private static boolean isQuote(char c) {
-        return c == '"';
+        messageParser.parseSignal(message, line);
     }
 
     /**
@@ -1056,111 +591,117 @@ public class DbcReader {
      *         order.
      */
     protected static String[] splitString(String s) {
-        List<String> elements = new ArrayList<String>(10);
-        String element = "";
-        boolean inString = false;
-
-        for (int i = 0; i < s.length(); i++) {
-
-            /* Dividers in strings are ignored */
-            if (!inString && isDivider(s.charAt(i))) {
-                if (!"".equals(element)) {
-                    elements.add(element);
-                }
-                element = "";
-                /*
-                 * Inside a string + and - are ignored, outside they are valid elements.
-                 */
-            } else if (!inString && isSymbol(s.charAt(i))) {
-                /* Signed unsigned character */
-                if (s.charAt(i - 2) == '@') {
-                    elements.add(element);
-                    element = "" + s.charAt(i);
-                    /*
-                     * Otherwise symbol is either part of an exponential or a negative number
-                     */
-                } else {
-                    element += s.charAt(i);
-                }
-            } else if (isQuote(s.charAt(i))) {
-                element += s.charAt(i); // keep the quotation marks.
-                if (inString) {
-                    elements.add(element);
-                    element = "";
-                    inString = false;
-                } else {
-                    inString = true;
-                }
-                /* Default: add to element */
-            } else {
-                element += s.charAt(i);
-            }
-        }
+        DbcTokenizer tokenizer = new DbcTokenizer();
+        String[] elements = new String[tokenizer.split(s)];
 
-        if (!"".equals(element)) {
-            elements.add(element);
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = tokenizer.toString(i);
         }
-        return elements.toArray(new String[elements.size()]);
+        return elements;
     }
 
     /**
-     * Handling method for value description starting by a line that begins with
-     * VAL_ {integer}.
-     *
-     * @param line line from dbc-file to handle e.g. "VAL_ 1234 signalname 1 "on" 2
-     *             "off" ;".
-     *
+     * Files of at least the given size are read through a memory mapped,
+     * byte-oriented lexer instead of a character stream. Both paths produce
+     * the same network definition.
+     * This method has to be called before parseFile()
+     * @param bytes Minimal file size in bytes, 0 to map all files and
+     *              Long.MAX_VALUE to never map a file.
      */
-    private void parseValueDescription(StringBuilder line) {
-
-        String[] splitted = splitString(line.toString());
+    public void mappedInputThreshold(long bytes) {
+        parser.mappedInputThreshold(bytes);
+    }
 
-        LabelDescription description = new LabelDescription();
-        description.setExtended(isExtendedFrameFormat(splitted[1]));
-        description.setId(getCanIdFromString(splitted[1]));
-        description.setSignalName(splitted[2]);
-        Set<Label> labelSet = new TreeSet<Label>(new LabelComparator());
+    /**
+     * Parse message definitions (BO_ blocks with their SG_ lines) concurrently
+     * on the common ForkJoinPool. The messages are added to the bus in the order
+     * of the file, so the result equals the one of sequential parsing.
+     * This method has to be called before parseFile()
+     * @param p True, if message definitions should be parsed in parallel
+     */
+    public void parallelParsing(boolean p) {
+        parser.parallelParsing(p);
+    }
 
-        for (int i = 3; i < (splitted.length - 1); i += 2) {
-            Label label = new Label();
+    /**
+     * Write KCD files with the KcdStreamWriter instead of JAXB marshalling.
+     * Both produce the same file, the stream writer is faster and needs less
+     * memory for large networks.
+     * @param s True, if KCD files should be written with the stream writer
+     */
+    public void streamingKcdWriter(boolean s) {
+        streamingKcdWriter = s;
+    }
 
-            label.setName(unQuote(splitted[i + 1]));
-            label.setValue(int32ToBigInt(new BigInteger(splitted[i])));
-            labelSet.add(label);
+    /**
+     * Engine that provides the JAXBContext and Marshaller for writing KCD
+     * files. The default engine is shared by all readers.
+     * This method has to be called before writeKcdFile()
+     * @param e Conversion engine to use
+     */
+    public void conversionEngine(ConversionEngine e) {
+        if (e == null) {
+            throw new IllegalArgumentException("Conversion engine must not be null");
         }
+        engine = e;
+    }
 
-        description.setLabels(labelSet);
-
-        labels.add(description);
+    /**
+     * Validate KCD files against Definition.xsd while they are written, so
+     * they do not have to be read back. Schema violations are written to the
+     * log stream, the result is returned by isKcdFileValid().
+     * This method has to be called before writeKcdFile()
+     * @param v True, if KCD files should be validated while writing
+     */
+    public void validateKcdFile(boolean v) {
+        validateKcdFile = v;
     }
 
     /**
-     * Handling method for signal comments starting by a line that begins with CM_
-     * SG_ {integer}.
-     *
-     * @param line line from dbc-file to handle e.g. "CM_ SG_ 1234 signalname 1
-     *             "comment";".
+     * @return True, if the last file written by writeKcdFile() has been
+     *         validated and conforms to Definition.xsd. False if it violates
+     *         the schema or has not been validated.
      */
-    private void parseSignalComment(StringBuilder line) {
-        String[] splitted = splitString(line.toString());
-        SignalComment comment = new SignalComment();
-        comment.setExtended(isExtendedFrameFormat(splitted[2]));
-        comment.setId(getCanIdFromString(splitted[2]));
-        comment.setSignalName(splitted[3]);
-        comment.setComment(unQuote(splitted[4]));
-
-        signalComments.add(comment);
+    public boolean isKcdFileValid() {
+        return kcdFileValid;
     }
 
-    private void parseMessageComment(StringBuilder line) {
-        String[] splitted = splitString(line.toString());
-        MessageComment comment = new MessageComment();
+    /**
+     * Write the same KCD file for the same input and options on every run and
+     * machine. The document gets no date and gzipped files are always
+     * compressed block by block.
+     * This method has to be called before parseFile()
+     * @param r True, to write reproducible KCD files
+     */
+    public void reproducibleOutput(boolean r) {
+        reproducibleOutput = r;
+    }
 
-        comment.setExtended(isExtendedFrameFormat(splitted[2]));
-        comment.setId(getCanIdFromString(splitted[2]));
-        comment.setComment(unQuote(splitted[3]));
+    /**
+     * Compression level of gzipped KCD files, from 0 to 9. The default is
+     * Deflater.DEFAULT_COMPRESSION.
+     * This method has to be called before writeKcdFile()
+     * @param level Compression level
+     */
+    public void gzipLevel(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        gzipLevel = level;
+    }
 
-        messageComments.add(comment);
+    /**
+     * Number of bytes of gzipped KCD files that are compressed at once.
+     * Blocks are compressed concurrently, see ParallelGzipOutputStream.
+     * This method has to be called before writeKcdFile()
+     * @param bytes Block size, at least ParallelGzipOutputStream.MIN_BLOCK_SIZE
+     */
+    public void gzipBlockSize(int bytes) {
+        if (bytes < ParallelGzipOutputStream.MIN_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size " + bytes + " is smaller than "
+                    + ParallelGzipOutputStream.MIN_BLOCK_SIZE);
+        }
+        gzipBlockSize = bytes;
     }
 
     /**
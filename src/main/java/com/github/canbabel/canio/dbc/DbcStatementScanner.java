@@ -0,0 +1,180 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+/**
+ * Finds out which message a statement block of a CAN database (*.dbc) file
+ * belongs to without parsing the block completely. Only the first fields
+ * of a block are looked at.
+ *
+ * @author julietkilo
+ */
+final class DbcStatementScanner {
+
+    /** Block that does not refer to a message */
+    static final int OTHER = 0;
+    /** Message definition (BO_) */
+    static final int MESSAGE = 1;
+    /** Value description, comment or attribute of a message or signal */
+    static final int RELATED = 2;
+    /** Attribute definition or default (BA_DEF_, BA_DEF_DEF_) */
+    static final int DEFINITION = 3;
+
+    private static final String ORPHANED_SIGNALS = "VECTOR__INDEPENDENT_SIG_MSG";
+
+    private CharSequence block;
+    private int cursor;
+    private long key;
+    private String name;
+
+    /**
+     * Classifies a statement block.
+     *
+     * @param keyword Keyword the block starts with
+     * @param block   Content of the block
+     * @return OTHER, MESSAGE, RELATED or DEFINITION. The pseudo message of
+     *         orphaned signals is classified as OTHER.
+     */
+    int scan(DbcKeyword keyword, CharSequence block) {
+        if (keyword == null) {
+            return OTHER;
+        }
+        this.block = block;
+        cursor = keyword.length();
+        long rawId;
+
+        switch (keyword) {
+        case MESSAGE:
+            rawId = number();
+            if (rawId >= 0) {
+                name = readName();
+                if (!name.contains(ORPHANED_SIGNALS)) {
+                    return found(rawId, MESSAGE);
+                }
+            }
+            return OTHER;
+        case VALUE_DESCRIPTION:
+            return found(number(), RELATED);
+        case COMMENT:
+            if (word("SG_") || word("BO_")) {
+                return found(number(), RELATED);
+            }
+            return OTHER;
+        case ATTRIBUTE:
+            skipQuoted();
+            if (word("SG_") || word("BO_")) {
+                return found(number(), RELATED);
+            }
+            return OTHER;
+        case ATTRIBUTE_DEFINITION:
+        case ATTRIBUTE_DEFAULT:
+            return DEFINITION;
+        default:
+            return OTHER;
+        }
+    }
+
+    /**
+     * @return Key of the message in DbcReader's message index of the last
+     *         block classified as MESSAGE or RELATED.
+     */
+    long key() {
+        return key;
+    }
+
+    /**
+     * @return Name of the message of the last block classified as MESSAGE.
+     */
+    String name() {
+        return name;
+    }
+
+    private int found(long rawId, int kind) {
+        if (rawId < 0) {
+            return OTHER;
+        }
+        key = DbcReader.messageKey(DbcReader.getCanId(rawId), DbcReader.isExtendedFrameFormat(rawId));
+        return kind;
+    }
+
+    private void skipWhitespace() {
+        while (cursor < block.length() && Character.isWhitespace(block.charAt(cursor))) {
+            cursor++;
+        }
+    }
+
+    /**
+     * Reads a decimal number at the cursor.
+     *
+     * @return Number read, -1 if there is none.
+     */
+    private long number() {
+        skipWhitespace();
+        long value = -1;
+        for (; cursor < block.length() && Character.isDigit(block.charAt(cursor)); cursor++) {
+            value = (value < 0 ? 0 : value * 10) + (block.charAt(cursor) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Reads a message name at the cursor, a trailing colon is removed.
+     */
+    private String readName() {
+        skipWhitespace();
+        int start = cursor;
+        while (cursor < block.length() && !Character.isWhitespace(block.charAt(cursor))) {
+            cursor++;
+        }
+        return block.subSequence(start, cursor).toString().replace(":", "");
+    }
+
+    /**
+     * Moves the cursor behind the given word, if the word follows.
+     *
+     * @return True, if the word has been found.
+     */
+    private boolean word(String word) {
+        skipWhitespace();
+        int end = cursor + word.length();
+        if (end > block.length() || (end < block.length() && !Character.isWhitespace(block.charAt(end)))) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (block.charAt(cursor + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        cursor = end;
+        return true;
+    }
+
+    /**
+     * Moves the cursor behind a quoted string, if one follows.
+     */
+    private void skipQuoted() {
+        skipWhitespace();
+        if (cursor < block.length() && block.charAt(cursor) == '"') {
+            cursor++;
+            while (cursor < block.length() && block.charAt(cursor) != '"') {
+                cursor++;
+            }
+            cursor++;
+        }
+    }
+}
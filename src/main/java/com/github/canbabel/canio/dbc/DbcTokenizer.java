@@ -0,0 +1,426 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.util.Arrays;
+
+/**
+ * Splits a statement of a CAN database (*.dbc) file in fields. A typical
+ * signal line looks like
+ *
+ * 56|8@1+ (1,0) [0|255] "km/h" Motor Brake Gearbox
+ *
+ * and is split in the fields
+ *
+ * {"56","8","1","+","1","0","0","255",""km/h"","Motor","Brake","Gearbox"}
+ *
+ * The tokenizer does not create a String per field. It only records the
+ * boundaries of each field in the underlying character sequence, numbers are
+ * parsed directly from these ranges. A tokenizer can be reused for any number
+ * of statements but is not thread-safe.
+ *
+ * @author julietkilo
+ */
+final class DbcTokenizer {
+
+    /** Largest integer that can be represented exactly by a double */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** Powers of ten that can be represented exactly by a double */
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private CharSequence text;
+    private int position;
+    private int elementStart;
+    private boolean inString;
+    private int tokenStart;
+    private int tokenEnd;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+
+    /**
+     * Starts tokenizing a new statement. Fields can be read with next().
+     *
+     * @param text Statement to split in fields
+     */
+    void reset(CharSequence text) {
+        this.text = text;
+        position = 0;
+        elementStart = -1;
+        inString = false;
+        count = 0;
+    }
+
+    /**
+     * Moves the cursor to the next field of the statement.
+     *
+     * @return True, if another field has been found. Its boundaries are
+     *         returned by tokenStart() and tokenEnd().
+     */
+    boolean next() {
+        int length = text.length();
+
+        for (int i = position; i < length; i++) {
+            char c = text.charAt(i);
+
+            /* Dividers in strings are ignored */
+            if (!inString && isDivider(c)) {
+                if (elementStart >= 0) {
+                    return token(elementStart, i, i + 1, -1);
+                }
+                /*
+                 * Inside a string + and - are ignored, outside they are valid elements.
+                 */
+            } else if (!inString && isSymbol(c)) {
+                /* Signed unsigned character */
+                if (i >= 2 && text.charAt(i - 2) == '@') {
+                    return token(elementStart >= 0 ? elementStart : i, i, i + 1, i);
+                    /*
+                     * Otherwise symbol is either part of an exponential or a negative number
+                     */
+                } else if (elementStart < 0) {
+                    elementStart = i;
+                }
+            } else if (c == '"') {
+                /* keep the quotation marks */
+                if (elementStart < 0) {
+                    elementStart = i;
+                }
+                if (inString) {
+                    inString = false;
+                    return token(elementStart, i + 1, i + 1, -1);
+                }
+                inString = true;
+                /* Default: add to element */
+            } else if (elementStart < 0) {
+                elementStart = i;
+            }
+        }
+
+        position = length;
+        if (elementStart >= 0) {
+            return token(elementStart, length, length, -1);
+        }
+        return false;
+    }
+
+    private boolean token(int start, int end, int next, int nextElementStart) {
+        tokenStart = start;
+        tokenEnd = end;
+        position = next;
+        elementStart = nextElementStart;
+        return true;
+    }
+
+    /**
+     * @return Index of the first character of the current field.
+     */
+    int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return Index after the last character of the current field.
+     */
+    int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * Splits a complete statement in fields. The fields can be accessed by
+     * their index afterwards.
+     *
+     * @param text Statement to split in fields
+     * @return Number of fields found
+     */
+    int split(CharSequence text) {
+        reset(text);
+        while (next()) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = tokenStart;
+            ends[count] = tokenEnd;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of fields found by the last call of split().
+     */
+    int count() {
+        return count;
+    }
+
+    private void check(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + count + " in '" + text + "'");
+        }
+    }
+
+    int start(int index) {
+        check(index);
+        return starts[index];
+    }
+
+    int end(int index) {
+        check(index);
+        return ends[index];
+    }
+
+    int length(int index) {
+        return end(index) - start(index);
+    }
+
+    /**
+     * Compares a field with a String without creating a String of the field.
+     *
+     * @param index Index of the field
+     * @param s     String to compare with
+     * @return True, if the field equals the String.
+     */
+    boolean equals(int index, String s) {
+        int start = start(index);
+        int length = ends[index] - start;
+        if (length != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param index Index of the field
+     * @return Field as String including quotation marks.
+     */
+    String toString(int index) {
+        return text.subSequence(start(index), ends[index]).toString();
+    }
+
+    /**
+     * Index after the last character of a field with its quotes removed.
+     */
+    private int unQuotedEnd(int index) {
+        int start = start(index);
+        if (ends[index] > start && text.charAt(start) == '"') {
+            for (int i = ends[index] - 1; i > start; i--) {
+                if (text.charAt(i) == '"') {
+                    return i;
+                }
+            }
+        }
+        return ends[index];
+    }
+
+    /**
+     * Index of the first character of a field with its quotes removed.
+     */
+    private int unQuotedStart(int index) {
+        return unQuotedEnd(index) != ends[index] ? starts[index] + 1 : starts[index];
+    }
+
+    /**
+     * Returns the field with its quotes removed. If the start or end quote is
+     * missing, the field is returned as is.
+     *
+     * @param index Index of the field
+     * @return Field without quotes as String.
+     */
+    String unQuoted(int index) {
+        return text.subSequence(unQuotedStart(index), unQuotedEnd(index)).toString();
+    }
+
+    /**
+     * @param index Index of the field
+     * @return True, if the field is empty after removing its quotes.
+     */
+    boolean isEmptyUnQuoted(int index) {
+        return unQuotedStart(index) == unQuotedEnd(index);
+    }
+
+    /**
+     * Parses a field with its quotes removed as decimal long value. Behaves
+     * like Long.parseLong().
+     *
+     * @param index Index of the field
+     * @return Parsed value
+     * @throws NumberFormatException if the field is not a valid long value.
+     */
+    long parseLong(int index) {
+        int i = unQuotedStart(index);
+        int end = unQuotedEnd(index);
+        int first = i;
+
+        if (i >= end) {
+            throw numberFormatException(first, end);
+        }
+
+        boolean negative = false;
+        char c = text.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+            if (i == end) {
+                throw numberFormatException(first, end);
+            }
+        }
+
+        /* Accumulate negatively to cover Long.MIN_VALUE */
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0 || result < limit / 10) {
+                throw numberFormatException(first, end);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(first, end);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a field with its quotes removed as decimal int value. Behaves like
+     * Integer.parseInt().
+     *
+     * @param index Index of the field
+     * @return Parsed value
+     * @throws NumberFormatException if the field is not a valid int value.
+     */
+    int parseInt(int index) {
+        long value = parseLong(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw numberFormatException(start(index), ends[index]);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a field with its quotes removed as double value. Behaves like
+     * Double.parseDouble(). Decimal numbers with up to 15 significant digits and
+     * a small exponent are converted without creating a String, all others are
+     * passed over to Double.parseDouble().
+     *
+     * @param index Index of the field
+     * @return Parsed value
+     * @throws NumberFormatException if the field is not a valid double value.
+     */
+    double parseDouble(int index) {
+        int first = unQuotedStart(index);
+        int end = unQuotedEnd(index);
+        int i = first;
+
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean exact = true;
+
+        for (; i < end && isDigit(text.charAt(i)); i++, digits++) {
+            mantissa = mantissa * 10 + (text.charAt(i) - '0');
+            exact &= mantissa <= MAX_EXACT_MANTISSA;
+        }
+        if (i < end && text.charAt(i) == '.') {
+            for (i++; i < end && isDigit(text.charAt(i)); i++, digits++) {
+                mantissa = mantissa * 10 + (text.charAt(i) - '0');
+                exact &= mantissa <= MAX_EXACT_MANTISSA;
+                exponent--;
+            }
+        }
+        if (digits > 0 && i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int e = 0;
+            int exponentDigits = 0;
+            for (; i < end && isDigit(text.charAt(i)); i++, exponentDigits++) {
+                e = Math.min(e * 10 + (text.charAt(i) - '0'), 1000);
+            }
+            exact &= exponentDigits > 0;
+            exponent += negativeExponent ? -e : e;
+        }
+
+        if (!exact || digits == 0 || i != end) {
+            return Double.parseDouble(text.subSequence(first, end).toString());
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent == 0) {
+            value = mantissa;
+        } else if (exponent < 0 && exponent >= -22) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else if (exponent > 0 && exponent <= 22) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            return Double.parseDouble(text.subSequence(first, end).toString());
+        }
+        return negative ? -value : value;
+    }
+
+    private NumberFormatException numberFormatException(int start, int end) {
+        return new NumberFormatException("For input string: \"" + text.subSequence(start, end) + "\"");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Check for character classes. Returns true if the checked character is a
+     * devider.
+     *
+     * @param c Character to check
+     * @return True, if the character is a devider.
+     */
+    private static boolean isDivider(char c) {
+        return c == '[' || c == ']' || c == '(' || c == ')' || c == '|' || c == ',' || c == '@' || c == ' ' || c == ';';
+    }
+
+    /**
+     * Check for character classes. Returns true if the checked character is a
+     * symbol.
+     *
+     * @param c Character to check
+     * @return True, if the character is a symbol.
+     */
+    private static boolean isSymbol(char c) {
+        return c == '+' || c == '-';
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+import com.github.canbabel.canio.kcd.Multiplex;
+import com.github.canbabel.canio.kcd.Signal;
+
+/**
+ * DbcHandler that ignores all events. Subclasses override the methods for
+ * the content they are interested in.
+ *
+ * @author julietkilo
+ */
+public class DefaultDbcHandler implements DbcHandler {
+
+    @Override
+    public void onVersion(String version) {
+        // ignore
+    }
+
+    @Override
+    public void onNode(String name) {
+        // ignore
+    }
+
+    @Override
+    public void onMessageStart(Message message) {
+        // ignore
+    }
+
+    @Override
+    public void onSignal(Message message, Signal signal) {
+        // ignore
+    }
+
+    @Override
+    public void onMultiplexor(Message message, Multiplex multiplex) {
+        // ignore
+    }
+
+    @Override
+    public void onMultiplexedSignal(Message message, long count, Signal signal) {
+        // ignore
+    }
+
+    @Override
+    public void onMessageEnd(Message message) {
+        // ignore
+    }
+
+    @Override
+    public void onValueDescription(LabelDescription description) {
+        // ignore
+    }
+
+    @Override
+    public void onComment(Comment comment) {
+        // ignore
+    }
+
+    @Override
+    public void onAttributeDefinition(AttributeDefinition definition) {
+        // ignore
+    }
+
+    @Override
+    public void onAttribute(Attribute attribute) {
+        // ignore
+    }
+}
@@ -0,0 +1,558 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+import com.github.canbabel.canio.kcd.NetworkDefinition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parses a CAN database (*.dbc) file repeatedly while it is edited and only
+ * parses again what has changed since the last call.
+ *
+ * The content of the last call is kept together with its statement blocks and
+ * a checksum of each block. The next content is compared with it byte by byte
+ * from both ends, only the blocks around the changed range are segmented
+ * again. A new block with the checksum of a replaced block is taken over
+ * unchanged. The messages whose BO_ block, value descriptions, comments or
+ * attributes have been added or removed are parsed again together with the
+ * attribute definitions like LazyDbcReader does. The statements that do not
+ * belong to a message are parsed again only if one of them has changed. If
+ * an attribute definition has changed or a large part of the messages is
+ * affected, the content is parsed completely.
+ *
+ * The network is updated in place if only messages have changed. Unchanged
+ * messages are shared between successive results, so they must not be
+ * modified by the caller. Only the statements that are actually parsed write
+ * messages to the log stream.
+ *
+ * @author julietkilo
+ */
+public class IncrementalDbcReader {
+
+    /**
+     * Part of the messages that may be affected by a change before the content
+     * is parsed completely.
+     */
+    private static final int FULL_PARSE_DIVISOR = 4;
+
+    /** Number of bytes compared at once while searching the changed range */
+    private static final int COMPARE_CHUNK = 1 << 12;
+
+    /**
+     * Statement block with the checksum of its bytes.
+     */
+    private static final class Block {
+        private final int kind;
+        private final long key;
+        private final String name;
+        private final long checksum;
+        private int start;
+        private int end;
+        private Message message = null;
+
+        private Block(int kind, long key, String name, long checksum, int start, int end) {
+            this.kind = kind;
+            this.key = key;
+            this.name = name;
+            this.checksum = checksum;
+            this.start = start;
+            this.end = end;
+        }
+
+        private boolean isMessage() {
+            return kind == DbcStatementScanner.MESSAGE;
+        }
+
+        private boolean isRelated() {
+            return kind == DbcStatementScanner.RELATED;
+        }
+    }
+
+    private boolean omitUnconsumedSignals = false;
+    private NetworkDefinition network = null;
+    private int parsedMessages = 0;
+
+    /* Content of the last call and its blocks */
+    private byte[] content = null;
+    private List<Block> blocks = new ArrayList<Block>();
+    private final Map<Long, List<Block>> messageBlocks = new HashMap<Long, List<Block>>();
+    private final Map<Long, List<Block>> relatedBlocks = new HashMap<Long, List<Block>>();
+    private final List<Block> definitions = new ArrayList<Block>();
+    private int messageCount = 0;
+
+    /* Segmentation in progress */
+    private final DbcStatementScanner statements = new DbcStatementScanner();
+    private final CRC32C crc32c = new CRC32C();
+    private final CRC32 crc32 = new CRC32();
+    private ByteBuffer buffer;
+    private DbcLexer lexer;
+    private int offset;
+    private List<Block> segmented;
+
+    private final DbcLexer.BlockHandler collector = new DbcLexer.BlockHandler() {
+
+        @Override
+        public void block(DbcKeyword keyword, StringBuilder block) {
+            collect(keyword, block);
+        }
+    };
+
+    /**
+     * Omit signals without defined consumers. Changing the setting causes the
+     * next content to be parsed completely.
+     * @param o True, if unused signals should be omitted
+     */
+    public void omitUnconsumedSignals(boolean o) {
+        if (o != omitUnconsumedSignals) {
+            content = null;
+        }
+        omitUnconsumedSignals = o;
+    }
+
+    /**
+     * @return Network returned by the last call of parse(), null before the
+     *         first call.
+     */
+    public NetworkDefinition getNetwork() {
+        return network;
+    }
+
+    /**
+     * @return Number of messages the last call of parse() had to parse.
+     */
+    public int getParsedMessageCount() {
+        return parsedMessages;
+    }
+
+    /**
+     * Parses a CAN database file. Files ending with ".gz" are decompressed
+     * into memory.
+     *
+     * @param path      Path of the CAN database
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @return Network of the CAN database
+     * @throws IOException if the file can not be read.
+     */
+    public NetworkDefinition parse(Path path, OutputStream logStream) throws IOException {
+        String name = path.getFileName().toString();
+
+        if (DbcParser.isGzip(path)) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+                return parse(in.readAllBytes(), name, logStream);
+            }
+        }
+        return parse(Files.readAllBytes(path), name, logStream);
+    }
+
+    /**
+     * Parses a CAN database given as ISO-8859-1 encoded bytes between position
+     * and limit of a buffer. The bytes are copied, the buffer may be changed
+     * afterwards.
+     *
+     * @param buffer    Buffer holding the CAN database
+     * @param name      Name of the document
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @return Network of the CAN database
+     */
+    public NetworkDefinition parse(ByteBuffer buffer, String name, OutputStream logStream) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(buffer.position(), bytes);
+        return parse(bytes, name, logStream);
+    }
+
+    private NetworkDefinition parse(byte[] next, String name, OutputStream logStream) {
+        byte[] previous = content;
+        content = next;
+        buffer = ByteBuffer.wrap(next);
+        try {
+            if (previous == null || blocks.isEmpty() || !name.equals(network.getDocument().getName())
+                    || !parseChanges(previous, name, logStream)) {
+                parseCompletely(name, logStream);
+            }
+        } catch (RuntimeException e) {
+            content = null;
+            throw e;
+        } finally {
+            buffer = null;
+            lexer = null;
+            segmented = null;
+        }
+        return network;
+    }
+
+    /**
+     * Segments a range of the content into blocks.
+     */
+    private List<Block> segment(int start, int end) {
+        segmented = new ArrayList<Block>();
+        offset = start;
+        lexer = new DbcLexer(collector);
+        lexer.read(buffer.slice(start, end - start));
+        return segmented;
+    }
+
+    private void collect(DbcKeyword keyword, CharSequence text) {
+        int start = offset + (int) lexer.blockStart();
+        int end = offset + (int) lexer.blockEnd();
+        int kind = statements.scan(keyword, text);
+
+        segmented.add(new Block(kind, kind == DbcStatementScanner.OTHER ? 0 : statements.key(),
+                kind == DbcStatementScanner.MESSAGE ? statements.name() : null, checksum(start, end), start, end));
+    }
+
+    /**
+     * 64 bit checksum of a range of the content, made of its CRC-32C and
+     * CRC-32. Trailing line breaks are left out, so that adding or removing a
+     * block does not change the checksum of the block in front of it.
+     */
+    private long checksum(int start, int end) {
+        while (end > start && (content[end - 1] == '\n' || content[end - 1] == '\r')) {
+            end--;
+        }
+        crc32c.reset();
+        crc32c.update(content, start, end - start);
+        crc32.reset();
+        crc32.update(content, start, end - start);
+        return crc32c.getValue() << 32 | crc32.getValue();
+    }
+
+    /**
+     * Segments and parses the complete content.
+     */
+    private void parseCompletely(String name, OutputStream logStream) {
+        blocks = segment(0, content.length);
+        messageBlocks.clear();
+        relatedBlocks.clear();
+        definitions.clear();
+        messageCount = 0;
+        for (Block block : blocks) {
+            add(block);
+        }
+
+        DbcReader reader = new DbcReader();
+        reader.omitUnconsumedSignals(omitUnconsumedSignals);
+        reader.parse(buffer, name, logStream);
+        network = reader.getNetwork();
+
+        /* Message definitions that could not be parsed have no message */
+        List<Message> parsed = network.getBus().get(0).getMessage();
+        boolean complete = parsed.size() == messageCount;
+        int i = 0;
+        for (Block block : blocks) {
+            if (block.isMessage() && i < parsed.size()
+                    && (complete || parsed.get(i).getName().equals(block.name))) {
+                block.message = parsed.get(i++);
+            }
+        }
+        parsedMessages = parsed.size();
+    }
+
+    /**
+     * Parses the blocks of the changed range of the content.
+     *
+     * @return False, if the content has to be parsed completely.
+     */
+    private boolean parseChanges(byte[] previous, String name, OutputStream logStream) {
+        int prefix = Arrays.mismatch(previous, content);
+        if (prefix < 0) {
+            prefix = previous.length;
+        }
+        int suffix = commonSuffix(previous, content, Math.min(previous.length, content.length) - prefix);
+        int delta = content.length - previous.length;
+
+        /*
+         * A change close to the start of a block might join it with the block
+         * in front of it. A block following the change starts at the same line
+         * as before, if its line and the line break in front of it are
+         * unchanged.
+         */
+        int first = Math.max(blockAt(prefix) - 1, 0);
+        int last = blockAt(previous.length - suffix - 1) + 1;
+        while (last < blocks.size() && blocks.get(last).start - 1 < previous.length - suffix) {
+            last++;
+        }
+        int start = blocks.get(first).start;
+        int end = last < blocks.size() ? blocks.get(last).start + delta : content.length;
+
+        List<Block> removed = blocks.subList(first, last);
+        List<Block> added = segment(start, end);
+
+        /*
+         * Blocks with unchanged checksum keep their message. An attribute that
+         * might have moved across a definition counts as changed.
+         */
+        boolean definitionsInRange = false;
+        for (Block block : removed) {
+            definitionsInRange |= block.kind == DbcStatementScanner.DEFINITION;
+        }
+        Map<Long, ArrayDeque<Block>> unmatched = new HashMap<Long, ArrayDeque<Block>>();
+        for (Block block : removed) {
+            ArrayDeque<Block> candidates = unmatched.get(block.checksum);
+            if (candidates == null) {
+                candidates = new ArrayDeque<Block>(1);
+                unmatched.put(block.checksum, candidates);
+            }
+            candidates.add(block);
+        }
+        List<Block> changed = new ArrayList<Block>();
+        for (Block block : added) {
+            ArrayDeque<Block> candidates = unmatched.get(block.checksum);
+            Block match = candidates == null ? null : candidates.poll();
+            if (match != null) {
+                block.message = match.message;
+                if (definitionsInRange && block.isRelated()) {
+                    changed.add(block);
+                }
+            } else {
+                changed.add(block);
+            }
+        }
+        for (ArrayDeque<Block> candidates : unmatched.values()) {
+            changed.addAll(candidates);
+        }
+
+        Set<Long> affected = new LinkedHashSet<Long>();
+        boolean othersChanged = false;
+        for (Block block : changed) {
+            if (block.kind == DbcStatementScanner.DEFINITION) {
+                return false;
+            } else if (block.isMessage() || block.isRelated()) {
+                affected.add(block.key);
+            } else {
+                othersChanged = true;
+            }
+        }
+        if (affected.size() > messageCount / FULL_PARSE_DIVISOR + 1) {
+            return false;
+        }
+
+        /* Replace the blocks of the changed range */
+        for (Block block : removed) {
+            remove(block);
+        }
+        List<Block> next = new ArrayList<Block>(blocks.size() - removed.size() + added.size());
+        next.addAll(blocks.subList(0, first));
+        next.addAll(added);
+        for (Block block : blocks.subList(last, blocks.size())) {
+            block.start += delta;
+            block.end += delta;
+            next.add(block);
+        }
+        blocks = next;
+        for (Block block : added) {
+            add(block);
+        }
+
+        parsedMessages = 0;
+        for (long key : affected) {
+            List<Block> candidates = messageBlocks.getOrDefault(key, Collections.<Block>emptyList());
+            for (int i = 0; i < candidates.size(); i++) {
+                /* Comments and attributes belong to the first message of an identifier */
+                candidates.get(i).message = parseMessage(candidates.get(i), i == 0, name, logStream);
+                parsedMessages++;
+            }
+        }
+
+        if (othersChanged) {
+            network = parseOthers(name, logStream);
+        } else {
+            network.getDocument().setDate(new Date().toString());
+        }
+        List<Message> messages = network.getBus().get(0).getMessage();
+        messages.clear();
+        for (Block block : blocks) {
+            if (block.message != null) {
+                messages.add(block.message);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Length of the common end of two arrays, at most limit bytes.
+     */
+    private static int commonSuffix(byte[] a, byte[] b, int limit) {
+        int length = 0;
+
+        while (length < limit) {
+            int n = Math.min(COMPARE_CHUNK, limit - length);
+            if (!Arrays.equals(a, a.length - length - n, a.length - length, b, b.length - length - n,
+                    b.length - length)) {
+                while (a[a.length - length - 1] == b[b.length - length - 1]) {
+                    length++;
+                }
+                return length;
+            }
+            length += n;
+        }
+        return length;
+    }
+
+    /**
+     * @return Index of the block of the last content that contains the offset.
+     */
+    private int blockAt(int offset) {
+        int low = 0;
+        int high = blocks.size() - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (blocks.get(middle).start <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds a block to the index of the message it belongs to.
+     */
+    private void add(Block block) {
+        if (block.isMessage()) {
+            insert(messageBlocks, block);
+            messageCount++;
+        } else if (block.isRelated()) {
+            insert(relatedBlocks, block);
+        } else if (block.kind == DbcStatementScanner.DEFINITION) {
+            insert(definitions, block);
+        }
+    }
+
+    private static void insert(Map<Long, List<Block>> index, Block block) {
+        List<Block> list = index.get(block.key);
+        if (list == null) {
+            list = new ArrayList<Block>(2);
+            index.put(block.key, list);
+        }
+        insert(list, block);
+    }
+
+    /**
+     * Inserts a block into a list of blocks ordered by their position.
+     */
+    private static void insert(List<Block> list, Block block) {
+        int i = list.size();
+        while (i > 0 && list.get(i - 1).start > block.start) {
+            i--;
+        }
+        list.add(i, block);
+    }
+
+    /**
+     * Removes a block from the index of the message it belongs to.
+     */
+    private void remove(Block block) {
+        Map<Long, List<Block>> index = block.isMessage() ? messageBlocks : block.isRelated() ? relatedBlocks : null;
+        if (block.kind == DbcStatementScanner.DEFINITION) {
+            definitions.remove(block);
+        } else if (index != null) {
+            List<Block> list = index.get(block.key);
+            list.remove(block);
+            if (list.isEmpty()) {
+                index.remove(block.key);
+            }
+            if (block.isMessage()) {
+                messageCount--;
+            }
+        }
+    }
+
+    /**
+     * Parses a message together with the attribute definitions and the
+     * statements that refer to it. Definitions and statements keep their
+     * order, an attribute is only known after its definition.
+     */
+    private Message parseMessage(Block block, boolean first, String name, OutputStream logStream) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        append(out, Collections.singletonList(block));
+
+        List<Block> related = first ? relatedBlocks.getOrDefault(block.key, Collections.<Block>emptyList())
+                : Collections.<Block>emptyList();
+        List<Block> ordered = new ArrayList<Block>(definitions.size() + related.size());
+        int i = 0;
+        int j = 0;
+        while (i < definitions.size() || j < related.size()) {
+            if (j == related.size() || (i < definitions.size() && definitions.get(i).start < related.get(j).start)) {
+                ordered.add(definitions.get(i++));
+            } else {
+                ordered.add(related.get(j++));
+            }
+        }
+        append(out, ordered);
+
+        List<Message> messages = parse(out, name, logStream).getBus().get(0).getMessage();
+        return messages.isEmpty() ? null : messages.get(0);
+    }
+
+    /**
+     * Parses all statements that do not belong to a message.
+     */
+    private NetworkDefinition parseOthers(String name, OutputStream logStream) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Block> others = new ArrayList<Block>();
+        for (Block block : blocks) {
+            if (!block.isMessage() && !block.isRelated()) {
+                others.add(block);
+            }
+        }
+        append(out, others);
+        return parse(out, name, logStream);
+    }
+
+    private NetworkDefinition parse(ByteArrayOutputStream out, String name, OutputStream logStream) {
+        DbcReader reader = new DbcReader();
+        reader.omitUnconsumedSignals(omitUnconsumedSignals);
+        reader.parse(ByteBuffer.wrap(out.toByteArray()), name, logStream);
+        return reader.getNetwork();
+    }
+
+    /**
+     * Copies statement blocks, each followed by a line break.
+     */
+    private void append(ByteArrayOutputStream out, List<Block> blocks) {
+        for (Block block : blocks) {
+            out.write(content, block.start, block.end - block.start);
+            out.write('\n');
+        }
+    }
+}
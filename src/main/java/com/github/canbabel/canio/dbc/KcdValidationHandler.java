@@ -0,0 +1,81 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.PrintWriter;
+
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Collects the result of validating a KCD file while it is written. Schema
+ * violations are written to the log and the output is completed anyway, like
+ * the SchemaValidator does when reading a written file back.
+ *
+ * @author julietkilo
+ */
+final class KcdValidationHandler implements ErrorHandler, ValidationEventHandler {
+
+    private final PrintWriter logWriter;
+    private boolean valid = true;
+
+    KcdValidationHandler(PrintWriter logWriter) {
+        this.logWriter = logWriter;
+    }
+
+    /**
+     * @return True, if no schema violation has been reported.
+     */
+    boolean isValid() {
+        return valid;
+    }
+
+    @Override
+    public boolean handleEvent(ValidationEvent event) {
+        if (event.getSeverity() != ValidationEvent.WARNING) {
+            valid = false;
+        }
+        if (event.getLinkedException() != null) {
+            event.getLinkedException().printStackTrace(logWriter);
+        } else {
+            logWriter.println(event.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public void warning(SAXParseException exception) throws SAXException {
+        exception.printStackTrace(logWriter);
+    }
+
+    @Override
+    public void error(SAXParseException exception) throws SAXException {
+        valid = false;
+        exception.printStackTrace(logWriter);
+    }
+
+    @Override
+    public void fatalError(SAXParseException exception) throws SAXException {
+        valid = false;
+        exception.printStackTrace(logWriter);
+    }
+}
@@ -4,7 +4,7 @@ import java.util.Set;
 
 import com.github.canbabel.canio.kcd.Label;
 
-class LabelDescription {
+public class LabelDescription {
 
     private long id;
     private String signalName;
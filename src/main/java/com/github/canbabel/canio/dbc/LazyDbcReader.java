@@ -0,0 +1,290 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Gives access to single messages of a CAN database (*.dbc) without parsing
+ * the complete file.
+ *
+ * On construction the file is scanned once to record the byte range of each
+ * message definition (BO_ block) by CAN identifier and name, as well as the
+ * ranges of the value descriptions, comments and attributes that refer to a
+ * message. A message is parsed together with these statements and the
+ * attribute definitions when it is requested for the first time. The result
+ * equals the message DbcReader.parseFile() produces and is cached.
+ *
+ * @author julietkilo
+ */
+public class LazyDbcReader implements Closeable {
+
+    /**
+     * Byte range of a statement block.
+     */
+    private static final class Range {
+        private final long start;
+        private final long end;
+
+        private Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Message definition found by the scan.
+     */
+    private static final class Entry {
+        private final long key;
+        private final String name;
+        private final Range definition;
+        private Message message = null;
+
+        private Entry(long key, String name, Range definition) {
+            this.key = key;
+            this.name = name;
+            this.definition = definition;
+        }
+    }
+
+    private final String documentName;
+    private final OutputStream logStream;
+    private FileChannel channel = null;
+    private ByteBuffer buffer = null;
+    private boolean omitUnconsumedSignals = false;
+
+    private final Map<Long, Entry> messagesByKey = new HashMap<Long, Entry>();
+    private final Map<String, Entry> messagesByName = new LinkedHashMap<String, Entry>();
+    private final Map<Long, List<Range>> related = new HashMap<Long, List<Range>>();
+    private final List<Range> definitions = new ArrayList<Range>();
+
+    private final DbcStatementScanner statements = new DbcStatementScanner();
+    private DbcLexer lexer;
+
+    private final DbcLexer.BlockHandler scanner = new DbcLexer.BlockHandler() {
+
+        @Override
+        public void block(DbcKeyword keyword, StringBuilder block) {
+            scan(keyword, block, new Range(lexer.blockStart(), lexer.blockEnd()));
+        }
+    };
+
+    /**
+     * Scans a CAN database file. Files ending with ".gz" are decompressed into
+     * memory, all others are read from the file when a message is requested.
+     *
+     * @param path      Path of the CAN database
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     * @throws IOException if the file can not be read.
+     */
+    public LazyDbcReader(Path path, OutputStream logStream) throws IOException {
+        this.documentName = path.getFileName().toString();
+        this.logStream = logStream;
+
+        lexer = new DbcLexer(scanner);
+        if (DbcParser.isGzip(path)) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+                buffer = ByteBuffer.wrap(in.readAllBytes());
+            }
+            lexer.read(buffer);
+        } else {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                lexer.read(channel);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        lexer = null;
+    }
+
+    /**
+     * Scans a CAN database given as ISO-8859-1 encoded bytes between position
+     * and limit of a buffer. The content of the buffer must not change while
+     * the reader is in use.
+     *
+     * @param buffer    Buffer holding the CAN database
+     * @param name      Name of the document the messages belong to
+     * @param logStream OutputStream to write out messages about statements that
+     *                  could not be parsed
+     */
+    public LazyDbcReader(ByteBuffer buffer, String name, OutputStream logStream) {
+        this.documentName = name;
+        this.logStream = logStream;
+        this.buffer = buffer.slice();
+
+        lexer = new DbcLexer(scanner);
+        lexer.read(this.buffer);
+        lexer = null;
+    }
+
+    /**
+     * Omit signals without defined consumers in the returned messages.
+     * This method has to be called before the first message is requested.
+     * @param o True, if unused signals should be omitted
+     */
+    public void omitUnconsumedSignals(boolean o) {
+        omitUnconsumedSignals = o;
+    }
+
+    /**
+     * @return Names of all messages of the database in file order.
+     */
+    public synchronized List<String> getMessageNames() {
+        return Collections.unmodifiableList(new ArrayList<String>(messagesByName.keySet()));
+    }
+
+    /**
+     * Returns a single message of the database, which is parsed on the first
+     * request.
+     *
+     * @param id       CAN identifier of the message
+     * @param extended True, if the message is of extended frame format
+     * @return Message found, null otherwise
+     */
+    public synchronized Message getMessage(long id, boolean extended) {
+        return load(messagesByKey.get(DbcReader.messageKey(id, extended)));
+    }
+
+    /**
+     * Returns a single message of the database, which is parsed on the first
+     * request.
+     *
+     * @param name Name of the message
+     * @return Message found, null otherwise
+     */
+    public synchronized Message getMessage(String name) {
+        return load(messagesByName.get(name));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Parses a message together with the attribute definitions and the
+     * statements that refer to it.
+     */
+    private Message load(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        if (entry.message == null) {
+            ByteArrayOutputStream statements = new ByteArrayOutputStream();
+            try {
+                append(statements, entry.definition);
+                /* Comments and attributes belong to the first message of an identifier */
+                List<Range> ranges = related.get(entry.key);
+                if (ranges == null || messagesByKey.get(entry.key) != entry) {
+                    ranges = Collections.emptyList();
+                }
+                /* Keep the file order, an attribute is only known after its definition */
+                int i = 0;
+                int j = 0;
+                while (i < definitions.size() || j < ranges.size()) {
+                    if (j == ranges.size() || (i < definitions.size() && definitions.get(i).start < ranges.get(j).start)) {
+                        append(statements, definitions.get(i++));
+                    } else {
+                        append(statements, ranges.get(j++));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            DbcReader reader = new DbcReader();
+            reader.omitUnconsumedSignals(omitUnconsumedSignals);
+            reader.parse(ByteBuffer.wrap(statements.toByteArray()), documentName, logStream);
+            List<Message> messages = reader.getNetwork().getBus().get(0).getMessage();
+            entry.message = messages.isEmpty() ? null : messages.get(0);
+        }
+        return entry.message;
+    }
+
+    /**
+     * Copies a statement block followed by a line break.
+     */
+    private void append(ByteArrayOutputStream out, Range range) throws IOException {
+        byte[] bytes = new byte[(int) (range.end - range.start)];
+
+        if (channel != null) {
+            ByteBuffer target = ByteBuffer.wrap(bytes);
+            while (target.hasRemaining()) {
+                if (channel.read(target, range.start + target.position()) < 0) {
+                    throw new IOException("Unexpected end of file at offset " + range.start);
+                }
+            }
+        } else {
+            buffer.get((int) range.start, bytes);
+        }
+        out.write(bytes);
+        out.write('\n');
+    }
+
+    /**
+     * Records the range of a statement block that belongs to a message or is
+     * needed to parse one.
+     */
+    private void scan(DbcKeyword keyword, CharSequence block, Range range) {
+        switch (statements.scan(keyword, block)) {
+        case DbcStatementScanner.MESSAGE:
+            Entry entry = new Entry(statements.key(), statements.name(), range);
+            messagesByKey.putIfAbsent(entry.key, entry);
+            messagesByName.putIfAbsent(entry.name, entry);
+            break;
+        case DbcStatementScanner.RELATED:
+            List<Range> ranges = related.get(statements.key());
+            if (ranges == null) {
+                ranges = new ArrayList<Range>(4);
+                related.put(statements.key(), ranges);
+            }
+            ranges.add(range);
+            break;
+        case DbcStatementScanner.DEFINITION:
+            definitions.add(range);
+            break;
+        default:
+            break;
+        }
+    }
+}
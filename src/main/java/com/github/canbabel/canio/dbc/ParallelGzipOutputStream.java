@@ -0,0 +1,316 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a gzip stream whose blocks are compressed concurrently, like pigz.
+ *
+ * The data is split in blocks of a fixed size. Each block is deflated on the
+ * common ForkJoinPool with the last 32 KiB of the previous block as
+ * dictionary and ends with a sync flush, so the compressed blocks simply
+ * concatenate to a single deflate stream. The result is a standard gzip file
+ * that can be read by any gunzip or GZIPInputStream. The checksum is
+ * calculated while the data is written.
+ *
+ * On a single processor there is nothing to gain from splitting the data, so
+ * the blocks are compressed as one deflate stream on the calling thread.
+ *
+ * @author julietkilo
+ */
+public class ParallelGzipOutputStream extends FilterOutputStream {
+
+    /** Default size of the blocks compressed at once, as used by pigz */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    /** Smallest block size accepted */
+    public static final int MIN_BLOCK_SIZE = 1024;
+
+    /* Size of the deflate window and thus of the useful dictionary */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /* Header as written by GZIPOutputStream: deflate, no flags, no time */
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final int level;
+    private final int blockSize;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final Deque<Future<byte[]>> blocks = new ArrayDeque<Future<byte[]>>();
+    /* Deflaters are reused, creating one per block is expensive */
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<Deflater>();
+    /* Single deflate stream written by the caller, used without a second processor */
+    private final Deflater sequential;
+    private byte[] output = null;
+    private final CRC32 crc = new CRC32();
+    private byte[] block;
+    private byte[] previous = null;
+    private int length = 0;
+    private long size = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a stream with default compression level and block size.
+     *
+     * @param out Stream to write the gzip data to
+     * @throws IOException if writing the header fails.
+     */
+    public ParallelGzipOutputStream(OutputStream out) throws IOException {
+        this(out, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param out       Stream to write the gzip data to
+     * @param level     Compression level from 0 to 9 or
+     *                  Deflater.DEFAULT_COMPRESSION
+     * @param blockSize Number of uncompressed bytes deflated at once, at least
+     *                  MIN_BLOCK_SIZE
+     * @throws IOException if writing the header fails.
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int blockSize) throws IOException {
+        this(out, level, blockSize, Runtime.getRuntime().availableProcessors() > 1);
+    }
+
+    /**
+     * @param out       Stream to write the gzip data to
+     * @param level     Compression level
+     * @param blockSize Number of uncompressed bytes deflated at once
+     * @param parallel  True, to compress blocks concurrently, false to
+     *                  compress a single deflate stream on the calling thread
+     * @throws IOException if writing the header fails.
+     */
+    ParallelGzipOutputStream(OutputStream out, int level, int blockSize, boolean parallel) throws IOException {
+        super(out);
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        if (blockSize < MIN_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size " + blockSize + " is smaller than " + MIN_BLOCK_SIZE);
+        }
+        this.level = level;
+        this.blockSize = blockSize;
+        this.block = new byte[blockSize];
+        this.sequential = parallel ? null : new Deflater(level, true);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        crc.update(b, off, len);
+        size += len;
+        while (len > 0) {
+            int n = Math.min(len, blockSize - length);
+            System.arraycopy(b, off, block, length, n);
+            length += n;
+            off += n;
+            len -= n;
+            if (length == blockSize) {
+                submit(false);
+                /* Keep a few blocks per worker in flight, write the oldest ones */
+                drain(pool.getParallelism() * 2);
+            }
+        }
+    }
+
+    /**
+     * Flushes the compressed blocks that are complete. Data of the current
+     * block stays buffered, so the block boundaries do not depend on flushing.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain(0);
+        out.flush();
+    }
+
+    /**
+     * Compresses the remaining data, writes the gzip trailer and closes the
+     * underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            drain(0);
+            writeInt((int) crc.getValue());
+            writeInt((int) size);
+            out.flush();
+        } finally {
+            for (Future<byte[]> pending : blocks) {
+                pending.cancel(false);
+            }
+            blocks.clear();
+            /* A cancelled block that is still running ends its deflater itself */
+            Deflater deflater;
+            while ((deflater = deflaters.poll()) != null) {
+                deflater.end();
+            }
+            if (sequential != null) {
+                sequential.end();
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Hands the current block over to the pool.
+     *
+     * @param last True, if this is the last block of the stream
+     */
+    private void submit(final boolean last) throws IOException {
+        if (sequential != null) {
+            deflateSequential(last);
+            return;
+        }
+        final byte[] input = block;
+        final int inputLength = length;
+        final byte[] dictionary = previous;
+
+        blocks.add(pool.submit(new Callable<byte[]>() {
+
+            @Override
+            public byte[] call() {
+                Deflater deflater = deflaters.poll();
+                if (deflater == null) {
+                    deflater = new Deflater(level, true);
+                }
+                try {
+                    return deflate(deflater, input, inputLength, dictionary, last);
+                } finally {
+                    deflater.reset();
+                    if (closed) {
+                        deflater.end();
+                    } else {
+                        deflaters.add(deflater);
+                    }
+                }
+            }
+        }));
+        previous = input;
+        block = last ? null : new byte[blockSize];
+        length = 0;
+    }
+
+    /**
+     * Waits for the oldest compressed blocks and writes them in order.
+     *
+     * @param inFlight Number of blocks that may remain in the pool
+     */
+    private void drain(int inFlight) throws IOException {
+        while (blocks.size() > inFlight) {
+            try {
+                out.write(blocks.poll().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing");
+            } catch (ExecutionException e) {
+                throw new IOException("Compression failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Deflates a single block to raw deflate data that ends on a byte
+     * boundary, or with the final block of the stream.
+     *
+     * @param deflater   Deflater for raw deflate data in its initial state
+     * @param input      Uncompressed data
+     * @param length     Number of bytes of input to compress
+     * @param dictionary Previous block, null for the first block
+     * @param last       True, to finish the deflate stream
+     * @return Compressed data
+     */
+    static byte[] deflate(Deflater deflater, byte[] input, int length, byte[] dictionary, boolean last) {
+        if (dictionary != null) {
+            int n = Math.min(DICTIONARY_SIZE, dictionary.length);
+            deflater.setDictionary(dictionary, dictionary.length - n, n);
+        }
+        deflater.setInput(input, 0, length);
+        if (last) {
+            deflater.finish();
+        }
+
+        byte[] output = new byte[length / 2 + 64];
+        int count = 0;
+        while (true) {
+            if (count == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            count += deflater.deflate(output, count, output.length - count,
+                    last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+            /* A flush is complete if it did not fill the output buffer */
+            if (last ? deflater.finished() : count < output.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(output, count);
+    }
+
+    /**
+     * Compresses the current block on the calling thread as part of a single
+     * deflate stream. Blocks neither need a dictionary nor a flush then.
+     *
+     * @param last True, to finish the deflate stream
+     */
+    private void deflateSequential(boolean last) throws IOException {
+        if (output == null) {
+            output = new byte[blockSize];
+        }
+        sequential.setInput(block, 0, length);
+        if (last) {
+            sequential.finish();
+        }
+        while (last ? !sequential.finished() : !sequential.needsInput()) {
+            int n = sequential.deflate(output);
+            out.write(output, 0, n);
+        }
+        length = 0;
+    }
+
+    private void writeInt(int i) throws IOException {
+        out.write(i & 0xff);
+        out.write((i >> 8) & 0xff);
+        out.write((i >> 16) & 0xff);
+        out.write((i >> 24) & 0xff);
+    }
+}
@@ -1,6 +1,6 @@
 package com.github.canbabel.canio.dbc;
 
-class SignalComment extends Comment {
+public class SignalComment extends Comment {
 
     private long id;
     private String signalName;
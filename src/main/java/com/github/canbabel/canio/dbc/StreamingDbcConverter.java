@@ -0,0 +1,457 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.dbc.AttributeDefinition.AttrType;
+import com.github.canbabel.canio.kcd.*;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.validation.ValidatorHandler;
+import java.io.*;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Converts a CAN database (*.dbc) file to KCD format without holding the
+ * network definition in memory.
+ *
+ * Labels, comments and attributes follow the message definitions in a DBC
+ * file, so the file is read twice. The first pass skips all BO_ blocks and
+ * collects value descriptions, comments and attributes keyed by message and
+ * signal. The second pass only parses the BO_ blocks, resolves the side data
+ * of each message and writes it with the KcdStreamWriter right away. The
+ * heap needed is bounded by the side data, not by the size of the network.
+ *
+ * The result equals the one of DbcReader.parseFile() followed by
+ * writeKcdFile(). If a database defines the same label set or comment more
+ * than once, the last definition in the file wins.
+ *
+ * @author julietkilo
+ */
+public class StreamingDbcConverter {
+
+    private final DbcParser parser = new DbcParser();
+    private PrintWriter logWriter;
+    private boolean omitUnconsumedSignals = false;
+    private int gzipLevel = Deflater.DEFAULT_COMPRESSION;
+    private int gzipBlockSize = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE;
+    private ConversionEngine engine = ConversionEngine.getDefault();
+    private boolean validateKcdFile = false;
+    private boolean kcdFileValid = false;
+
+    /* Side data collected by the first pass */
+    private final List<String> nodes = new ArrayList<String>();
+    private final Map<Long, Map<String, LabelSet>> labels = new HashMap<Long, Map<String, LabelSet>>();
+    private final Map<Long, Map<String, String>> signalComments = new HashMap<Long, Map<String, String>>();
+    private final Map<Long, String> messageComments = new HashMap<Long, String>();
+    private final Map<Long, List<Attribute>> messageAttributes = new LinkedHashMap<Long, List<Attribute>>();
+    private final Map<String, AttributeDefinition> definitions = new HashMap<String, AttributeDefinition>();
+    private String busName;
+    private boolean fdDefault;
+    private boolean bitrateSwitchDefault;
+    private int messages;
+
+    private final DbcHandler sideDataCollector = new DefaultDbcHandler() {
+
+        @Override
+        public void onNode(String name) {
+            nodes.add(name);
+        }
+
+        @Override
+        public void onValueDescription(LabelDescription description) {
+            LabelSet set = new LabelSet();
+            set.getLabelOrLabelGroup().addAll(description.getLabels());
+            signals(labels, description.getId(), description.isExtended()).put(description.getSignalName(), set);
+        }
+
+        @Override
+        public void onComment(Comment comment) {
+            if (comment instanceof SignalComment) {
+                SignalComment c = (SignalComment) comment;
+                signals(signalComments, c.getId(), c.isExtended()).put(c.getSignalName(), c.getComment());
+            } else if (comment instanceof MessageComment) {
+                MessageComment c = (MessageComment) comment;
+                messageComments.put(DbcReader.messageKey(c.getId(), c.isExtended()), c.getComment());
+            }
+        }
+
+        @Override
+        public void onAttributeDefinition(AttributeDefinition definition) {
+            definitions.put(definition.getName(), definition);
+        }
+
+        @Override
+        public void onAttribute(Attribute attribute) {
+            switch (attribute.getTarget()) {
+            case MESSAGE:
+                long mid = attribute.getMessage();
+                long key = DbcReader.messageKey(mid & 0x1FFFFFFF, (mid & 0x80000000) > 0);
+                List<Attribute> list = messageAttributes.get(key);
+                if (list == null) {
+                    list = new ArrayList<Attribute>(2);
+                    messageAttributes.put(key, list);
+                }
+                list.add(attribute);
+                break;
+            case NETWORK:
+                if (attribute.getName().equals("DBName") && attribute.getType() == AttrType.STRING) {
+                    busName = attribute.getString();
+                }
+                break;
+            default:
+                break;
+            }
+        }
+    };
+
+    /**
+     * Omit signals without defined consumers in the resulting KCD-file.
+     * This method has to be called before convert()
+     * @param o True, if unused signals should be omitted
+     */
+    public void omitUnconsumedSignals(boolean o) {
+        omitUnconsumedSignals = o;
+    }
+
+    /**
+     * Compression level of gzipped KCD files, from 0 to 9. The default is
+     * Deflater.DEFAULT_COMPRESSION.
+     * This method has to be called before convert()
+     * @param level Compression level
+     */
+    public void gzipLevel(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        gzipLevel = level;
+    }
+
+    /**
+     * Number of bytes of gzipped KCD files that are compressed at once.
+     * Blocks are compressed concurrently, see ParallelGzipOutputStream.
+     * This method has to be called before convert()
+     * @param bytes Block size, at least ParallelGzipOutputStream.MIN_BLOCK_SIZE
+     */
+    public void gzipBlockSize(int bytes) {
+        if (bytes < ParallelGzipOutputStream.MIN_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size " + bytes + " is smaller than "
+                    + ParallelGzipOutputStream.MIN_BLOCK_SIZE);
+        }
+        gzipBlockSize = bytes;
+    }
+
+    /**
+     * Engine that provides the schema for validating KCD files. The default
+     * engine is shared by all converters.
+     * This method has to be called before convert()
+     * @param e Conversion engine to use
+     */
+    public void conversionEngine(ConversionEngine e) {
+        if (e == null) {
+            throw new IllegalArgumentException("Conversion engine must not be null");
+        }
+        engine = e;
+    }
+
+    /**
+     * Validate KCD files against Definition.xsd while they are written, see
+     * DbcReader.validateKcdFile().
+     * This method has to be called before convert()
+     * @param v True, if KCD files should be validated while writing
+     */
+    public void validateKcdFile(boolean v) {
+        validateKcdFile = v;
+    }
+
+    /**
+     * @return True, if the last file written by convert() has been validated
+     *         and conforms to Definition.xsd.
+     */
+    public boolean isKcdFileValid() {
+        return kcdFileValid;
+    }
+
+    /**
+     * Files of at least the given size are read memory mapped, see
+     * DbcReader.mappedInputThreshold().
+     * This method has to be called before convert()
+     * @param bytes Minimal file size in bytes
+     */
+    public void mappedInputThreshold(long bytes) {
+        parser.mappedInputThreshold(bytes);
+    }
+
+    /**
+     * @return Number of messages written by the last conversion.
+     */
+    public int getMessageCount() {
+        return messages;
+    }
+
+    /**
+     * Converts a CAN database file to a KCD file. Files ending with ".gz" are
+     * decompressed while reading.
+     *
+     * @param dbc         CAN database to read
+     * @param kcd         KCD file to write
+     * @param prettyPrint True, to format for human reading.
+     * @param gzip        True, to compress output file.
+     * @param logStream   OutputStream to write out stack traces
+     * @return True, if the conversion has been successful.
+     */
+    public boolean convert(File dbc, File kcd, boolean prettyPrint, boolean gzip, OutputStream logStream) {
+        try {
+            logWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(logStream, "ISO-8859-1")), true);
+        } catch (UnsupportedEncodingException ex) {
+            Logger.getLogger(StreamingDbcConverter.class.getName()).log(Level.FINE, null, ex);
+        }
+        if (!(dbc.canRead() && dbc.exists())) {
+            throw new RuntimeException("could not open file");
+        }
+        clear();
+        messages = 0;
+        kcdFileValid = false;
+
+        ValidatorHandler validator = null;
+        KcdValidationHandler validation = null;
+        if (validateKcdFile) {
+            validator = engine.newValidatorHandler();
+            if (validator != null) {
+                validation = new KcdValidationHandler(logWriter);
+                validator.setErrorHandler(validation);
+            } else {
+                logWriter.println("Could not validate resulting KCD. Schema not found/usable.");
+            }
+        }
+
+        try {
+            parser.omitUnconsumedSignals(omitUnconsumedSignals);
+            parser.statements(false, true);
+            parser.parse(dbc.toPath(), sideDataCollector, logWriter);
+            resolveDefaults();
+
+            try (OutputStream file = new FileOutputStream(kcd);
+                    Writer w = new BufferedWriter(new OutputStreamWriter(
+                            gzip ? new ParallelGzipOutputStream(file, gzipLevel, gzipBlockSize) : file, "UTF-8"))) {
+                final KcdStreamWriter writer = new KcdStreamWriter(w, prettyPrint, validator);
+                writer.startNetwork(document(dbc.getName()), networkNodes());
+                writer.startBus(busName, null);
+
+                parser.statements(true, false);
+                parser.parse(dbc.toPath(), new DefaultDbcHandler() {
+
+                    @Override
+                    public void onMessageEnd(Message message) {
+                        /* Skip messages with signals that have not defined a parent message */
+                        if (!message.getName().contains(DbcReader.ORPHANED_SIGNALS)) {
+                            resolve(message);
+                            try {
+                                writer.writeMessage(message);
+                            } catch (XMLStreamException e) {
+                                throw new UncheckedXMLStreamException(e);
+                            }
+                            messages++;
+                        }
+                    }
+                }, logWriter);
+
+                writer.endBus();
+                writer.endNetwork();
+            }
+            logUnresolvedAttributes();
+            kcdFileValid = validation != null && validation.isValid();
+        } catch (UncheckedXMLStreamException e) {
+            e.getCause().printStackTrace(logWriter);
+            return false;
+        } catch (XMLStreamException e) {
+            e.printStackTrace(logWriter);
+            return false;
+        } catch (IOException e) {
+            e.printStackTrace(logWriter);
+            return false;
+        } finally {
+            parser.statements(true, true);
+            clear();
+        }
+        return true;
+    }
+
+    /**
+     * Wraps a failure of the KCD writer while the parser reports messages.
+     */
+    private static final class UncheckedXMLStreamException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UncheckedXMLStreamException(XMLStreamException cause) {
+            super(cause);
+        }
+    }
+
+    private void clear() {
+        nodes.clear();
+        labels.clear();
+        signalComments.clear();
+        messageComments.clear();
+        messageAttributes.clear();
+        definitions.clear();
+        busName = "Private";
+        fdDefault = false;
+        bitrateSwitchDefault = false;
+    }
+
+    private static <T> Map<String, T> signals(Map<Long, Map<String, T>> map, long id, boolean e) {
+        long key = DbcReader.messageKey(id, e);
+        Map<String, T> signals = map.get(key);
+        if (signals == null) {
+            signals = new HashMap<String, T>(4);
+            map.put(key, signals);
+        }
+        return signals;
+    }
+
+    private static Document document(String name) {
+        Document document = new Document();
+        document.setContent(DbcReader.DOC_CONTENT);
+        document.setName(name);
+        document.setDate(Calendar.getInstance().getTime().toString());
+        return document;
+    }
+
+    private List<Node> networkNodes() {
+        List<Node> list = new ArrayList<Node>(nodes.size());
+        for (String name : nodes) {
+            Node node = new Node();
+            node.setId(name);
+            node.setName(name);
+            list.add(node);
+        }
+        return list;
+    }
+
+    /**
+     * Evaluates the defaults of the attributes that differ from the defaults
+     * of the KCD format, like DbcReader does after parsing.
+     */
+    private void resolveDefaults() {
+        AttributeDefinition frameFormat = definitions.get("VFrameFormat");
+        if (frameFormat != null) {
+            if (frameFormat.getType() != AttrType.ENUM) {
+                throw new RuntimeException("VFrameFormat is not of type ENUM");
+            }
+            fdDefault = ((AttributeDefinitionEnum) frameFormat).getDefaultAsString().endsWith("_FD");
+        }
+        AttributeDefinition bitrateSwitch = definitions.get("CANFD_BRS");
+        if (bitrateSwitch != null) {
+            if (bitrateSwitch.getType() != AttrType.ENUM) {
+                throw new RuntimeException("CANFD_BRS is not of type ENUM");
+            }
+            bitrateSwitchDefault = ((AttributeDefinitionEnum) bitrateSwitch).getDefaultAsString().equals("1");
+        }
+    }
+
+    /**
+     * Adds labels, comments and attributes to a message. The side data is
+     * removed once used, so only the first of several messages with the same
+     * identifier receives it, as with DbcReader.
+     *
+     * @param message Message parsed by the second pass
+     */
+    private void resolve(Message message) {
+        long key = DbcReader.messageKey(Long.parseLong(message.getId().substring(2), 16),
+                "extended".equals(message.getFormat()));
+
+        if (fdDefault) {
+            message.setFd(true);
+        }
+        if (bitrateSwitchDefault) {
+            message.setBitrateswitch(true);
+        }
+
+        String notes = messageComments.remove(key);
+        if (notes != null) {
+            message.setNotes(notes);
+        }
+
+        Map<String, LabelSet> labelSets = labels.remove(key);
+        Map<String, String> comments = signalComments.remove(key);
+        if (labelSets != null || comments != null) {
+            Map<String, Signal> signals = new HashMap<String, Signal>();
+            for (Signal signal : message.getSignal()) {
+                signals.putIfAbsent(signal.getName(), signal);
+            }
+            for (Multiplex multiplex : message.getMultiplex()) {
+                for (MuxGroup group : multiplex.getMuxGroup()) {
+                    for (Signal signal : group.getSignal()) {
+                        signals.putIfAbsent(signal.getName(), signal);
+                    }
+                }
+            }
+            if (labelSets != null) {
+                for (Map.Entry<String, LabelSet> entry : labelSets.entrySet()) {
+                    Signal signal = signals.get(entry.getKey());
+                    if (signal != null) {
+                        signal.setLabelSet(entry.getValue());
+                    }
+                }
+            }
+            if (comments != null) {
+                for (Map.Entry<String, String> entry : comments.entrySet()) {
+                    Signal signal = signals.get(entry.getKey());
+                    if (signal != null) {
+                        signal.setNotes(entry.getValue());
+                    }
+                }
+            }
+        }
+
+        List<Attribute> attributes = messageAttributes.remove(key);
+        if (attributes != null) {
+            for (Attribute attr : attributes) {
+                if (attr.getName().equals("GenMsgCycleTime")) {
+                    message.setInterval((int) attr.getInt());
+                } else if (attr.getName().equals("VFrameFormat")) {
+                    if (attr.getEnumAsString().endsWith("_FD")) {
+                        message.setFd(true);
+                    } else {
+                        message.setFd(null);
+                    }
+                } else if (attr.getName().equals("CANFD_BRS")) {
+                    /* Explicitly set BRS appears in the KCD, even if it is the default value. */
+                    message.setBitrateswitch(attr.getEnumAsString().equals("1"));
+                }
+            }
+        }
+
+        if (!message.isFd()) {
+            message.setBitrateswitch(null);
+        }
+    }
+
+    private void logUnresolvedAttributes() {
+        for (List<Attribute> attributes : messageAttributes.values()) {
+            for (Attribute attr : attributes) {
+                logWriter.println("Attribute " + attr.getName()
+                        + " found for not-found message. This looks like a bug in the DBC.");
+            }
+        }
+    }
+}
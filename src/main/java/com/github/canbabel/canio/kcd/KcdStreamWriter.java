@@ -0,0 +1,481 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.kcd;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.ValidatorHandler;
+
+/**
+ * Writes a network definition in KCD format with an XMLStreamWriter.
+ *
+ * The output equals the one of JAXB marshalling: elements and attributes are
+ * written in schema order and attributes that are not set are omitted, so
+ * defaults left out by the DBC parser do not show up in the file. Unlike
+ * JAXB no reflective object graph is walked, every element is written
+ * directly while traversing the model.
+ *
+ * The writer is placed in the package of the model because it has to tell
+ * unset attributes apart from their defaults, which the getters hide.
+ *
+ * Line breaks in attribute values are not written as character references,
+ * so a parser reads them as spaces. Names and values read from a DBC file
+ * never contain line breaks.
+ *
+ * @author julietkilo
+ */
+public final class KcdStreamWriter {
+
+    /** Namespace of the KCD format */
+    public static final String NAMESPACE = "http://kayak.2codeornot2code.org/1.0";
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+    private static final String INDENT = "    ";
+
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    private final Writer out;
+    private final XMLStreamWriter xml;
+    private final boolean prettyPrint;
+    private int depth = 0;
+    private String busName;
+    private Integer busBaudrate;
+    private boolean busStarted = false;
+
+    /**
+     * @param out         UTF-8 encoding writer to write the KCD file to. The
+     *                    writer is flushed but not closed by write().
+     * @param prettyPrint True, to format for human reading.
+     * @throws XMLStreamException if the stream writer can not be created.
+     */
+    public KcdStreamWriter(Writer out, boolean prettyPrint) throws XMLStreamException {
+        this(out, prettyPrint, null);
+    }
+
+    /**
+     * @param out         UTF-8 encoding writer to write the KCD file to. The
+     *                    writer is flushed but not closed by write().
+     * @param prettyPrint True, to format for human reading.
+     * @param validator   Validates the document while it is written, e.g.
+     *                    created from the KCD schema. Validation errors are
+     *                    reported to its ErrorHandler. Null to not validate.
+     * @throws XMLStreamException if the stream writer can not be created.
+     */
+    public KcdStreamWriter(Writer out, boolean prettyPrint, ValidatorHandler validator) throws XMLStreamException {
+        this.out = out;
+        if (validator != null) {
+            this.xml = new ValidatingXMLStreamWriter(FACTORY.createXMLStreamWriter(out), validator);
+        } else {
+            this.xml = FACTORY.createXMLStreamWriter(out);
+        }
+        this.prettyPrint = prettyPrint;
+    }
+
+    /**
+     * Writes a complete KCD document.
+     *
+     * @param network Network definition to write
+     * @throws XMLStreamException if writing fails.
+     * @throws IOException if writing the XML declaration fails.
+     */
+    public void write(NetworkDefinition network) throws XMLStreamException, IOException {
+        startNetwork(network.document, list(network.node));
+        for (Bus bus : list(network.bus)) {
+            startBus(bus.name, bus.baudrate);
+            for (Message message : list(bus.message)) {
+                writeMessage(message);
+            }
+            endBus();
+        }
+        endNetwork();
+    }
+
+    /**
+     * Starts a KCD document piece by piece, e.g. to write messages as soon as
+     * they are parsed. Has to be followed by startBus(), writeMessage(),
+     * endBus() and finally endNetwork().
+     *
+     * @param document Document information, may be null
+     * @param nodes    Nodes of the network
+     * @throws XMLStreamException if writing fails.
+     * @throws IOException if writing the XML declaration fails.
+     */
+    public void startNetwork(Document document, List<Node> nodes) throws XMLStreamException, IOException {
+        /* The stream writer can not declare a standalone document */
+        out.write(DECLARATION);
+        if (prettyPrint) {
+            out.write('\n');
+        }
+
+        xml.writeStartElement("NetworkDefinition");
+        xml.writeDefaultNamespace(NAMESPACE);
+        depth++;
+        if (document != null) {
+            writeDocument(document);
+        }
+        for (Node node : nodes) {
+            writeNode(node);
+        }
+    }
+
+    /**
+     * Starts a bus. The start tag is written with the first message, so a bus
+     * without messages is written as empty element like JAXB does.
+     *
+     * @param name     Name of the bus
+     * @param baudrate Baudrate of the bus, null if not set
+     */
+    public void startBus(String name, Integer baudrate) {
+        busName = name;
+        busBaudrate = baudrate;
+        busStarted = false;
+    }
+
+    /**
+     * Writes a message of the current bus.
+     *
+     * @param message Message to write
+     * @throws XMLStreamException if writing fails.
+     */
+    public void writeMessage(Message message) throws XMLStreamException {
+        if (!busStarted) {
+            writeBusStart(false);
+            busStarted = true;
+        }
+        boolean empty = message.notes == null && message.producer == null && isEmpty(message.multiplex)
+                && isEmpty(message.signal);
+        start("Message", empty);
+        attribute("id", message.id);
+        attribute("name", message.name);
+        attribute("length", message.length);
+        attribute("interval", message.interval);
+        attribute("triggered", message.triggered);
+        attribute("count", message.count);
+        attribute("format", message.format);
+        attribute("fd", message.fd);
+        attribute("bitrateswitch", message.bitrateswitch);
+        attribute("remote", message.remote);
+        if (!empty) {
+            writeNotes(message.notes);
+            if (message.producer != null) {
+                writeNodeRefs("Producer", message.producer.nodeRef);
+            }
+            for (Multiplex multiplex : list(message.multiplex)) {
+                writeMultiplex(multiplex);
+            }
+            for (Signal signal : list(message.signal)) {
+                writeSignal(signal);
+            }
+            end(true);
+        }
+    }
+
+    /**
+     * Ends the current bus.
+     *
+     * @throws XMLStreamException if writing fails.
+     */
+    public void endBus() throws XMLStreamException {
+        if (busStarted) {
+            end(true);
+        } else {
+            writeBusStart(true);
+        }
+        busStarted = false;
+    }
+
+    /**
+     * Ends the document and flushes the underlying writer.
+     *
+     * @throws XMLStreamException if writing fails.
+     */
+    public void endNetwork() throws XMLStreamException {
+        end(true);
+        if (prettyPrint) {
+            xml.writeCharacters("\n");
+        }
+        xml.flush();
+    }
+
+    private void writeDocument(Document document) throws XMLStreamException {
+        boolean empty = document.content == null;
+        start("Document", empty);
+        attribute("name", document.name);
+        attribute("version", document.version);
+        attribute("author", document.author);
+        attribute("company", document.company);
+        attribute("date", document.date);
+        if (!empty) {
+            text(document.content);
+            end(false);
+        }
+    }
+
+    private void writeNode(Node node) throws XMLStreamException {
+        boolean empty = isEmpty(node.var);
+        start("Node", empty);
+        attribute("id", node.id);
+        attribute("name", node.name);
+        if (!empty) {
+            for (Var var : node.var) {
+                writeVar(var);
+            }
+            end(true);
+        }
+    }
+
+    private void writeVar(Var var) throws XMLStreamException {
+        boolean empty = var.notes == null && var.value == null;
+        start("Var", empty);
+        attribute("name", var.name);
+        if (!empty) {
+            writeNotes(var.notes);
+            writeValue(var.value);
+            end(true);
+        }
+    }
+
+    private void writeBusStart(boolean empty) throws XMLStreamException {
+        start("Bus", empty);
+        attribute("name", busName);
+        attribute("baudrate", busBaudrate);
+    }
+
+    private void writeMultiplex(Multiplex multiplex) throws XMLStreamException {
+        boolean empty = isEmpty(multiplex.muxGroup) && multiplex.notes == null && multiplex.consumer == null
+                && multiplex.value == null && multiplex.labelSet == null;
+        start("Multiplex", empty);
+        writeSignalAttributes(multiplex);
+        if (!empty) {
+            for (MuxGroup group : list(multiplex.muxGroup)) {
+                boolean emptyGroup = isEmpty(group.signal);
+                start("MuxGroup", emptyGroup);
+                attribute("count", Long.toString(group.count));
+                if (!emptyGroup) {
+                    for (Signal signal : group.signal) {
+                        writeSignal(signal);
+                    }
+                    end(true);
+                }
+            }
+            writeNotes(multiplex.notes);
+            writeConsumer(multiplex.consumer);
+            writeValue(multiplex.value);
+            writeLabelSet(multiplex.labelSet);
+            end(true);
+        }
+    }
+
+    private void writeSignal(Signal signal) throws XMLStreamException {
+        boolean empty = signal.notes == null && signal.consumer == null && signal.value == null
+                && signal.labelSet == null;
+        start("Signal", empty);
+        writeSignalAttributes(signal);
+        if (!empty) {
+            writeNotes(signal.notes);
+            writeConsumer(signal.consumer);
+            writeValue(signal.value);
+            writeLabelSet(signal.labelSet);
+            end(true);
+        }
+    }
+
+    private void writeSignalAttributes(BasicSignalType signal) throws XMLStreamException {
+        attribute("endianess", signal.endianess);
+        attribute("length", signal.length);
+        attribute("name", signal.name);
+        attribute("offset", Integer.toString(signal.offset));
+    }
+
+    private void writeConsumer(Consumer consumer) throws XMLStreamException {
+        if (consumer != null) {
+            writeNodeRefs("Consumer", consumer.nodeRef);
+        }
+    }
+
+    private void writeNodeRefs(String name, List<NodeRef> refs) throws XMLStreamException {
+        boolean empty = isEmpty(refs);
+        start(name, empty);
+        if (!empty) {
+            for (NodeRef ref : refs) {
+                start("NodeRef", true);
+                attribute("id", ref.id);
+            }
+            end(true);
+        }
+    }
+
+    private void writeValue(Value value) throws XMLStreamException {
+        if (value != null) {
+            start("Value", true);
+            attribute("type", value.type);
+            attribute("slope", value.slope);
+            attribute("intercept", value.intercept);
+            attribute("unit", value.unit);
+            attribute("min", value.min);
+            attribute("max", value.max);
+        }
+    }
+
+    private void writeLabelSet(LabelSet set) throws XMLStreamException {
+        if (set == null) {
+            return;
+        }
+        boolean empty = isEmpty(set.labelOrLabelGroup);
+        start("LabelSet", empty);
+        if (!empty) {
+            for (BasicLabelType label : set.labelOrLabelGroup) {
+                if (label instanceof LabelGroup) {
+                    LabelGroup group = (LabelGroup) label;
+                    start("LabelGroup", true);
+                    attribute("from", group.from);
+                    attribute("to", group.to);
+                } else {
+                    start("Label", true);
+                    if (label instanceof Label) {
+                        attribute("value", ((Label) label).value);
+                    }
+                }
+                /* JAXB writes the attributes of the base type last */
+                attribute("name", label.name);
+                attribute("type", label.type);
+            }
+            end(true);
+        }
+    }
+
+    private void writeNotes(String notes) throws XMLStreamException {
+        if (notes != null) {
+            start("Notes", false);
+            text(notes);
+            end(false);
+        }
+    }
+
+    /**
+     * Starts an element on a new line when pretty printing.
+     *
+     * @param name  Local name of the element
+     * @param empty True, if the element has neither content nor children
+     */
+    private void start(String name, boolean empty) throws XMLStreamException {
+        indent();
+        if (empty) {
+            xml.writeEmptyElement(name);
+        } else {
+            xml.writeStartElement(name);
+            depth++;
+        }
+    }
+
+    /**
+     * Ends the current element.
+     *
+     * @param children True, if the element has child elements, so the end tag
+     *                 goes on a new line when pretty printing.
+     */
+    private void end(boolean children) throws XMLStreamException {
+        depth--;
+        if (children) {
+            indent();
+        }
+        xml.writeEndElement();
+    }
+
+    private void indent() throws XMLStreamException {
+        if (prettyPrint) {
+            xml.writeCharacters("\n");
+            for (int i = 0; i < depth; i++) {
+                xml.writeCharacters(INDENT);
+            }
+        }
+    }
+
+    /**
+     * Writes character content. Carriage returns are written as character
+     * references like JAXB does, a parser would turn them into line feeds
+     * otherwise.
+     */
+    private void text(String text) throws XMLStreamException {
+        int start = 0;
+        for (int i = text.indexOf('\r'); i >= 0; i = text.indexOf('\r', start)) {
+            xml.writeCharacters(text.substring(start, i));
+            xml.writeEntityRef("#13");
+            start = i + 1;
+        }
+        xml.writeCharacters(text.substring(start));
+    }
+
+    private void attribute(String name, String value) throws XMLStreamException {
+        if (value != null) {
+            xml.writeAttribute(name, value);
+        }
+    }
+
+    private void attribute(String name, Integer value) throws XMLStreamException {
+        if (value != null) {
+            xml.writeAttribute(name, value.toString());
+        }
+    }
+
+    private void attribute(String name, Boolean value) throws XMLStreamException {
+        if (value != null) {
+            xml.writeAttribute(name, value.toString());
+        }
+    }
+
+    private void attribute(String name, BigInteger value) throws XMLStreamException {
+        if (value != null) {
+            xml.writeAttribute(name, value.toString());
+        }
+    }
+
+    /**
+     * Writes a double in the lexical form of xs:double used by JAXB.
+     */
+    private void attribute(String name, Double value) throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        double v = value;
+        if (Double.isNaN(v)) {
+            xml.writeAttribute(name, "NaN");
+        } else if (v == Double.POSITIVE_INFINITY) {
+            xml.writeAttribute(name, "INF");
+        } else if (v == Double.NEGATIVE_INFINITY) {
+            xml.writeAttribute(name, "-INF");
+        } else {
+            xml.writeAttribute(name, Double.toString(v));
+        }
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static <T> List<T> list(List<T> list) {
+        return list != null ? list : Collections.<T>emptyList();
+    }
+}
@@ -0,0 +1,398 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.kcd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds errors in a network definition that the schema can not express but
+ * that break decoding: signals that overlap each other or the multiplexor,
+ * signals that extend beyond the length of their message, messages that are
+ * defined twice on a bus and value ranges that can not be encoded with the
+ * bits of the signal.
+ *
+ * All messages are checked in a single pass. The bits occupied by the
+ * signals of a message are tracked in bitsets of 512 bits, the largest
+ * CAN FD payload. Big endian signals occupy the bits from their least
+ * significant bit offset upwards to the end of the byte and continue with
+ * the lowest bit of the previous byte, as numbered by
+ * DbcReader.bigEndianLeastSignificantBitOffset().
+ *
+ * A checker can be reused for any number of networks but is not
+ * thread-safe.
+ *
+ * @author julietkilo
+ */
+public final class NetworkChecker {
+
+    /**
+     * Kinds of errors found by the checker.
+     */
+    public enum Problem {
+        /** A message with the same identifier and format is already defined on the bus */
+        DUPLICATE_MESSAGE,
+        /** Some bits of a signal lie beyond the length of its message */
+        SIGNAL_OUTSIDE_MESSAGE,
+        /** A signal occupies bits of another signal */
+        OVERLAPPING_SIGNALS,
+        /** A signal of a mux group occupies bits of its multiplexor */
+        OVERLAPPING_MULTIPLEXOR,
+        /** The minimum or maximum can not be encoded with the bits of the signal */
+        RANGE_NOT_ENCODABLE
+    }
+
+    /**
+     * An error found in a network definition.
+     */
+    public static final class Finding {
+
+        private final Problem problem;
+        private final String bus;
+        private final Message message;
+        private final String signal;
+        private final String otherSignal;
+        private final String description;
+
+        Finding(Problem problem, String bus, Message message, String signal, String otherSignal,
+                String description) {
+            this.problem = problem;
+            this.bus = bus;
+            this.message = message;
+            this.signal = signal;
+            this.otherSignal = otherSignal;
+            this.description = description;
+        }
+
+        public Problem getProblem() {
+            return problem;
+        }
+
+        /**
+         * @return Name of the bus of the message.
+         */
+        public String getBus() {
+            return bus;
+        }
+
+        public Message getMessage() {
+            return message;
+        }
+
+        /**
+         * @return Name of the signal or multiplexor, null for problems of the
+         *         message itself.
+         */
+        public String getSignal() {
+            return signal;
+        }
+
+        /**
+         * @return Name of the signal or multiplexor the signal overlaps, null
+         *         for other problems.
+         */
+        public String getOtherSignal() {
+            return otherSignal;
+        }
+
+        /**
+         * @return Human readable description of the problem.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Bus ").append(bus).append(", message ").append(message.getId()).append(' ')
+                    .append(message.getName());
+            if (signal != null) {
+                sb.append(", signal ").append(signal);
+            }
+            return sb.append(": ").append(description).toString();
+        }
+    }
+
+    /** Largest payload of a CAN FD message in bits */
+    private static final int MAX_BITS = 512;
+    private static final int WORDS = MAX_BITS / 64;
+
+    /* Bits of the multiplexors and plain signals of the current message */
+    private final long[] base = new long[WORDS];
+    /* Bits of base and the signals of the current mux group */
+    private final long[] group = new long[WORDS];
+    /* Bits of the signal that is checked */
+    private final long[] mask = new long[WORDS];
+    /* Bits of a signal compared to the checked one */
+    private final long[] other = new long[WORDS];
+
+    private final Map<String, Message> messages = new HashMap<String, Message>();
+    private final List<BasicSignalType> placed = new ArrayList<BasicSignalType>();
+    private List<Finding> findings;
+    private String busName;
+    private Message message;
+    private int messageBits;
+
+    /**
+     * Checks all messages of the network.
+     *
+     * @param network Network definition to check
+     * @return Errors in the order of the messages, empty if none found.
+     */
+    public List<Finding> check(NetworkDefinition network) {
+        findings = new ArrayList<Finding>();
+        for (Bus bus : list(network.bus)) {
+            busName = bus.getName();
+            messages.clear();
+            for (Message m : list(bus.message)) {
+                checkMessage(m);
+            }
+        }
+        messages.clear();
+        placed.clear();
+        message = null;
+        List<Finding> result = findings;
+        findings = null;
+        return result;
+    }
+
+    private void checkMessage(Message m) {
+        message = m;
+        messageBits = payloadBits(m);
+
+        Message duplicate = messages.put(messageKey(m), m);
+        if (duplicate != null) {
+            add(Problem.DUPLICATE_MESSAGE, null, null,
+                    "Identifier " + m.getId() + " " + m.getFormat() + " is also used by message "
+                            + duplicate.getName());
+        }
+
+        Arrays.fill(base, 0L);
+        placed.clear();
+        for (Multiplex mux : list(m.multiplex)) {
+            place(mux, base, false);
+        }
+        for (Signal signal : list(m.signal)) {
+            place(signal, base, false);
+        }
+
+        /* Groups of a multiplexor are sent alternatively, so they may share bits */
+        int baseSignals = placed.size();
+        for (Multiplex mux : list(m.multiplex)) {
+            for (MuxGroup muxGroup : list(mux.muxGroup)) {
+                System.arraycopy(base, 0, group, 0, WORDS);
+                for (Signal signal : list(muxGroup.signal)) {
+                    place(signal, group, true);
+                }
+                placed.subList(baseSignals, placed.size()).clear();
+            }
+        }
+    }
+
+    /**
+     * Checks a signal against the bits already occupied and adds its bits.
+     *
+     * @param signal   Signal or multiplexor to check
+     * @param occupied Bits of the signals placed before
+     * @param grouped  True, if the signal belongs to a mux group
+     */
+    private void place(BasicSignalType signal, long[] occupied, boolean grouped) {
+        if (!layout(signal, mask)) {
+            add(Problem.SIGNAL_OUTSIDE_MESSAGE, signal.getName(), null,
+                    "Bits " + signal.getOffset() + " to " + lastBit(signal) + " (" + signal.getEndianess()
+                            + " endian) exceed message length of " + messageBits + " bits");
+        }
+        if (intersects(mask, occupied)) {
+            reportOverlap(signal, grouped);
+        }
+        for (int i = 0; i < WORDS; i++) {
+            occupied[i] |= mask[i];
+        }
+        placed.add(signal);
+
+        Value value = signal instanceof Signal ? ((Signal) signal).value
+                : signal instanceof Multiplex ? ((Multiplex) signal).value : null;
+        checkRange(signal, value);
+    }
+
+    /**
+     * Slow path: finds the signals that share bits with the checked one.
+     */
+    private void reportOverlap(BasicSignalType signal, boolean grouped) {
+        for (BasicSignalType o : placed) {
+            layout(o, other);
+            if (intersects(mask, other)) {
+                if (o instanceof Multiplex && grouped) {
+                    add(Problem.OVERLAPPING_MULTIPLEXOR, signal.getName(), o.getName(),
+                            "Mux group signal overlaps multiplexor " + o.getName());
+                } else {
+                    add(Problem.OVERLAPPING_SIGNALS, signal.getName(), o.getName(),
+                            "Overlaps " + o.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the bits occupied by a signal. Bits beyond the largest payload are
+     * dropped.
+     *
+     * @param signal Signal to lay out
+     * @param bits   Bitset to fill, cleared before
+     * @return True, if all bits lie within the length of the message.
+     */
+    private boolean layout(BasicSignalType signal, long[] bits) {
+        Arrays.fill(bits, 0L);
+        int length = signal.getLength();
+        int position = signal.getOffset();
+
+        if (!"big".equals(signal.getEndianess())) {
+            int end = position + length;
+            for (int i = Math.max(position, 0); i < Math.min(end, MAX_BITS); i++) {
+                bits[i >>> 6] |= 1L << i;
+            }
+            return position >= 0 && end <= messageBits;
+        }
+
+        boolean inside = true;
+        for (int i = 0; i < length; i++) {
+            if (position < 0 || position >= messageBits) {
+                inside = false;
+            }
+            if (position >= 0 && position < MAX_BITS) {
+                bits[position >>> 6] |= 1L << position;
+            }
+            /* Continue with the lowest bit of the previous byte */
+            position = (position & 7) == 7 ? position - 15 : position + 1;
+        }
+        return inside;
+    }
+
+    /**
+     * @return Position of the most significant bit of a signal.
+     */
+    private static int lastBit(BasicSignalType signal) {
+        int position = signal.getOffset();
+        if (!"big".equals(signal.getEndianess())) {
+            return position + signal.getLength() - 1;
+        }
+        for (int i = 1; i < signal.getLength(); i++) {
+            position = (position & 7) == 7 ? position - 15 : position + 1;
+        }
+        return position;
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that minimum and maximum lie within the physical values of the
+     * raw values of the signal. Values less than half a step outside are
+     * accepted, they round to an encodable value. A range with equal minimum
+     * and maximum means no range in DBC files and is not checked.
+     */
+    private void checkRange(BasicSignalType signal, Value value) {
+        if (value == null || (value.min == null && value.max == null) || value.getMin() == value.getMax()) {
+            return;
+        }
+
+        int length = signal.getLength();
+        double rawMin;
+        double rawMax;
+        String type = value.getType();
+        if ("signed".equals(type)) {
+            rawMin = -Math.pow(2, length - 1);
+            rawMax = Math.pow(2, length - 1) - 1;
+        } else if ("single".equals(type)) {
+            rawMin = -Float.MAX_VALUE;
+            rawMax = Float.MAX_VALUE;
+        } else if ("double".equals(type)) {
+            return;
+        } else {
+            rawMin = 0;
+            rawMax = Math.pow(2, length) - 1;
+        }
+
+        double slope = value.getSlope();
+        double intercept = value.getIntercept();
+        double low = Math.min(rawMin * slope + intercept, rawMax * slope + intercept);
+        double high = Math.max(rawMin * slope + intercept, rawMax * slope + intercept);
+        double tolerance = Math.abs(slope) / 2;
+
+        if (outside(value.min, low, high, tolerance) || outside(value.max, low, high, tolerance)) {
+            add(Problem.RANGE_NOT_ENCODABLE, signal.getName(), null,
+                    "Range [" + value.getMin() + "|" + value.getMax() + "] exceeds encodable range [" + low + "|"
+                            + high + "] of " + length + " bit " + type + " value");
+        }
+    }
+
+    private static boolean outside(Double v, double low, double high, double tolerance) {
+        return v != null && (v < low - tolerance || v > high + tolerance);
+    }
+
+    /**
+     * @return Payload length in bits, the largest payload of the frame type
+     *         if the length is "auto".
+     */
+    private static int payloadBits(Message m) {
+        String length = m.getLength();
+        if ("auto".equals(length)) {
+            return m.isFd() ? MAX_BITS : 64;
+        }
+        try {
+            return Math.min(Integer.parseInt(length.trim()) * 8, MAX_BITS);
+        } catch (NumberFormatException e) {
+            return MAX_BITS;
+        }
+    }
+
+    /**
+     * @return Format and identifier of a message, identifiers that differ in
+     *         leading zeros or case are equal.
+     */
+    private static String messageKey(Message m) {
+        String id = m.getId();
+        if (id.length() > 2 && id.startsWith("0x")) {
+            try {
+                id = Long.toHexString(Long.parseLong(id.substring(2), 16));
+            } catch (NumberFormatException e) {
+                /* Not a hexadecimal identifier, compare as is */
+            }
+        }
+        return m.getFormat() + ' ' + id;
+    }
+
+    private void add(Problem problem, String signal, String otherSignal, String description) {
+        findings.add(new Finding(problem, busName, message, signal, otherSignal, description));
+    }
+
+    private static <T> List<T> list(List<T> list) {
+        return list != null ? list : Collections.<T>emptyList();
+    }
+}
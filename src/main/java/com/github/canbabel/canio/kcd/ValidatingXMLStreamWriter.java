@@ -0,0 +1,389 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.kcd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Passes everything written to an XMLStreamWriter on to a ValidatorHandler,
+ * so a document is validated while it is written instead of being read back
+ * afterwards.
+ *
+ * A start tag is reported to the validator when its attributes are complete,
+ * i.e. with the next event. Character references are reported as the
+ * character they stand for, comments and processing instructions are not
+ * reported at all.
+ *
+ * @author julietkilo
+ */
+final class ValidatingXMLStreamWriter implements XMLStreamWriter {
+
+    private final XMLStreamWriter out;
+    private final ValidatorHandler validator;
+
+    /* Start tag that has not been reported yet */
+    private boolean pending = false;
+    private boolean pendingEmpty;
+    private String pendingUri;
+    private String pendingLocalName;
+    private final AttributesImpl attributes = new AttributesImpl();
+    private final List<String> pendingPrefixes = new ArrayList<String>();
+
+    /* Default namespace and qualified name of the open elements */
+    private final Deque<String> defaultNamespaces = new ArrayDeque<String>();
+    private final Deque<String[]> openElements = new ArrayDeque<String[]>();
+    private final Deque<List<String>> openPrefixes = new ArrayDeque<List<String>>();
+    private boolean documentStarted = false;
+    private boolean documentEnded = false;
+
+    /**
+     * @param out       Writer that produces the document
+     * @param validator Receives the document as SAX events
+     */
+    ValidatingXMLStreamWriter(XMLStreamWriter out, ValidatorHandler validator) {
+        this.out = out;
+        this.validator = validator;
+        defaultNamespaces.push(XMLConstants.NULL_NS_URI);
+    }
+
+    private static XMLStreamException wrap(SAXException e) {
+        return new XMLStreamException(e.getMessage(), e);
+    }
+
+    private void startDocument() throws XMLStreamException {
+        if (!documentStarted) {
+            documentStarted = true;
+            try {
+                validator.startDocument();
+            } catch (SAXException e) {
+                throw wrap(e);
+            }
+        }
+    }
+
+    private void startElement(String uri, String localName, boolean empty) throws XMLStreamException {
+        reportPending();
+        startDocument();
+        pending = true;
+        pendingEmpty = empty;
+        pendingUri = uri;
+        pendingLocalName = localName;
+        attributes.clear();
+        pendingPrefixes.clear();
+    }
+
+    /**
+     * Reports the pending start tag, and its end tag if it is empty.
+     */
+    private void reportPending() throws XMLStreamException {
+        if (!pending) {
+            return;
+        }
+        pending = false;
+
+        String uri = pendingUri != null ? pendingUri : defaultNamespaces.peek();
+        defaultNamespaces.push(defaultNamespaces.peek());
+        for (int i = 0; i < pendingPrefixes.size(); i += 2) {
+            if (pendingPrefixes.get(i).isEmpty()) {
+                defaultNamespaces.pop();
+                defaultNamespaces.push(pendingPrefixes.get(i + 1));
+                if (pendingUri == null) {
+                    uri = pendingPrefixes.get(i + 1);
+                }
+            }
+        }
+
+        List<String> prefixes = new ArrayList<String>(pendingPrefixes);
+        try {
+            for (int i = 0; i < prefixes.size(); i += 2) {
+                validator.startPrefixMapping(prefixes.get(i), prefixes.get(i + 1));
+            }
+            validator.startElement(uri, pendingLocalName, pendingLocalName, attributes);
+        } catch (SAXException e) {
+            throw wrap(e);
+        }
+        openElements.push(new String[] { uri, pendingLocalName });
+        openPrefixes.push(prefixes);
+        if (pendingEmpty) {
+            endElement();
+        }
+    }
+
+    private void endElement() throws XMLStreamException {
+        String[] element = openElements.pop();
+        List<String> prefixes = openPrefixes.pop();
+        defaultNamespaces.pop();
+        try {
+            validator.endElement(element[0], element[1], element[1]);
+            for (int i = 0; i < prefixes.size(); i += 2) {
+                validator.endPrefixMapping(prefixes.get(i));
+            }
+            if (openElements.isEmpty()) {
+                endDocument();
+            }
+        } catch (SAXException e) {
+            throw wrap(e);
+        }
+    }
+
+    private void endDocument() throws SAXException {
+        if (documentStarted && !documentEnded) {
+            documentEnded = true;
+            validator.endDocument();
+        }
+    }
+
+    private void characters(String text) throws XMLStreamException {
+        reportPending();
+        try {
+            validator.characters(text.toCharArray(), 0, text.length());
+        } catch (SAXException e) {
+            throw wrap(e);
+        }
+    }
+
+    private void attribute(String uri, String localName, String value) {
+        attributes.addAttribute(uri, localName, localName, "CDATA", value);
+    }
+
+    private void namespace(String prefix, String namespaceURI) {
+        pendingPrefixes.add(prefix);
+        pendingPrefixes.add(namespaceURI);
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        out.writeStartElement(localName);
+        startElement(null, localName, false);
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        out.writeStartElement(namespaceURI, localName);
+        startElement(namespaceURI, localName, false);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        out.writeStartElement(prefix, localName, namespaceURI);
+        startElement(namespaceURI, localName, false);
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        out.writeEmptyElement(namespaceURI, localName);
+        startElement(namespaceURI, localName, true);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        out.writeEmptyElement(prefix, localName, namespaceURI);
+        startElement(namespaceURI, localName, true);
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        out.writeEmptyElement(localName);
+        startElement(null, localName, true);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        out.writeEndElement();
+        reportPending();
+        endElement();
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        out.writeEndDocument();
+        reportPending();
+        while (!openElements.isEmpty()) {
+            endElement();
+        }
+        try {
+            endDocument();
+        } catch (SAXException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        out.close();
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        out.flush();
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        out.writeAttribute(localName, value);
+        attribute(XMLConstants.NULL_NS_URI, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value)
+            throws XMLStreamException {
+        out.writeAttribute(prefix, namespaceURI, localName, value);
+        attribute(namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        out.writeAttribute(namespaceURI, localName, value);
+        attribute(namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        out.writeNamespace(prefix, namespaceURI);
+        namespace(prefix == null || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix) ? "" : prefix, namespaceURI);
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        out.writeDefaultNamespace(namespaceURI);
+        namespace("", namespaceURI);
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        out.writeComment(data);
+        reportPending();
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        out.writeProcessingInstruction(target);
+        reportPending();
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        out.writeProcessingInstruction(target, data);
+        reportPending();
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        out.writeCData(data);
+        characters(data);
+    }
+
+    @Override
+    public void writeDTD(String dtd) throws XMLStreamException {
+        out.writeDTD(dtd);
+    }
+
+    /**
+     * Only character references like "#13" or "#xD" can be validated.
+     */
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException {
+        out.writeEntityRef(name);
+        if (!name.startsWith("#")) {
+            throw new XMLStreamException("Entity reference &" + name + "; can not be validated");
+        }
+        int codePoint;
+        try {
+            if (name.startsWith("#x")) {
+                codePoint = Integer.parseInt(name.substring(2), 16);
+            } else {
+                codePoint = Integer.parseInt(name.substring(1));
+            }
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid character reference &" + name + ";", e);
+        }
+        characters(new String(Character.toChars(codePoint)));
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        out.writeStartDocument();
+        startDocument();
+    }
+
+    @Override
+    public void writeStartDocument(String version) throws XMLStreamException {
+        out.writeStartDocument(version);
+        startDocument();
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        out.writeStartDocument(encoding, version);
+        startDocument();
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        out.writeCharacters(text);
+        characters(text);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        out.writeCharacters(text, start, len);
+        characters(new String(text, start, len));
+    }
+
+    @Override
+    public String getPrefix(String uri) throws XMLStreamException {
+        return out.getPrefix(uri);
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) throws XMLStreamException {
+        out.setPrefix(prefix, uri);
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) throws XMLStreamException {
+        out.setDefaultNamespace(uri);
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        out.setNamespaceContext(context);
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return out.getNamespaceContext();
+    }
+
+    @Override
+    public Object getProperty(String name) throws IllegalArgumentException {
+        return out.getProperty(name);
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.xml.bind.JAXBException;
+
+import com.github.canbabel.canio.dbc.BatchConverter;
+import com.github.canbabel.canio.dbc.ConversionCache;
+import com.github.canbabel.canio.dbc.ConversionEngine;
+
+/**
+ * Converts any number of files without user interface, e.g. in a build. The
+ * inputs may be DBC files, directories that are searched recursively for
+ * *.dbc files and glob patterns like "dbc/**.dbc". Each KCD file is written
+ * next to its DBC file.
+ *
+ * Exit codes:
+ * 0 all files converted to valid KCD files,
+ * 1 at least one file could not be converted,
+ * 2 invalid command line or no input files found,
+ * 3 all files converted but at least one violates the KCD schema.
+ *
+ * @author julietkilo
+ */
+public final class BatchCommandLine {
+
+    public static final int OK = 0;
+    public static final int CONVERSION_FAILED = 1;
+    public static final int USAGE = 2;
+    public static final int INVALID_OUTPUT = 3;
+
+    static final String USAGE_TEXT = "CANBabel.jar -batch [-gzip] [-compact] [-omit] [-overwrite] [-threads n]"
+            + " [-cache directory]"
+            + " file|directory|glob...";
+
+    private boolean gzip = false;
+    private boolean prettyPrint = true;
+    private boolean omitUnconsumedSignals = false;
+    private boolean overwrite = false;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private File cacheDirectory = null;
+    private final List<String> inputs = new ArrayList<String>();
+    private final File workingDirectory;
+
+    private BatchCommandLine(File workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Runs a batch conversion.
+     *
+     * @param args Options and inputs, without the leading "-batch"
+     * @param out  Stream to print results and logs to
+     * @return Exit code
+     */
+    public static int run(String[] args, final PrintStream out) {
+        return run(args, null, out);
+    }
+
+    /**
+     * Runs a batch conversion with relative paths resolved against a
+     * directory other than the working directory of the process, e.g. for a
+     * client of the ConversionDaemon.
+     *
+     * @param args             Options and inputs, without the leading "-batch"
+     * @param workingDirectory Directory relative paths are resolved against,
+     *                         null for the working directory of the process
+     * @param out              Stream to print results and logs to
+     * @return Exit code
+     */
+    public static int run(String[] args, File workingDirectory, final PrintStream out) {
+        BatchCommandLine command = new BatchCommandLine(workingDirectory);
+        String error = command.parse(args);
+        if (error != null) {
+            out.println(error);
+            out.println("Usage: " + USAGE_TEXT);
+            return USAGE;
+        }
+        return command.convert(out);
+    }
+
+    /**
+     * @return Error message, null if the arguments are valid.
+     */
+    private String parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("-gzip".equals(arg)) {
+                gzip = true;
+            } else if ("-compact".equals(arg)) {
+                prettyPrint = false;
+            } else if ("-omit".equals(arg)) {
+                omitUnconsumedSignals = true;
+            } else if ("-overwrite".equals(arg)) {
+                overwrite = true;
+            } else if ("-threads".equals(arg)) {
+                if (i + 1 == args.length) {
+                    return "Missing number of threads";
+                }
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    return "Invalid number of threads " + args[i];
+                }
+                if (threads < 1) {
+                    return "Invalid number of threads " + args[i];
+                }
+            } else if ("-cache".equals(arg)) {
+                if (i + 1 == args.length) {
+                    return "Missing cache directory";
+                }
+                cacheDirectory = new File(resolve(args[++i]));
+            } else if (arg.startsWith("-")) {
+                return "Unknown option " + arg;
+            } else {
+                inputs.add(resolve(arg));
+            }
+        }
+        if (inputs.isEmpty()) {
+            return "No input files";
+        }
+        return null;
+    }
+
+    private int convert(final PrintStream out) {
+        long start = System.nanoTime();
+        Set<File> found = new LinkedHashSet<File>();
+        for (String input : inputs) {
+            try {
+                List<File> files = expand(input);
+                if (files.isEmpty()) {
+                    out.println("No DBC files found for " + input);
+                    return USAGE;
+                }
+                found.addAll(files);
+            } catch (IOException e) {
+                out.println("Could not read " + input + ": " + e);
+                return USAGE;
+            }
+        }
+
+        List<File> files = new ArrayList<File>();
+        int skipped = 0;
+        for (File f : found) {
+            File kcd = BatchConverter.kcdFile(f, gzip);
+            if (kcd.exists() && !overwrite) {
+                out.println(String.format("%-8s %8s  %s (%s exists)", "SKIPPED", "", f.getPath(), kcd.getName()));
+                skipped++;
+            } else {
+                files.add(f);
+            }
+        }
+
+        /* Keep building JAXB context and schema out of the timing of the first files */
+        ConversionEngine engine = ConversionEngine.getDefault();
+        try {
+            engine.warmUp();
+        } catch (JAXBException e) {
+            e.printStackTrace(out);
+            return CONVERSION_FAILED;
+        }
+
+        BatchConverter converter = new BatchConverter();
+        converter.conversionEngine(engine);
+        converter.parallelism(threads);
+        converter.prettyPrint(prettyPrint);
+        converter.gzip(gzip);
+        converter.omitUnconsumedSignals(omitUnconsumedSignals);
+        if (cacheDirectory != null) {
+            ConversionCache cache = new ConversionCache(cacheDirectory);
+            if (!cache.isEnabled()) {
+                out.println("Build of CANBabel unknown, converting without cache");
+            }
+            converter.cache(cache);
+        }
+
+        List<BatchConverter.Result> results;
+        try {
+            results = converter.convert(files, new BatchConverter.Listener() {
+
+                @Override
+                public void finished(BatchConverter.Result result) {
+                    print(result, out);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            out.println("Interrupted");
+            return CONVERSION_FAILED;
+        }
+
+        int failed = 0;
+        int invalid = 0;
+        int findings = 0;
+        int cached = 0;
+        for (BatchConverter.Result result : results) {
+            if (result.isCached()) {
+                cached++;
+            }
+            if (!result.isConverted()) {
+                failed++;
+            } else if (!result.isValid()) {
+                invalid++;
+            }
+            findings += result.getFindings().size();
+        }
+        out.println(String.format("%d of %d files converted, %d failed, %d invalid, %d skipped, %d cached,"
+                + " %d findings in %d ms using %d threads", results.size() - failed, found.size(), failed, invalid,
+                skipped, cached, findings, (System.nanoTime() - start) / 1000000, threads));
+
+        if (failed > 0) {
+            return CONVERSION_FAILED;
+        }
+        return invalid > 0 ? INVALID_OUTPUT : OK;
+    }
+
+    /**
+     * Prints the status line of a converted file followed by its log.
+     *
+     * @param result Result of the file
+     * @param out    Stream to print to
+     */
+    static void print(BatchConverter.Result result, PrintStream out) {
+        String status = !result.isConverted() ? "FAILED" : !result.isValid() ? "INVALID"
+                : result.isCached() ? "CACHED" : "OK";
+        out.println(String.format("%-8s %5d ms  %s -> %s", status, result.getMillis(),
+                result.getDbcFile().getPath(), result.getKcdFile().getName()));
+        if (!result.getLog().isEmpty()) {
+            for (String line : result.getLog().split("\r?\n")) {
+                out.println("    " + line);
+            }
+        }
+    }
+
+    /**
+     * @return Path resolved against the working directory of the command.
+     */
+    private String resolve(String path) {
+        if (workingDirectory == null || new File(path).isAbsolute()) {
+            return path;
+        }
+        return new File(workingDirectory, path).getPath();
+    }
+
+    /**
+     * @return Index of the first wildcard of a glob pattern, -1 if none.
+     */
+    private static int wildcard(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds all regular files below a directory that are accepted by the
+     * matcher, or end with .dbc if there is no matcher.
+     */
+    private static void walk(Path directory, PathMatcher matcher, List<File> files) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            Iterator<Path> i = paths.iterator();
+            while (i.hasNext()) {
+                Path path = i.next();
+                if (!Files.isRegularFile(path)) {
+                    continue;
+                }
+                if (matcher != null ? matcher.matches(path)
+                        : path.getFileName().toString().toLowerCase().endsWith(".dbc")) {
+                    files.add(path.toFile());
+                }
+            }
+        }
+    }
+
+    /**
+     * Expands an input to the files it denotes, sorted by path. A glob
+     * pattern is matched against the files below the directory in front of
+     * its first wildcard, "**" matches across directories.
+     *
+     * @param input File, directory or glob pattern
+     * @return Files found, empty if none
+     * @throws IOException if a directory can not be read.
+     */
+    static List<File> expand(String input) throws IOException {
+        List<File> files = new ArrayList<File>();
+        int wildcard = wildcard(input);
+        if (wildcard >= 0) {
+            String pattern = input.replace(File.separatorChar, '/');
+            int slash = pattern.lastIndexOf('/', wildcard);
+            Path base = slash < 0 ? Paths.get("") : Paths.get(pattern.substring(0, Math.max(slash, 1)));
+            if (Files.isDirectory(base)) {
+                walk(base, FileSystems.getDefault().getPathMatcher("glob:" + pattern), files);
+            }
+        } else {
+            File file = new File(input);
+            if (file.isDirectory()) {
+                walk(file.toPath(), null, files);
+            } else if (file.exists()) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
@@ -0,0 +1,463 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import com.github.canbabel.canio.dbc.ConversionEngine;
+
+/**
+ * Keeps a warmed up ConversionEngine in a long running process and converts
+ * files on behalf of DaemonClient. This saves the start of the JVM and the
+ * setup of JAXB context and schema for every conversion, which takes longer
+ * than converting a typical DBC file.
+ *
+ * The daemon listens on a Unix domain socket, by default daemon.sock in a
+ * directory only the user can access, or on a TCP port of the loopback
+ * interface. On start it writes a random token to a file in that directory,
+ * which only the user can read. A client sends the token, its working
+ * directory and the arguments of a batch conversion, see BatchCommandLine.
+ * The daemon streams the output back and finishes with the exit code.
+ * Requests are handled concurrently.
+ *
+ * Protocol, all values as written by DataOutputStream:
+ * request: UTF PROTOCOL, UTF token, UTF working directory, int count, count
+ * times UTF argument. Response: any number of frames byte OUTPUT, int length,
+ * length bytes of output, followed by byte EXIT, int exit code. A request
+ * with a wrong token is answered with EXIT, DaemonClient.DAEMON_UNAVAILABLE.
+ *
+ * @author julietkilo
+ */
+public final class ConversionDaemon {
+
+    static final String PROTOCOL = "CANBabel daemon 2";
+    static final byte OUTPUT = 1;
+    static final byte EXIT = 2;
+    /** Only argument of a request that stops the daemon */
+    static final String SHUTDOWN = "-shutdown";
+    /** Largest number of arguments accepted in a request */
+    static final int MAX_ARGUMENTS = 100000;
+
+    static final String USAGE_TEXT = "CANBabel.jar -daemon [-socket path|-port n]";
+
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> PRIVATE_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final Path socketFile;
+    private final Path tokenFile;
+    private final byte[] token;
+    private final PrintStream log;
+    private final ExecutorService workers = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ConversionDaemon-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    private volatile boolean running = true;
+
+    /**
+     * Writes frames of output to the client. Every flush of the PrintStream
+     * around it is passed on, so the client sees each line as it is printed.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                out.writeByte(OUTPUT);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Binds the daemon to an address and writes a new token for it. A Unix
+     * domain socket file left behind by a daemon that has not been stopped is
+     * replaced.
+     *
+     * @param address Unix domain socket or TCP address to listen on
+     * @param log     Stream to print requests and errors to
+     * @throws IOException if the address is in use or binding fails.
+     */
+    ConversionDaemon(SocketAddress address, PrintStream log) throws IOException {
+        this.log = log;
+        if (address instanceof UnixDomainSocketAddress) {
+            socketFile = ((UnixDomainSocketAddress) address).getPath();
+            if (Files.exists(socketFile)) {
+                boolean listening;
+                try {
+                    SocketChannel.open(address).close();
+                    listening = true;
+                } catch (IOException e) {
+                    listening = false;
+                }
+                if (listening) {
+                    throw new IOException("A daemon is already listening on " + socketFile);
+                }
+                /* Nobody listens, the file is stale */
+                Files.delete(socketFile);
+            }
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(address);
+            try {
+                /* Only the user that started the daemon may connect */
+                Files.setPosixFilePermissions(socketFile, PRIVATE_FILE);
+            } catch (UnsupportedOperationException e) {
+                /* File system without POSIX permissions */
+            }
+        } else {
+            socketFile = null;
+            server = ServerSocketChannel.open();
+            server.bind(address);
+        }
+        this.address = server.getLocalAddress();
+
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        token = hex(random).getBytes(StandardCharsets.US_ASCII);
+        try {
+            tokenFile = tokenFile(this.address);
+            Files.deleteIfExists(tokenFile);
+            if (isPosix(tokenFile)) {
+                Files.createFile(tokenFile, PosixFilePermissions.asFileAttribute(PRIVATE_FILE));
+            } else {
+                Files.createFile(tokenFile);
+            }
+            Files.write(tokenFile, token);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param socket Path of a Unix domain socket, null for the default
+     * @param port   TCP port on the loopback interface, used if greater than 0
+     * @return Address of the daemon.
+     * @throws IOException if the private directory of the default socket
+     *                     cannot be created or is not private.
+     */
+    static SocketAddress address(String socket, int port) throws IOException {
+        if (port > 0) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        }
+        if (socket == null) {
+            return UnixDomainSocketAddress.of(privateDirectory().resolve("daemon.sock"));
+        }
+        return UnixDomainSocketAddress.of(socket);
+    }
+
+    /**
+     * Returns the directory for the default socket and the token files,
+     * canbabel in $XDG_RUNTIME_DIR or canbabel-user in the temporary
+     * directory. It is created if missing. An existing directory has to be
+     * owned by the user and accessible to nobody else, so that no other user
+     * can place or replace files in it.
+     *
+     * @return Directory only the user can access
+     * @throws IOException if the directory cannot be created or is not private.
+     */
+    static Path privateDirectory() throws IOException {
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        Path directory;
+        if (runtime != null && !runtime.isEmpty()) {
+            directory = Paths.get(runtime, "canbabel");
+        } else {
+            directory = Paths.get(System.getProperty("java.io.tmpdir"), "canbabel-" + System.getProperty("user.name"));
+        }
+        if (!isPosix(directory)) {
+            /* File system without POSIX permissions */
+            return Files.createDirectories(directory);
+        }
+
+        try {
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PRIVATE_DIRECTORY));
+        } catch (FileAlreadyExistsException e) {
+            /* Checked below */
+        }
+        PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!attributes.isDirectory() || !attributes.owner().equals(user)
+                || !attributes.permissions().equals(PRIVATE_DIRECTORY)) {
+            throw new IOException(directory + " is not a directory that only " + user + " can access");
+        }
+        return directory;
+    }
+
+    /**
+     * @param address Address the daemon listens on
+     * @return File in the private directory holding the token of the daemon.
+     * @throws IOException if the private directory is not usable.
+     */
+    static Path tokenFile(SocketAddress address) throws IOException {
+        String name;
+        if (address instanceof InetSocketAddress) {
+            name = "port-" + ((InetSocketAddress) address).getPort();
+        } else {
+            Path socket = ((UnixDomainSocketAddress) address).getPath().toAbsolutePath().normalize();
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256")
+                        .digest(socket.toString().getBytes(StandardCharsets.UTF_8));
+                name = "socket-" + hex(hash).substring(0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+        return privateDirectory().resolve(name + ".token");
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return Address the daemon listens on.
+     */
+    SocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Runs the daemon until a client requests the shutdown.
+     *
+     * @param args -socket path or -port n, none for the default socket
+     * @param out  Stream to print requests and errors to
+     * @return Exit code
+     */
+    public static int run(String[] args, PrintStream out) {
+        String socket = null;
+        int port = 0;
+        for (int i = 0; i < args.length; i++) {
+            if ("-socket".equals(args[i]) && i + 1 < args.length) {
+                socket = args[++i];
+            } else if ("-port".equals(args[i]) && i + 1 < args.length) {
+                try {
+                    port = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 1 || port > 65535) {
+                    out.println("Invalid port " + args[i]);
+                    out.println("Usage: " + USAGE_TEXT);
+                    return BatchCommandLine.USAGE;
+                }
+            } else {
+                out.println("Unknown option " + args[i]);
+                out.println("Usage: " + USAGE_TEXT);
+                return BatchCommandLine.USAGE;
+            }
+        }
+
+        try {
+            ConversionDaemon daemon = new ConversionDaemon(address(socket, port), out);
+            ConversionEngine.getDefault().warmUp();
+            out.println("Listening on " + daemon.getAddress());
+            daemon.serve();
+            return BatchCommandLine.OK;
+        } catch (IOException e) {
+            out.println("Could not start daemon: " + e.getMessage());
+            return BatchCommandLine.CONVERSION_FAILED;
+        } catch (JAXBException e) {
+            e.printStackTrace(out);
+            return BatchCommandLine.CONVERSION_FAILED;
+        }
+    }
+
+    /**
+     * Accepts requests until the daemon is closed and returns after the
+     * requests already accepted are finished.
+     *
+     * @throws IOException if accepting a connection fails.
+     */
+    void serve() throws IOException {
+        try {
+            while (running) {
+                final SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (AsynchronousCloseException e) {
+                    break;
+                }
+                try {
+                    workers.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            handle(channel);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    /* Closed while accepting */
+                    channel.close();
+                    break;
+                }
+            }
+        } finally {
+            close();
+            try {
+                while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                    /* A conversion of another client is still running */
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting requests. Requests already accepted are finished, serve
+     * returns after the last one.
+     */
+    void close() {
+        running = false;
+        try {
+            server.close();
+            if (socketFile != null) {
+                Files.deleteIfExists(socketFile);
+            }
+            Files.deleteIfExists(tokenFile);
+        } catch (IOException e) {
+            e.printStackTrace(log);
+        }
+        workers.shutdown();
+    }
+
+    private void handle(SocketChannel channel) {
+        try (SocketChannel c = channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(c)));
+
+            if (!PROTOCOL.equals(in.readUTF())) {
+                log.println("Ignored request with unknown protocol");
+                return;
+            }
+            if (!MessageDigest.isEqual(token, in.readUTF().getBytes(StandardCharsets.UTF_8))) {
+                /* Nothing else of the request is read */
+                log.println("Rejected request with invalid token");
+                new PrintStream(new FrameOutputStream(out), true).println("Request rejected, invalid token");
+                out.writeByte(EXIT);
+                out.writeInt(DaemonClient.DAEMON_UNAVAILABLE);
+                out.flush();
+                return;
+            }
+            File workingDirectory = new File(in.readUTF());
+            int count = in.readInt();
+            if (count < 0 || count > MAX_ARGUMENTS) {
+                log.println("Ignored request with " + count + " arguments");
+                return;
+            }
+            String[] args = new String[count];
+            for (int i = 0; i < count; i++) {
+                args[i] = in.readUTF();
+            }
+
+            int code;
+            if (count == 1 && SHUTDOWN.equals(args[0])) {
+                log.println("Shutdown requested");
+                close();
+                code = BatchCommandLine.OK;
+            } else {
+                long start = System.nanoTime();
+                PrintStream print = new PrintStream(new FrameOutputStream(out), true);
+                code = BatchCommandLine.run(args, workingDirectory, print);
+                print.flush();
+                log.println(String.format("Exit code %d after %d ms for %s %s", code,
+                        (System.nanoTime() - start) / 1000000, workingDirectory, String.join(" ", args)));
+            }
+            out.writeByte(EXIT);
+            out.writeInt(code);
+            out.flush();
+        } catch (EOFException e) {
+            /* Connection closed by the client, e.g. a probe for a running daemon */
+        } catch (IOException e) {
+            log.println("Request failed: " + e);
+        }
+    }
+}
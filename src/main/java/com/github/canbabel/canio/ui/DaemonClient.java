@@ -0,0 +1,144 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forwards a batch conversion to a running ConversionDaemon and prints its
+ * output as it arrives. The request is authenticated with the token the daemon
+ * wrote to its private directory. Relative paths are resolved against the
+ * working directory of the client. The exit code is the one of the conversion, see
+ * BatchCommandLine, or DAEMON_UNAVAILABLE if no daemon could be reached.
+ *
+ * @author julietkilo
+ */
+public final class DaemonClient {
+
+    /** No daemon listens on the address or the connection broke */
+    public static final int DAEMON_UNAVAILABLE = 4;
+
+    static final String USAGE_TEXT = "CANBabel.jar -client [-socket path|-port n] -shutdown|batch options and inputs";
+
+    private DaemonClient() {
+    }
+
+    /**
+     * Sends a request to the daemon and waits for its exit code.
+     *
+     * @param args -socket path or -port n, followed by the arguments of the
+     *             batch conversion or -shutdown to stop the daemon
+     * @param out  Stream to print the output of the daemon to
+     * @return Exit code
+     */
+    public static int run(String[] args, PrintStream out) {
+        String socket = null;
+        int port = 0;
+        int i = 0;
+        for (; i + 1 < args.length; i += 2) {
+            if ("-socket".equals(args[i])) {
+                socket = args[i + 1];
+            } else if ("-port".equals(args[i])) {
+                try {
+                    port = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 1 || port > 65535) {
+                    out.println("Invalid port " + args[i + 1]);
+                    out.println("Usage: " + USAGE_TEXT);
+                    return BatchCommandLine.USAGE;
+                }
+            } else {
+                break;
+            }
+        }
+
+        List<String> forwarded = new ArrayList<String>();
+        for (; i < args.length; i++) {
+            forwarded.add(args[i]);
+        }
+        if (forwarded.isEmpty()) {
+            out.println("Usage: " + USAGE_TEXT);
+            return BatchCommandLine.USAGE;
+        }
+
+        SocketAddress address = null;
+        String token;
+        SocketChannel channel;
+        try {
+            address = ConversionDaemon.address(socket, port);
+            token = new String(Files.readAllBytes(ConversionDaemon.tokenFile(address)), StandardCharsets.US_ASCII);
+            channel = SocketChannel.open(address);
+        } catch (IOException e) {
+            out.println("No conversion daemon at " + (address != null ? address : "default socket") + ": "
+                    + e.getMessage());
+            return DAEMON_UNAVAILABLE;
+        }
+
+        try (SocketChannel c = channel) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(c)));
+            request.writeUTF(ConversionDaemon.PROTOCOL);
+            request.writeUTF(token);
+            request.writeUTF(System.getProperty("user.dir"));
+            request.writeInt(forwarded.size());
+            for (String arg : forwarded) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                byte type = response.readByte();
+                int length = response.readInt();
+                if (type == ConversionDaemon.EXIT) {
+                    out.flush();
+                    return length;
+                } else if (type != ConversionDaemon.OUTPUT || length < 0) {
+                    throw new IOException("Unexpected response " + type);
+                }
+                while (length > 0) {
+                    int n = response.read(buffer, 0, Math.min(length, buffer.length));
+                    if (n < 0) {
+                        throw new EOFException();
+                    }
+                    out.write(buffer, 0, n);
+                    length -= n;
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            out.println("Connection to conversion daemon lost: " + e);
+            return DAEMON_UNAVAILABLE;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import com.github.canbabel.canio.dbc.BatchConverter;
+import com.github.canbabel.canio.dbc.ConversionEngine;
+
+/**
+ * Converts DBC files below a set of directories whenever they change, so the
+ * KCD files are up to date right after a DBC file has been saved.
+ *
+ * The directories are watched recursively with a WatchService, directories
+ * created later are added. Saving a file usually causes a burst of events,
+ * so a file is converted once no further event has been reported for it for
+ * the debounce time. Files whose size and modification time did not change
+ * since their last conversion are skipped. On start and after events have
+ * been lost, all DBC files with a missing or older KCD file are converted.
+ *
+ * All conversions share one BatchConverter and thus one warmed up
+ * ConversionEngine. The watcher itself is not thread-safe, only close() may
+ * be called from another thread.
+ *
+ * @author julietkilo
+ */
+public final class DirectoryWatcher {
+
+    /** Default time without events before a file is converted */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    static final String USAGE_TEXT = "CANBabel.jar -watch [-gzip] [-compact] [-omit] [-threads n]"
+            + " [-debounce ms] directory...";
+
+    private final List<Path> roots = new ArrayList<Path>();
+    private final BatchConverter converter;
+    private final boolean gzip;
+    private final long debounceMillis;
+    private final PrintStream out;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+    /** Files waiting for the end of their event burst, with its deadline */
+    private final Map<File, Long> pending = new LinkedHashMap<File, Long>();
+    /** Size and modification time of each file when it was converted last */
+    private final Map<File, String> converted = new HashMap<File, String>();
+
+    /**
+     * @param directories    Directories to watch recursively
+     * @param converter      Converter used for all files, configured with
+     *                       the options of the KCD files
+     * @param gzip           True, if the converter writes gzipped KCD files
+     * @param debounceMillis Time without events before a file is converted
+     * @param out            Stream to print results and logs to
+     * @throws IOException if the watch service can not be created.
+     */
+    DirectoryWatcher(List<File> directories, BatchConverter converter, boolean gzip, long debounceMillis,
+            PrintStream out) throws IOException {
+        for (File directory : directories) {
+            roots.add(directory.toPath());
+        }
+        this.converter = converter;
+        this.gzip = gzip;
+        this.debounceMillis = debounceMillis;
+        this.out = out;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * Watches directories until the process is stopped.
+     *
+     * @param args Options and directories, without the leading "-watch"
+     * @param out  Stream to print results and logs to
+     * @return Exit code, only returned on errors
+     */
+    public static int run(String[] args, PrintStream out) {
+        boolean gzip = false;
+        boolean prettyPrint = true;
+        boolean omitUnconsumedSignals = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long debounce = DEFAULT_DEBOUNCE_MILLIS;
+        List<File> directories = new ArrayList<File>();
+
+        String error = null;
+        for (int i = 0; i < args.length && error == null; i++) {
+            String arg = args[i];
+            if ("-gzip".equals(arg)) {
+                gzip = true;
+            } else if ("-compact".equals(arg)) {
+                prettyPrint = false;
+            } else if ("-omit".equals(arg)) {
+                omitUnconsumedSignals = true;
+            } else if ("-threads".equals(arg) || "-debounce".equals(arg)) {
+                long value = -1;
+                if (i + 1 < args.length) {
+                    try {
+                        value = Long.parseLong(args[++i]);
+                    } catch (NumberFormatException e) {
+                        value = -1;
+                    }
+                }
+                if ("-threads".equals(arg) && value >= 1 && value <= Integer.MAX_VALUE) {
+                    threads = (int) value;
+                } else if ("-debounce".equals(arg) && value >= 0) {
+                    debounce = value;
+                } else {
+                    error = "Invalid value for " + arg;
+                }
+            } else if (arg.startsWith("-")) {
+                error = "Unknown option " + arg;
+            } else if (!new File(arg).isDirectory()) {
+                error = "No directory " + arg;
+            } else {
+                directories.add(new File(arg));
+            }
+        }
+        if (error == null && directories.isEmpty()) {
+            error = "No directories";
+        }
+        if (error != null) {
+            out.println(error);
+            out.println("Usage: " + USAGE_TEXT);
+            return BatchCommandLine.USAGE;
+        }
+
+        ConversionEngine engine = ConversionEngine.getDefault();
+        try {
+            engine.warmUp();
+        } catch (JAXBException e) {
+            e.printStackTrace(out);
+            return BatchCommandLine.CONVERSION_FAILED;
+        }
+
+        BatchConverter converter = new BatchConverter();
+        converter.conversionEngine(engine);
+        converter.parallelism(threads);
+        converter.prettyPrint(prettyPrint);
+        converter.gzip(gzip);
+        converter.omitUnconsumedSignals(omitUnconsumedSignals);
+
+        try {
+            new DirectoryWatcher(directories, converter, gzip, debounce, out).watch();
+            return BatchCommandLine.OK;
+        } catch (IOException e) {
+            out.println("Could not watch directories: " + e);
+            return BatchCommandLine.CONVERSION_FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchCommandLine.CONVERSION_FAILED;
+        }
+    }
+
+    /**
+     * Converts outdated files and watches the directories until close() is
+     * called.
+     *
+     * @throws IOException          if a directory can not be registered.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    void watch() throws IOException, InterruptedException {
+        try {
+            for (Path root : roots) {
+                register(root);
+            }
+            out.println("Watching " + directories.size() + " directories");
+
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long wait = Collections.min(pending.values()) - System.currentTimeMillis();
+                    key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : watchService.poll();
+                }
+                if (key != null) {
+                    events(key);
+                }
+                convertDue();
+            }
+        } catch (ClosedWatchServiceException e) {
+            /* Closed */
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Stops watching. Conversions already started are finished.
+     */
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace(out);
+        }
+    }
+
+    /**
+     * Registers a directory and all directories below it. DBC files with a
+     * missing or older KCD file are scheduled for conversion.
+     */
+    private void register(Path start) throws IOException {
+        final long now = System.currentTimeMillis();
+
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                /* Registering a directory again returns its existing key */
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isDbc(file)) {
+                    File kcd = BatchConverter.kcdFile(file.toFile(), gzip);
+                    if (kcd.lastModified() < attrs.lastModifiedTime().toMillis()) {
+                        pending.put(file.toFile(), now);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                /* Removed in the meantime or not readable */
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isDbc(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".dbc");
+    }
+
+    /**
+     * Schedules the files of the events of a directory. Each event moves the
+     * conversion of its file to the end of the debounce time.
+     */
+    private void events(WatchKey key) throws IOException {
+        Path dir = directories.get(key);
+        long deadline = System.currentTimeMillis() + debounceMillis;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                out.println("Events lost, searching for outdated files");
+                for (Path root : roots) {
+                    register(root);
+                }
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+
+            Path child = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                register(child);
+            } else if (isDbc(child)) {
+                /* Keep the order of the first event */
+                pending.put(child.toFile(), deadline);
+            }
+        }
+
+        if (!key.reset()) {
+            /* Directory has been removed */
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Converts the files whose debounce time is over, unless they have not
+     * changed since their last conversion.
+     */
+    private void convertDue() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        List<File> files = new ArrayList<File>();
+
+        Iterator<Map.Entry<File, Long>> i = pending.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<File, Long> entry = i.next();
+            if (entry.getValue() > now) {
+                continue;
+            }
+            i.remove();
+            File file = entry.getKey();
+            if (!file.isFile()) {
+                continue;
+            }
+            String stamp = file.length() + ":" + file.lastModified();
+            if (!stamp.equals(converted.get(file))) {
+                converted.put(file, stamp);
+                files.add(file);
+            }
+        }
+
+        if (!files.isEmpty()) {
+            converter.convert(files, new BatchConverter.Listener() {
+
+                @Override
+                public void finished(BatchConverter.Result result) {
+                    BatchCommandLine.print(result, out);
+                }
+            });
+        }
+    }
+}
@@ -19,7 +19,9 @@
 package com.github.canbabel.canio.ui;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -36,19 +38,45 @@ public class FileList implements ListModel<File> {
 
     private List<File> files = new ArrayList<File>();
     private Set<ListDataListener> listeners = new HashSet<ListDataListener>();
+    /** Normalized absolute paths of the files in the list */
+    private Set<Path> paths = new HashSet<Path>();
+
+    private static Path path(File f) {
+        return f.getAbsoluteFile().toPath().normalize();
+    }
 
     public void addFile(File f) {
-        files.add(f);
-        int i = files.size();
+        addFiles(Collections.singletonList(f));
+    }
 
-        ListDataEvent e = new ListDataEvent(this, ListDataEvent.INTERVAL_ADDED, i, i);
-        for(ListDataListener l : listeners) {
-            l.intervalRemoved(e);
+    /**
+     * Appends all files that are not yet part of the list. Listeners are
+     * notified once for all added files.
+     *
+     * @param newFiles Files to add
+     * @return Number of files added.
+     */
+    public int addFiles(Collection<File> newFiles) {
+        int first = files.size();
+
+        for (File f : newFiles) {
+            if (paths.add(path(f))) {
+                files.add(f);
+            }
+        }
+
+        int last = files.size() - 1;
+        if (last >= first) {
+            ListDataEvent e = new ListDataEvent(this, ListDataEvent.INTERVAL_ADDED, first, last);
+            for(ListDataListener l : listeners) {
+                l.intervalAdded(e);
+            }
         }
+        return last - first + 1;
     }
 
     public void remove(int i) {
-        files.remove(i);
+        paths.remove(path(files.remove(i)));
 
         ListDataEvent e = new ListDataEvent(this, ListDataEvent.INTERVAL_REMOVED, i, i);
         for(ListDataListener l : listeners) {
@@ -83,6 +111,10 @@ public class FileList implements ListModel<File> {
     public void clear() {
         int oldsize = files.size();
         files.clear();
+        paths.clear();
+        if (oldsize == 0) {
+            return;
+        }
 
         ListDataEvent e = new ListDataEvent(this, ListDataEvent.INTERVAL_REMOVED, 0, oldsize-1);
         for(ListDataListener l : listeners) {
@@ -0,0 +1,205 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.SwingUtilities;
+
+/**
+ * Searches folders for CAN database (*.dbc) files in a background thread.
+ * Found files are handed over to the listener on the Event Dispatch Thread in
+ * chunks, so a folder with thousands of files does not block the user
+ * interface. Chunks that pile up while the Event Dispatch Thread is busy are
+ * delivered at once.
+ *
+ * Symbolic links are followed, folders that can not be read are skipped.
+ *
+ * @author julietkilo
+ */
+public class FolderScanner {
+
+    /**
+     * Receives the results of a scan. All methods are called on the Event
+     * Dispatch Thread.
+     */
+    public interface Listener {
+
+        /**
+         * @param files Files found since the last call
+         */
+        void found(List<File> files);
+
+        /**
+         * Called once after the last found() call.
+         *
+         * @param cancelled True, if the scan has been cancelled.
+         */
+        void finished(boolean cancelled);
+    }
+
+    /** Largest number of files collected before they are handed over */
+    static final int CHUNK_SIZE = 1000;
+
+    /** Longest time files are collected before they are handed over */
+    static final long CHUNK_MILLIS = 100;
+
+    private final List<File> folders;
+    private final Listener listener;
+    private Thread thread;
+    private volatile boolean cancelled = false;
+
+    /* Guarded by this */
+    private List<File> pending = new ArrayList<File>();
+    private boolean scheduled = false;
+    private boolean done = false;
+
+    private final Runnable deliver = new Runnable() {
+
+        @Override
+        public void run() {
+            List<File> files;
+            boolean last;
+            synchronized (FolderScanner.this) {
+                files = pending;
+                pending = new ArrayList<File>();
+                scheduled = false;
+                last = done;
+            }
+            if (!cancelled && !files.isEmpty()) {
+                listener.found(files);
+            }
+            if (last) {
+                listener.finished(cancelled);
+            }
+        }
+    };
+
+    /**
+     * @param folders  Folders to search recursively
+     * @param listener Receives the found files
+     */
+    public FolderScanner(List<File> folders, Listener listener) {
+        this.folders = new ArrayList<File>(folders);
+        this.listener = listener;
+    }
+
+    /**
+     * Starts the scan in a daemon thread. A scanner can only be started once.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Scan already started");
+        }
+        thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                scan();
+            }
+        }, "FolderScanner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the scan. Files that have not been handed over yet are dropped,
+     * finished() is called as soon as the scanning thread has stopped.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return True, if the scan has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Hands files over to the Event Dispatch Thread. Only one delivery is
+     * scheduled at a time, files found in the meantime are added to it.
+     */
+    private synchronized void publish(List<File> files, boolean last) {
+        pending.addAll(files);
+        done = last;
+        if (!scheduled) {
+            scheduled = true;
+            SwingUtilities.invokeLater(deliver);
+        }
+    }
+
+    private void scan() {
+        final List<File> chunk = new ArrayList<File>();
+        final long[] chunkStart = { System.currentTimeMillis() };
+
+        SimpleFileVisitor<Path> visitor = new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()
+                        && file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".dbc")) {
+                    chunk.add(file.toFile());
+                }
+                long now = System.currentTimeMillis();
+                if (chunk.size() >= CHUNK_SIZE || (!chunk.isEmpty() && now - chunkStart[0] >= CHUNK_MILLIS)) {
+                    publish(chunk, false);
+                    chunk.clear();
+                    chunkStart[0] = now;
+                }
+                return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                /* Unreadable folder or symbolic link loop */
+                return cancelled ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+        };
+
+        try {
+            for (File folder : folders) {
+                if (cancelled) {
+                    break;
+                }
+                Files.walkFileTree(folder.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+                        Integer.MAX_VALUE, visitor);
+            }
+        } catch (IOException ex) {
+            /* Not thrown by the visitor */
+        } finally {
+            publish(chunk, true);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+/**
+ * Log of the user interface. Bytes written to the stream are collected and
+ * appended to a text area on the Event Dispatch Thread, all text flushed
+ * until the EDT gets to it is appended at once. The text area keeps the
+ * latest lines only, older lines are dropped like in a ring buffer.
+ *
+ * Optionally the complete log is written to a file as well. Bytes are
+ * interpreted as ISO-8859-1 characters like the log streams of the readers.
+ *
+ * @author julietkilo
+ */
+public class LogConsole extends OutputStream {
+
+    /** Number of lines kept by default */
+    public static final int DEFAULT_MAX_LINES = 5000;
+
+    /** Assumed average line length to bound the text waiting for the EDT */
+    private static final int LINE_LENGTH = 256;
+
+    private final int maxLines;
+    private final int maxPending;
+
+    /* Guarded by this */
+    private final StringBuilder pending = new StringBuilder();
+    private boolean scheduled = false;
+    private JTextArea area;
+    private OutputStream spill;
+    private File spillFile;
+
+    private final Runnable append = new Runnable() {
+
+        @Override
+        public void run() {
+            String text;
+            JTextArea target;
+            synchronized (LogConsole.this) {
+                text = pending.toString();
+                pending.setLength(0);
+                scheduled = false;
+                target = area;
+            }
+            target.append(text);
+            trim(target.getDocument());
+        }
+    };
+
+    public LogConsole() {
+        this(DEFAULT_MAX_LINES);
+    }
+
+    /**
+     * @param maxLines Number of lines kept in the text area
+     */
+    public LogConsole(int maxLines) {
+        if (maxLines < 1) {
+            throw new IllegalArgumentException("At least one line has to be kept");
+        }
+        this.maxLines = maxLines;
+        this.maxPending = maxLines * LINE_LENGTH;
+    }
+
+    /**
+     * Sets the text area that shows the log. Text written before is shown
+     * with the next flush.
+     *
+     * @param area Text area to append to
+     */
+    public synchronized void setTextArea(JTextArea area) {
+        this.area = area;
+    }
+
+    /**
+     * Writes the log to a file from now on, in addition to the text area.
+     * A file written before is closed.
+     *
+     * @param file File to write the log to
+     * @throws IOException if the file can not be opened.
+     */
+    public synchronized void spillTo(File file) throws IOException {
+        stopSpilling();
+        spill = new BufferedOutputStream(new FileOutputStream(file));
+        spillFile = file;
+    }
+
+    /**
+     * Stops writing the log to a file and closes the file.
+     */
+    public synchronized void stopSpilling() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException ex) {
+                pending.append("Could not close log file " + spillFile + ": " + ex + "\n");
+            }
+            spill = null;
+            spillFile = null;
+        }
+    }
+
+    /**
+     * @return File the log is written to, null if none.
+     */
+    public synchronized File getSpillFile() {
+        return spillFile;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        pending.append((char) (b & 0xFF));
+        if (spill != null) {
+            try {
+                spill.write(b);
+            } catch (IOException ex) {
+                spillFailed(ex);
+            }
+        }
+        bound();
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        pending.ensureCapacity(pending.length() + len);
+        for (int i = off; i < off + len; i++) {
+            pending.append((char) (b[i] & 0xFF));
+        }
+        if (spill != null) {
+            try {
+                spill.write(b, off, len);
+            } catch (IOException ex) {
+                spillFailed(ex);
+            }
+        }
+        bound();
+    }
+
+    /**
+     * Passes the text written so far over to the EDT. Only one transfer is
+     * scheduled at a time, text flushed meanwhile is appended with it.
+     */
+    @Override
+    public synchronized void flush() {
+        if (spill != null) {
+            try {
+                spill.flush();
+            } catch (IOException ex) {
+                spillFailed(ex);
+            }
+        }
+        if (!scheduled && area != null && pending.length() > 0) {
+            scheduled = true;
+            SwingUtilities.invokeLater(append);
+        }
+    }
+
+    @Override
+    public void close() {
+        stopSpilling();
+    }
+
+    private void spillFailed(IOException ex) {
+        File file = spillFile;
+        stopSpilling();
+        pending.append("Stopped writing log to " + file + ": " + ex + "\n");
+    }
+
+    /**
+     * Drops the oldest text waiting for the EDT, if it would not fit into the
+     * text area anyway.
+     */
+    private void bound() {
+        if (pending.length() > 2 * maxPending) {
+            int cut = pending.indexOf("\n", pending.length() - maxPending);
+            pending.delete(0, cut >= 0 ? cut + 1 : pending.length() - maxPending);
+        }
+    }
+
+    /**
+     * Removes the oldest lines exceeding the maximum number of lines.
+     */
+    private void trim(Document document) {
+        Element root = document.getDefaultRootElement();
+        int excess = root.getElementCount() - maxLines;
+        if (excess > 0) {
+            try {
+                document.remove(0, root.getElement(excess - 1).getEndOffset());
+            } catch (BadLocationException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
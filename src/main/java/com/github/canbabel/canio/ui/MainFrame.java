@@ -18,21 +18,25 @@
 package com.github.canbabel.canio.ui;
 
 // TODO Version number(major.minor.build)
+import com.github.canbabel.canio.dbc.BatchConverter;
+import com.github.canbabel.canio.dbc.ConversionEngine;
 import com.github.canbabel.canio.dbc.DbcReader;
+import com.github.canbabel.canio.dbc.StreamingDbcConverter;
+import com.github.canbabel.canio.kcd.NetworkChecker;
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.prefs.*;
-import java.util.zip.GZIPInputStream;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
-import javax.xml.transform.stream.StreamSource;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
+import javax.xml.bind.JAXBException;
 
 /**
  * User interface
@@ -48,24 +52,19 @@ public class MainFrame extends javax.swing.JFrame {
     private JFileChooser fc;
     private FileList list = new FileList();
     private Thread convertThread;
+    /** Searches the folders added last, null if no search is running */
+    private FolderScanner scanner;
+    /** Shared by all conversions of the application, see ConversionEngine */
+    private static final ConversionEngine ENGINE = ConversionEngine.getDefault();
+    /** System property with the number of files converted at the same time */
+    private static final String PARALLELISM_PROPERTY = "canbabel.parallelism";
+    /** System property with a file to write the complete log to */
+    private static final String LOG_FILE_PROPERTY = "canbabel.logfile";
     public Preferences prefs = Preferences.userNodeForPackage(this.getClass());
-    private FileFilter directoryFilter = new FileFilter() {
-        @Override
-        public boolean accept(File file) {
-            return file.isDirectory();
-        }
-    };
-    private FileFilter dbcFilter = new FileFilter() {
-
-        @Override
-        public boolean accept(File file) {
-            return file.getName().toLowerCase().endsWith(".dbc");
-        }
-    };
-
     /** Creates new form MainFrame */
     public MainFrame() {
         initComponents();
+        initLog();
         // Preferences prefs = Preferences.userNodeForPackage(this.getClass());
         fc = new JFileChooser(prefs.get("user.dir", "."));
 
@@ -89,21 +88,95 @@ public class MainFrame extends javax.swing.JFrame {
         });
         fc.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
         fc.setMultiSelectionEnabled(true);
-    }
 
-    private List<File> filesForDirectory(File directory) {
-        ArrayList<File> files = new ArrayList<File>();
+        /* Build JAXB context and schema while the user selects files */
+        Thread warmUp = new Thread(new Runnable() {
 
-        File[] dbcFiles = directory.listFiles(dbcFilter);
-        files.addAll(Arrays.asList(dbcFiles));
+            @Override
+            public void run() {
+                try {
+                    ENGINE.warmUp();
+                } catch (JAXBException ex) {
+                    ex.printStackTrace(logWriter);
+                }
+            }
+        }, "ConversionEngine warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
 
-        File[] dirs = directory.listFiles(directoryFilter);
+    /**
+     * Connects the log to the debug info area. The complete log is written to
+     * the file given by the canbabel.logfile system property or chosen from
+     * the context menu of the area.
+     */
+    private void initLog() {
+        logOutput.setTextArea(debugInfoArea);
 
-        for (File dir : dirs) {
-            files.addAll(filesForDirectory(dir));
+        String logFile = System.getProperty(LOG_FILE_PROPERTY);
+        if (logFile != null) {
+            try {
+                logOutput.spillTo(new File(logFile));
+            } catch (IOException ex) {
+                ex.printStackTrace(logWriter);
+            }
         }
 
-        return files;
+        final JCheckBoxMenuItem spillItem = new JCheckBoxMenuItem("Write log to file...",
+                logOutput.getSpillFile() != null);
+        spillItem.addActionListener(new java.awt.event.ActionListener() {
+
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                if (!spillItem.isSelected()) {
+                    logOutput.stopSpilling();
+                    return;
+                }
+                JFileChooser chooser = new JFileChooser(prefs.get("user.dir", "."));
+                if (chooser.showSaveDialog(MainFrame.this) == JFileChooser.APPROVE_OPTION) {
+                    try {
+                        logOutput.spillTo(chooser.getSelectedFile());
+                        return;
+                    } catch (IOException ex) {
+                        ex.printStackTrace(logWriter);
+                        logWriter.flush();
+                    }
+                }
+                spillItem.setSelected(false);
+            }
+        });
+        JPopupMenu popup = new JPopupMenu();
+        popup.add(spillItem);
+        debugInfoArea.setComponentPopupMenu(popup);
+    }
+
+    /**
+     * Adds the DBC files of the folders to the list while the folders are
+     * searched in the background. Converting is not possible until the search
+     * has finished or has been stopped.
+     */
+    private void scanFolders(List<File> folders) {
+        final String addText = addFilesOrFoldersButton.getText();
+
+        scanner = new FolderScanner(folders, new FolderScanner.Listener() {
+
+            @Override
+            public void found(List<File> files) {
+                list.addFiles(files);
+                progressBar.setString(list.getSize() + " files");
+            }
+
+            @Override
+            public void finished(boolean cancelled) {
+                scanner = null;
+                addFilesOrFoldersButton.setText(addText);
+                convertButton.setEnabled(true);
+                progressBar.setString("");
+            }
+        });
+        addFilesOrFoldersButton.setText("Stop adding");
+        convertButton.setEnabled(false);
+        scanner.start();
     }
 
     /**
@@ -298,6 +371,12 @@ public class MainFrame extends javax.swing.JFrame {
 
 
     private void addFilesOrFoldersButtonActionPerformed(java.awt.event.ActionEvent evt) {// GEN-FIRST:event_addFilesOrFoldersButtonActionPerformed
+        /* While folders are searched the button stops the search */
+        if (scanner != null) {
+            scanner.cancel();
+            return;
+        }
+
         int returnVal = fc.showOpenDialog(this);
         /** new code */
         String path = fc.getCurrentDirectory().getAbsolutePath();
@@ -307,19 +386,21 @@ public class MainFrame extends javax.swing.JFrame {
         if (returnVal == JFileChooser.APPROVE_OPTION) {
 
             File[] files = fc.getSelectedFiles();
+            List<File> selectedFiles = new ArrayList<File>();
+            List<File> folders = new ArrayList<File>();
 
             for (File f : files) {
                 if (f.isDirectory()) {
-                    List<File> dirFiles = filesForDirectory(f);
-
-                    for (File fi : dirFiles) {
-                        list.addFile(fi);
-                    }
-
+                    folders.add(f);
                 } else {
-                    list.addFile(f);
+                    selectedFiles.add(f);
                 }
             }
+            list.addFiles(selectedFiles);
+
+            if (!folders.isEmpty()) {
+                scanFolders(folders);
+            }
         }
     }// GEN-LAST:event_addFilesOrFoldersButtonActionPerformed
 
@@ -357,10 +438,24 @@ public class MainFrame extends javax.swing.JFrame {
         if (args.length == 0) {
             /* GUI mode */
             startGUI();
+        } else if ("-batch".equals(args[0])) {
+            System.exit(BatchCommandLine.run(Arrays.copyOfRange(args, 1, args.length), System.out));
+        } else if ("-watch".equals(args[0])) {
+            System.exit(DirectoryWatcher.run(Arrays.copyOfRange(args, 1, args.length), System.out));
+        } else if ("-daemon".equals(args[0])) {
+            System.exit(ConversionDaemon.run(Arrays.copyOfRange(args, 1, args.length), System.out));
+        } else if ("-client".equals(args[0])) {
+            System.exit(DaemonClient.run(Arrays.copyOfRange(args, 1, args.length), System.out));
         } else if (args.length == 2) {
-            startCmdLine(args[0], args[1]);
+            startCmdLine(args[0], args[1], null);
+        } else if (args.length == 3 && ("-stax".equals(args[0]) || "-stream".equals(args[0]))) {
+            startCmdLine(args[1], args[2], args[0]);
         } else {
-            System.out.println("Usage: CANBabel.jar [dbc-in  kcd-out]");
+            System.out.println("Usage: CANBabel.jar [[-stax|-stream] dbc-in  kcd-out]");
+            System.out.println("       " + BatchCommandLine.USAGE_TEXT);
+            System.out.println("       " + DirectoryWatcher.USAGE_TEXT);
+            System.out.println("       " + ConversionDaemon.USAGE_TEXT);
+            System.out.println("       " + DaemonClient.USAGE_TEXT);
         }
 
     }
@@ -402,25 +497,49 @@ public class MainFrame extends javax.swing.JFrame {
         });
     }
 
-    private static void startCmdLine(String dbc, String kcd) {
+    /**
+     * Converts a single file without user interface.
+     *
+     * @param dbc    DBC file to read
+     * @param kcd    KCD file to write
+     * @param option "-stax" to write the KCD file with the StAX based writer
+     *               instead of JAXB, "-stream" to convert in two passes
+     *               without holding the network in memory, null otherwise
+     */
+    private static void startCmdLine(String dbc, String kcd, String option) {
 
         File dbcfile = new File(dbc);
         File kcdfile = new File(kcd);
 
         if (dbcfile.canRead()) {
-            DbcReader reader = new DbcReader();
-            if (reader.parseFile(dbcfile, System.out)) {
-                reader.writeKcdFile(kcdfile, true, false);
-
-                /* Validate the result */
-                StreamSource source;
-                source = new StreamSource(kcdfile);
-
-                SchemaValidator validator = new SchemaValidator(System.out);
-
-                if (validator.validate(source) != true) {
-                    System.out.println("Failed to validate output KCD. Continue at your own risk.");
+            /* Output files ending with .gz are compressed */
+            boolean gzip = kcd.endsWith(".gz");
+            boolean converted;
+            boolean valid;
+            if ("-stream".equals(option)) {
+                StreamingDbcConverter converter = new StreamingDbcConverter();
+                converter.conversionEngine(ENGINE);
+                converter.validateKcdFile(true);
+                converted = converter.convert(dbcfile, kcdfile, true, gzip, System.out);
+                valid = converter.isKcdFileValid();
+            } else {
+                DbcReader reader = new DbcReader();
+                reader.conversionEngine(ENGINE);
+                reader.streamingKcdWriter("-stax".equals(option));
+                reader.validateKcdFile(true);
+                converted = reader.parseFile(dbcfile, System.out);
+                if (converted) {
+                    for (NetworkChecker.Finding finding : new NetworkChecker().check(reader.getNetwork())) {
+                        System.out.println(finding);
+                    }
+                    converted = reader.writeKcdFile(kcdfile, true, gzip);
                 }
+                valid = reader.isKcdFileValid();
+            }
+
+            /* The result has been validated while it was written */
+            if (converted && valid != true) {
+                System.out.println("Failed to validate output KCD. Continue at your own risk.");
             }
         }
     }
@@ -443,25 +562,8 @@ public class MainFrame extends javax.swing.JFrame {
     private javax.swing.JButton removeButton;
     private javax.swing.JPanel settingsPanel;
     // End of variables declaration//GEN-END:variables
-    OutputStream logOutput = new OutputStream() {
-
-        private StringBuilder string = new StringBuilder();
-
-        @Override
-        public void write(int b) throws IOException {
-            this.string.append((char) b);
-        }
-
-        @Override
-        public String toString() {
-            return this.string.toString();
-        }
-
-        @Override
-        public void flush() throws IOException {
-            debugInfoArea.setText(string.toString());
-        }
-    };
+    /** Bounded log shown in the debug info area */
+    LogConsole logOutput = new LogConsole();
 
     PrintWriter logWriter = new PrintWriter(logOutput);
     private Runnable convertRunnable = new Runnable() {
@@ -481,23 +583,16 @@ public class MainFrame extends javax.swing.JFrame {
             prettyprintCheckbox.setEnabled(false);
             uselessCheckbox.setEnabled(false);
 
-            SchemaValidator schema_validator = new SchemaValidator(logOutput);
+            final boolean gzip = gzippedCheckbox.isSelected();
+            List<File> files = new ArrayList<File>();
 
+            /* Ask for overwriting before the conversions run in parallel */
             for (File f : list.getFiles()) {
-
-                String filename = f.getPath();
-
-                if (gzippedCheckbox.isSelected()) {
-                    filename = filename.substring(0, filename.length() - 4) + ".kcd.gz";
-                } else {
-                    filename = filename.substring(0, filename.length() - 4) + ".kcd";
-                }
-
-                File newFile = new File(filename);
+                File newFile = BatchConverter.kcdFile(f, gzip);
 
                 if (newFile.exists() && !overwriteCheckbox.isSelected()) {
                     int answer = JOptionPane.showConfirmDialog(addFilesOrFoldersButton,
-                            "File " + filename + " already exists. Overwrite?");
+                            "File " + newFile.getPath() + " already exists. Overwrite?");
 
                     if (answer == JOptionPane.NO_OPTION) {
                         progressBar.setValue(progressBar.getValue() + 1);
@@ -508,57 +603,66 @@ public class MainFrame extends javax.swing.JFrame {
                         return;
                     }
                 }
+                files.add(f);
+            }
 
-                if (Thread.interrupted()) {
-                    break;
-                }
-
-                progressBar.setString("Converting " + (progressBar.getValue() + 1) + " of " + progressBar.getMaximum()
-                        + ": " + f.getName());
-                logWriter.write("### Converting " + f.getName() + " ###\n");
-                logWriter.flush();
-                try {
-                    DbcReader reader = new DbcReader();
-                    reader.omitUnconsumedSignals(uselessCheckbox.isSelected());
-                    if (reader.parseFile(f, logOutput)) {
-                        reader.writeKcdFile(newFile, prettyprintCheckbox.isSelected(), gzippedCheckbox.isSelected());
-
-                        /* Validate the result */
-                        StreamSource source;
-
-                        if (gzippedCheckbox.isSelected()) {
-                            source = new StreamSource(new GZIPInputStream(new FileInputStream(newFile)));
-                        } else {
-                            source = new StreamSource(newFile);
-                        }
-                        if (schema_validator.validate(source) != true) {
-                            logWriter.println("Failed to validate output KCD.");
-                        }
-                    }
-
-                    if (Thread.interrupted()) {
-                        break;
+            BatchConverter converter = new BatchConverter();
+            converter.conversionEngine(ENGINE);
+            converter.parallelism(Integer.getInteger(PARALLELISM_PROPERTY,
+                    Runtime.getRuntime().availableProcessors()));
+            converter.prettyPrint(prettyprintCheckbox.isSelected());
+            converter.gzip(gzip);
+            converter.omitUnconsumedSignals(uselessCheckbox.isSelected());
+
+            progressBar.setString("Converting " + files.size() + " files");
+            /* Results arrive on the worker threads, the progress bar is updated on the EDT */
+            final AtomicInteger done = new AtomicInteger(progressBar.getValue());
+            final int total = progressBar.getMaximum();
+            try {
+                converter.convert(files, new BatchConverter.Listener() {
+
+                    @Override
+                    public void finished(BatchConverter.Result result) {
+                        /* Log of a file is written at once, not interleaved with others */
+                        logWriter.write("### Converting " + result.getDbcFile().getName() + " ###\n");
+                        logWriter.write(result.getLog());
+                        logWriter.flush();
+                        final int value = done.incrementAndGet();
+                        final String text = "Converted " + value + " of " + total + ": "
+                                + result.getDbcFile().getName();
+                        SwingUtilities.invokeLater(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                progressBar.setValue(value);
+                                progressBar.setString(text);
+                            }
+                        });
                     }
-                } catch (IOException ex) {
-                    ex.printStackTrace(logWriter);
-                }
-
-                logWriter.flush();
-                progressBar.setValue(progressBar.getValue() + 1);
+                });
+            } catch (InterruptedException ex) {
+                /* Aborted, unfinished files have been cancelled */
             }
 
-            list.clear();
+            /* Queued behind the last progress update */
+            SwingUtilities.invokeLater(new Runnable() {
 
-            addFilesOrFoldersButton.setEnabled(true);
-            removeButton.setEnabled(true);
-            convertButton.setText("Convert");
+                @Override
+                public void run() {
+                    list.clear();
 
-            progressBar.setValue(0);
-            progressBar.setString("");
-            progressBar.setEnabled(false);
+                    addFilesOrFoldersButton.setEnabled(true);
+                    removeButton.setEnabled(true);
+                    convertButton.setText("Convert");
 
-            gzippedCheckbox.setEnabled(true);
-            prettyprintCheckbox.setEnabled(true);
+                    progressBar.setValue(0);
+                    progressBar.setString("");
+                    progressBar.setEnabled(false);
+
+                    gzippedCheckbox.setEnabled(true);
+                    prettyprintCheckbox.setEnabled(true);
+                }
+            });
         }
     };
 }
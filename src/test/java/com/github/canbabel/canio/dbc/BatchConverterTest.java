@@ -0,0 +1,172 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks converting batches of files in parallel.
+ */
+public class BatchConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String[] RESOURCES = { "canfdtest.dbc", "read_in_test.dbc", "CLI.dbc" };
+
+    /* The documents are created at different times */
+    private static String withoutDate(File kcd) throws IOException {
+        return new String(Files.readAllBytes(kcd.toPath()), StandardCharsets.UTF_8).replaceFirst("date=\"[^\"]*\"",
+                "");
+    }
+
+    private List<File> copyResources(int copies) throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < copies; i++) {
+            for (String name : RESOURCES) {
+                URL url = Thread.currentThread().getContextClassLoader().getResource(name);
+                File copy = new File(folder.getRoot(), i + name);
+                Files.copy(new File(url.getPath()).toPath(), copy.toPath());
+                files.add(copy);
+            }
+        }
+        return files;
+    }
+
+    @Test
+    public void namesKcdFiles() {
+        assertEquals(new File("dir/a.kcd"), BatchConverter.kcdFile(new File("dir/a.dbc"), false));
+        assertEquals(new File("dir/a.kcd.gz"), BatchConverter.kcdFile(new File("dir/a.DBC"), true));
+    }
+
+    @Test
+    public void sameFilesAsSequentialConversion() throws Exception {
+        List<File> files = copyResources(3);
+        BatchConverter converter = new BatchConverter();
+        converter.parallelism(4);
+
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final List<File> finished = Collections.synchronizedList(new ArrayList<File>());
+        List<BatchConverter.Result> results = converter.convert(files, result -> {
+            maxActive.set(Math.max(maxActive.get(), active.incrementAndGet()));
+            finished.add(result.getDbcFile());
+            active.decrementAndGet();
+        });
+
+        assertEquals(files.size(), results.size());
+        assertEquals(files.size(), finished.size());
+        assertEquals(1, maxActive.get());
+        for (int i = 0; i < files.size(); i++) {
+            BatchConverter.Result result = results.get(i);
+            assertEquals(files.get(i), result.getDbcFile());
+            assertTrue(result.isConverted());
+            assertTrue(result.isValid());
+            assertTrue(result.getFindings().isEmpty());
+            assertEquals("", result.getLog());
+
+            DbcReader reader = new DbcReader();
+            assertTrue(reader.parseFile(files.get(i), new ByteArrayOutputStream()));
+            File expected = folder.newFile();
+            assertTrue(reader.writeKcdFile(expected, true, false));
+            assertEquals(withoutDate(expected), withoutDate(result.getKcdFile()));
+        }
+    }
+
+    @Test
+    public void collectsLogPerFile() throws Exception {
+        File missing = new File(folder.getRoot(), "missing.dbc");
+        List<File> files = copyResources(1);
+        files.add(1, missing);
+
+        BatchConverter converter = new BatchConverter();
+        converter.gzip(true);
+        List<BatchConverter.Result> results = converter.convert(files, null);
+
+        assertFalse(results.get(1).isConverted());
+        assertTrue(results.get(1).getLog(), results.get(1).getLog().contains("could not open file"));
+        assertFalse(results.get(1).getKcdFile().exists());
+        assertTrue(results.get(0).isConverted());
+        assertEquals("", results.get(0).getLog());
+        assertTrue(results.get(0).getKcdFile().getName().endsWith(".kcd.gz"));
+    }
+
+    @Test
+    public void interruptCancelsRemainingFiles() throws Exception {
+        File dbc = folder.newFile("large.dbc");
+        DbcGenerator generator = new DbcGenerator();
+        generator.standardMessages(1000);
+        generator.extendedMessages(4000);
+        generator.write(dbc);
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 20; i++) {
+            File copy = new File(folder.getRoot(), "large" + i + ".dbc");
+            Files.copy(dbc.toPath(), copy.toPath());
+            files.add(copy);
+        }
+
+        final BatchConverter converter = new BatchConverter();
+        converter.parallelism(2);
+        final CountDownLatch first = new CountDownLatch(1);
+        final AtomicInteger reported = new AtomicInteger();
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        Thread batch = new Thread(() -> {
+            try {
+                converter.convert(files, result -> {
+                    reported.incrementAndGet();
+                    first.countDown();
+                });
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        batch.start();
+        first.await();
+        batch.interrupt();
+        batch.join(10000);
+
+        assertFalse(batch.isAlive());
+        assertTrue(thrown.get() instanceof InterruptedException);
+        int afterAbort = reported.get();
+        assertTrue(afterAbort < files.size());
+        Thread.sleep(200);
+        assertEquals(afterAbort, reported.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidParallelism() {
+        new BatchConverter().parallelism(0);
+    }
+}
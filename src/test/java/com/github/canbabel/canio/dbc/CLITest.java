@@ -23,8 +23,12 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.net.URL;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.*;
 
@@ -57,7 +61,13 @@ public class CLITest {
         } finally {
             System.setOut(recover);
         }
-        assertEquals("Usage: CANBabel.jar [dbc-in  kcd-out]", sysOutContent.toString().trim());
+        assertEquals("Usage: CANBabel.jar [[-stax|-stream] dbc-in  kcd-out]" + System.lineSeparator()
+                + "       CANBabel.jar -batch [-gzip] [-compact] [-omit] [-overwrite] [-threads n]"
+                + " [-cache directory] file|directory|glob..." + System.lineSeparator()
+                + "       CANBabel.jar -watch [-gzip] [-compact] [-omit] [-threads n] [-debounce ms] directory..."
+                + System.lineSeparator()
+                + "       CANBabel.jar -daemon [-socket path|-port n]" + System.lineSeparator()
+                + "       CANBabel.jar -client [-socket path|-port n] -shutdown|batch options and inputs", sysOutContent.toString().trim());
     }
 
     @Test
@@ -75,5 +85,31 @@ public class CLITest {
             fail("main shouldn't throw exception");
         }
     }
-}
 
+    @Test
+    public void streamingWriterTest() {
+        File fkcd = new File(pkcd);
+        fkcd.delete();
+        MainFrame.main(new String[]{"-stax", pdbc, pkcd});
+        assertTrue("CLI didn't create kcd file", fkcd.exists());
+    }
+
+    @Test
+    public void streamingConversionTest() {
+        File fkcd = new File(pkcd);
+        fkcd.delete();
+        MainFrame.main(new String[]{"-stream", pdbc, pkcd});
+        assertTrue("CLI didn't create kcd file", fkcd.exists());
+    }
+
+    @Test
+    public void gzippedOutputTest() throws IOException {
+        File fkcd = new File(pkcd + ".gz");
+        fkcd.delete();
+        MainFrame.main(new String[]{pdbc, fkcd.getPath()});
+        try (InputStream in = new GZIPInputStream(new FileInputStream(fkcd))) {
+            assertTrue(new String(in.readAllBytes(), "UTF-8").contains("<NetworkDefinition"));
+        }
+        fkcd.delete();
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ConversionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File resource(String name) {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(name);
+        return new File(url.getPath());
+    }
+
+    private byte[] convert(File dbc, File kcd, boolean gzip) throws IOException {
+        DbcReader reader = new DbcReader();
+        reader.reproducibleOutput(true);
+        /* Small blocks, so the compressed file consists of several of them */
+        reader.gzipBlockSize(ParallelGzipOutputStream.MIN_BLOCK_SIZE);
+        assertTrue(reader.parseFile(dbc, new ByteArrayOutputStream()));
+        assertTrue(reader.writeKcdFile(kcd, true, gzip));
+        return Files.readAllBytes(kcd.toPath());
+    }
+
+    @Test
+    public void reproducibleOutputIsIdentical() throws IOException {
+        File dbc = resource("read_in_test.dbc");
+        File kcd = folder.newFile("out.kcd");
+
+        byte[] first = convert(dbc, kcd, false);
+        assertArrayEquals(first, convert(dbc, kcd, false));
+        assertFalse(new String(first, StandardCharsets.UTF_8).contains("date="));
+
+        File gz = folder.newFile("out.kcd.gz");
+        assertArrayEquals(convert(dbc, gz, true), convert(dbc, gz, true));
+    }
+
+    @Test
+    public void keyDependsOnContentOptionsAndVersion() throws IOException {
+        File dbc = folder.newFile("a.dbc");
+        Files.write(dbc.toPath(), "VERSION \"\"\n".getBytes(StandardCharsets.ISO_8859_1));
+        File same = folder.newFile("b.dbc");
+        Files.write(same.toPath(), "VERSION \"\"\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        ConversionCache cache = new ConversionCache(folder.getRoot(), "1.0");
+        String key = cache.key(dbc, true, false, false);
+        assertEquals(64, key.length());
+        assertEquals(key, cache.key(same, true, false, false));
+        assertNotEquals(key, cache.key(dbc, false, false, false));
+        assertNotEquals(key, cache.key(dbc, true, true, false));
+        assertNotEquals(key, cache.key(dbc, true, false, true));
+        assertNotEquals(key, new ConversionCache(folder.getRoot(), "1.1").key(dbc, true, false, false));
+
+        Files.write(same.toPath(), "VERSION \"1\"\n".getBytes(StandardCharsets.ISO_8859_1));
+        assertNotEquals(key, cache.key(same, true, false, false));
+    }
+
+    @Test
+    public void versionIdentifiesBuild() throws IOException {
+        /* Tests run from the class directory, which has no manifest */
+        String version = ConversionCache.toolVersion();
+        assertNotNull(version);
+        assertTrue(version, version.startsWith("development "));
+
+        File classes = folder.newFolder("classes");
+        File a = new File(classes, "A.class");
+        Files.write(a.toPath(), new byte[] { 1 });
+        String hash = ConversionCache.codeHash(classes.toPath());
+        assertEquals(hash, ConversionCache.codeHash(classes.toPath()));
+        Files.write(a.toPath(), new byte[] { 2 });
+        String changed = ConversionCache.codeHash(classes.toPath());
+        assertNotEquals(hash, changed);
+        assertTrue(a.renameTo(new File(classes, "B.class")));
+        assertNotEquals(changed, ConversionCache.codeHash(classes.toPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownBuildDisablesCache() throws IOException {
+        ConversionCache cache = new ConversionCache(folder.getRoot(), null);
+        assertFalse(cache.isEnabled());
+        cache.key(folder.newFile("a.dbc"), true, false, false);
+    }
+
+    @Test
+    public void restoresStoredFiles() throws IOException {
+        ConversionCache cache = new ConversionCache(new File(folder.getRoot(), "cache"), "1.0");
+        File dbc = folder.newFile("a.dbc");
+        String key = cache.key(dbc, true, false, false);
+        File kcd = new File(folder.getRoot(), "a.kcd");
+
+        assertFalse(cache.contains(key));
+        assertFalse(cache.restore(key, kcd));
+        assertFalse(kcd.exists());
+
+        Files.write(kcd.toPath(), "<NetworkDefinition/>".getBytes(StandardCharsets.UTF_8));
+        cache.store(key, kcd);
+        assertTrue(cache.contains(key));
+
+        Files.write(kcd.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        assertTrue(cache.restore(key, kcd));
+        assertEquals("<NetworkDefinition/>", new String(Files.readAllBytes(kcd.toPath()), StandardCharsets.UTF_8));
+        assertEquals(1, cache.entry(key).getParentFile().list().length);
+    }
+}
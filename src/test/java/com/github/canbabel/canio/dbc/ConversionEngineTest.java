@@ -0,0 +1,147 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Validator;
+
+import org.xml.sax.SAXException;
+
+import com.github.canbabel.canio.ui.SchemaValidator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the conversion engine shares its heavy resources and hands out
+ * Marshaller and Validator per thread.
+ */
+public class ConversionEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static File resource(String name) {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(name);
+        return new File(url.getPath());
+    }
+
+    @Test
+    public void sharesContextAndSchema() throws JAXBException {
+        ConversionEngine engine = new ConversionEngine();
+        engine.warmUp();
+        assertSame(engine.context(), engine.context());
+        assertNotNull(engine.schema());
+        assertSame(engine.schema(), engine.schema());
+        assertNull(engine.schemaError());
+    }
+
+    @Test
+    public void oneMarshallerAndValidatorPerThread() throws Exception {
+        final ConversionEngine engine = new ConversionEngine();
+        Marshaller marshaller = engine.marshaller(true);
+        Validator validator = engine.validator();
+        assertSame(marshaller, engine.marshaller(false));
+        assertSame(validator, engine.validator());
+
+        final AtomicReference<Marshaller> otherMarshaller = new AtomicReference<Marshaller>();
+        final AtomicReference<Validator> otherValidator = new AtomicReference<Validator>();
+        Thread thread = new Thread(() -> {
+            try {
+                otherMarshaller.set(engine.marshaller(true));
+                otherValidator.set(engine.validator());
+            } catch (JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertNotNull(otherMarshaller.get());
+        assertNotSame(marshaller, otherMarshaller.get());
+        assertNotSame(validator, otherValidator.get());
+    }
+
+    /* A reused Marshaller must not keep the formatting of the previous file */
+    @Test
+    public void reusedMarshallerFollowsPrettyPrint() throws IOException {
+        ConversionEngine engine = new ConversionEngine();
+        DbcReader reader = new DbcReader();
+        reader.conversionEngine(engine);
+        assertTrue(reader.parseFile(resource("canfdtest.dbc"), new ByteArrayOutputStream()));
+
+        File pretty = folder.newFile();
+        File compact = folder.newFile();
+        File prettyAgain = folder.newFile();
+        assertTrue(reader.writeKcdFile(pretty, true, false));
+        assertTrue(reader.writeKcdFile(compact, false, false));
+        assertTrue(reader.writeKcdFile(prettyAgain, true, false));
+
+        String prettyText = new String(Files.readAllBytes(pretty.toPath()), StandardCharsets.UTF_8);
+        String compactText = new String(Files.readAllBytes(compact.toPath()), StandardCharsets.UTF_8);
+        assertTrue(prettyText.contains("\n    <Document"));
+        assertFalse(compactText.contains("\n    <Document"));
+        assertArrayEquals(Files.readAllBytes(pretty.toPath()), Files.readAllBytes(prettyAgain.toPath()));
+    }
+
+    @Test
+    public void validatesWithSharedSchema() throws IOException {
+        ConversionEngine engine = new ConversionEngine();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        SchemaValidator validator = new SchemaValidator(log, engine);
+
+        for (String name : new String[] { "canfdtest.dbc", "read_in_test.dbc" }) {
+            DbcReader reader = new DbcReader();
+            reader.conversionEngine(engine);
+            assertTrue(reader.parseFile(resource(name), new ByteArrayOutputStream()));
+            File kcd = folder.newFile();
+            assertTrue(reader.writeKcdFile(kcd, true, false));
+            assertTrue(name, validator.validate(new StreamSource(kcd)));
+        }
+        assertEquals(0, log.size());
+
+        /* Schema violations are logged, malformed documents also fail */
+        validator.validate(new StreamSource(new StringReader("<Bus/>")));
+        assertTrue(log.size() > 0);
+        assertFalse(validator.validate(new StreamSource(new StringReader("<Bus>"))));
+    }
+
+    @Test(expected = SAXException.class)
+    public void validatorRejectsInvalidDocument() throws IOException, SAXException {
+        new ConversionEngine().validator().validate(new StreamSource(new StringReader("<Bus/>")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingEngine() {
+        new DbcReader().conversionEngine(null);
+    }
+}
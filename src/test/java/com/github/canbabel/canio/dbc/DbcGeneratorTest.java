@@ -0,0 +1,105 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the synthetic DBC generator.
+ */
+public class DbcGeneratorTest {
+
+    private static DbcGenerator generator(long seed) {
+        DbcGenerator generator = new DbcGenerator();
+        generator.seed(seed);
+        generator.nodes(4);
+        generator.standardMessages(50);
+        generator.extendedMessages(40);
+        generator.fdMessages(10);
+        generator.signalsPerMessage(6);
+        generator.multiplexedMessages(20);
+        generator.multiplexGroups(3);
+        generator.valueDescriptions(100);
+        generator.comments(150);
+        generator.attributes(200);
+        return generator;
+    }
+
+    private static String generate(DbcGenerator generator) throws IOException {
+        StringWriter writer = new StringWriter();
+        generator.write(writer);
+        return writer.toString();
+    }
+
+    private static long count(String dbc, String prefix) {
+        return dbc.lines().filter(l -> l.startsWith(prefix)).count();
+    }
+
+    @Test
+    public void sameSeedGivesSameFile() throws IOException {
+        assertEquals(generate(generator(42)), generate(generator(42)));
+        assertNotEquals(generate(generator(42)), generate(generator(43)));
+    }
+
+    @Test
+    public void generatedFileIsComplete() throws IOException {
+        String dbc = generate(generator(42));
+
+        assertEquals(100, count(dbc, "BO_ "));
+        assertEquals(100, count(dbc, "VAL_ "));
+        assertEquals(150, count(dbc, "CM_ "));
+        assertEquals(20, count(dbc, " SG_ Mux"));
+
+        DbcReader reader = new DbcReader();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        assertTrue(reader.parse(new StringReader(dbc), "synthetic", log));
+        assertEquals("", log.toString());
+
+        List<Message> messages = reader.getNetwork().getBus().get(0).getMessage();
+        assertEquals(100, messages.size());
+        int fd = 0;
+        int multiplexed = 0;
+        for (Message message : messages) {
+            fd += message.isFd() ? 1 : 0;
+            multiplexed += message.getMultiplex().isEmpty() ? 0 : 1;
+        }
+        assertEquals(10, fd);
+        assertEquals(20, multiplexed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyStandardMessages() throws IOException {
+        DbcGenerator generator = new DbcGenerator();
+        generator.standardMessages(0x801);
+        generate(generator);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noSignals() {
+        new DbcGenerator().signalsPerMessage(0);
+    }
+}
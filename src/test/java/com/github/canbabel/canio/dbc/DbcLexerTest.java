@@ -0,0 +1,187 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DbcLexerTest {
+
+    private static final String CONTENT = "VERSION \"\"\r\n\r\nNS_ : \n\tCM_\n\tBA_\r\rBS_:\n"
+            + "BU_: Motor Brake\r\n\r\n"
+            + "BO_ 1984 Msg: 8 Motor\r\n"
+            + " SG_ Sig : 0|8@1+ (1,0) [0|255] \"°C\" Brake\r\n"
+            + "\r\n"
+            + "CM_ SG_ 1984 Sig \"first line\nsecond line\";\n"
+            + "VAL_ 1984 Sig 1 \"on\" 0 \"off\" ;";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class Collector implements DbcLexer.BlockHandler {
+        private final List<String> blocks = new ArrayList<String>();
+
+        @Override
+        public void block(DbcKeyword keyword, StringBuilder block) {
+            blocks.add(keyword + ":" + block);
+        }
+    }
+
+    private static List<String> readChars(String content) throws IOException {
+        Collector collector = new Collector();
+        new DbcLexer(collector).read(new BufferedReader(new StringReader(content)));
+        return collector.blocks;
+    }
+
+    @Test
+    public void testBlocks() throws IOException {
+        List<String> blocks = readChars(CONTENT);
+
+        assertEquals(7, blocks.size());
+        assertEquals("NEW_SYMBOLS:NS_ : \tCM_\tBA_", blocks.get(1));
+        assertEquals("MESSAGE:BO_ 1984 Msg: 8 Motor SG_ Sig : 0|8@1+ (1,0) [0|255] \"°C\" Brake", blocks.get(4));
+        assertEquals("COMMENT:CM_ SG_ 1984 Sig \"first linesecond line\";", blocks.get(5));
+    }
+
+    @Test
+    public void testKeywordsInsideQuotedString() throws IOException {
+        String content = "CM_ SG_ 1984 Sig \"first line\nFILTER: not a block\nCAT_ \\\"quoted\\\" either\";\n"
+                + "CAT_DEF_ 1 Cat 0;\n"
+                + "CM_ BO_ 1984 \"closed\";\n"
+                + "FILTER 0 Cat;";
+        List<String> blocks = readChars(content);
+
+        assertEquals(4, blocks.size());
+        assertEquals("COMMENT:CM_ SG_ 1984 Sig \"first lineFILTER: not a blockCAT_ \\\"quoted\\\" either\";",
+                blocks.get(0));
+        assertEquals("CATEGORY_DEFINITION:CAT_DEF_ 1 Cat 0;", blocks.get(1));
+        assertEquals("FILTER:FILTER 0 Cat;", blocks.get(3));
+
+        Collector collector = new Collector();
+        new DbcLexer(collector).read(ByteBuffer.wrap(content.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(blocks, collector.blocks);
+    }
+
+    @Test
+    public void testBackslashAtEndOfComment() throws IOException {
+        String content = "CM_ BO_ 100 \"stored in C:\\data\\\";\n"
+                + "BO_ 200 B: 8 Vector__XXX\n"
+                + " SG_ S : 0|8@1+ (1,0) [0|255] \"\" Vector__XXX\n"
+                + "CM_ BO_ 200 \"unbalanced \" quote\";\n"
+                + "BO_ 300 C: 8 Vector__XXX";
+        List<String> blocks = readChars(content);
+
+        assertEquals(4, blocks.size());
+        assertEquals("COMMENT:CM_ BO_ 100 \"stored in C:\\data\\\";", blocks.get(0));
+        assertEquals("MESSAGE:BO_ 200 B: 8 Vector__XXX SG_ S : 0|8@1+ (1,0) [0|255] \"\" Vector__XXX",
+                blocks.get(1));
+        assertEquals("MESSAGE:BO_ 300 C: 8 Vector__XXX", blocks.get(3));
+
+        Collector collector = new Collector();
+        new DbcLexer(collector).read(ByteBuffer.wrap(content.getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(blocks, collector.blocks);
+    }
+
+    @Test
+    public void testByteBufferMatchesReader() throws IOException {
+        Collector collector = new Collector();
+        new DbcLexer(collector).read(ByteBuffer.wrap(CONTENT.getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertEquals(readChars(CONTENT), collector.blocks);
+    }
+
+    @Test
+    public void testMappingWindows() throws IOException {
+        File file = folder.newFile("windows.dbc");
+        Files.write(file.toPath(), CONTENT.getBytes(StandardCharsets.ISO_8859_1));
+        List<String> expected = readChars(CONTENT);
+
+        for (int window = 64; window <= CONTENT.length() + 1; window++) {
+            Collector collector = new Collector();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                new DbcLexer(collector).read(channel, window);
+            }
+            assertEquals("window " + window, expected, collector.blocks);
+        }
+    }
+
+    @Test
+    public void testLongLines() throws IOException {
+        StringBuilder content = new StringBuilder(CONTENT);
+        for (int i = 0; i < 3; i++) {
+            content.append("\r\nCM_ BO_ 1984 \"");
+            for (int j = 0; j < 50000 * (i + 1); j++) {
+                content.append((char) ('a' + j % 26));
+            }
+            content.append("\";");
+        }
+        List<String> expected = readChars(content.toString());
+
+        Collector collector = new Collector();
+        new DbcLexer(collector).read(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertEquals(expected, collector.blocks);
+    }
+
+    @Test
+    public void testBlockOffsets() throws IOException {
+        final byte[] bytes = CONTENT.getBytes(StandardCharsets.ISO_8859_1);
+        final List<String> blocks = readChars(CONTENT);
+        final List<String> ranges = new ArrayList<String>();
+        final DbcLexer[] lexer = new DbcLexer[1];
+
+        lexer[0] = new DbcLexer(new DbcLexer.BlockHandler() {
+
+            @Override
+            public void block(DbcKeyword keyword, StringBuilder block) {
+                int start = (int) lexer[0].blockStart();
+                int end = (int) lexer[0].blockEnd();
+                Collector collector = new Collector();
+                new DbcLexer(collector).read(ByteBuffer.wrap(bytes, start, end - start));
+                ranges.addAll(collector.blocks);
+            }
+        });
+        lexer[0].read(ByteBuffer.wrap(bytes));
+
+        assertEquals(blocks, ranges);
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        Collector collector = new Collector();
+        new DbcLexer(collector).read(ByteBuffer.allocate(0));
+
+        assertEquals(readChars(""), collector.blocks);
+        assertEquals(1, collector.blocks.size());
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+import com.github.canbabel.canio.kcd.Multiplex;
+import com.github.canbabel.canio.kcd.Node;
+import com.github.canbabel.canio.kcd.Signal;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DbcParserTest {
+
+    private static final File READ_IN_TEST = new File("src/test/resources/read_in_test.dbc");
+
+    /**
+     * Records the events of a parser without keeping the messages.
+     */
+    private static class Recorder extends DefaultDbcHandler {
+        private final List<String> nodes = new ArrayList<String>();
+        private final List<String> messages = new ArrayList<String>();
+        private int signals = 0;
+        private int multiplexors = 0;
+        private int multiplexedSignals = 0;
+        private int comments = 0;
+        private int valueDescriptions = 0;
+        private int attributes = 0;
+        private String version = null;
+        private Message started = null;
+
+        @Override
+        public void onVersion(String v) {
+            version = v;
+        }
+
+        @Override
+        public void onNode(String name) {
+            nodes.add(name);
+        }
+
+        @Override
+        public void onMessageStart(Message message) {
+            assertNull(started);
+            started = message;
+        }
+
+        @Override
+        public void onSignal(Message message, Signal signal) {
+            assertSame(started, message);
+            signals++;
+        }
+
+        @Override
+        public void onMultiplexor(Message message, Multiplex multiplex) {
+            assertSame(started, message);
+            multiplexors++;
+        }
+
+        @Override
+        public void onMultiplexedSignal(Message message, long count, Signal signal) {
+            assertSame(started, message);
+            multiplexedSignals++;
+        }
+
+        @Override
+        public void onMessageEnd(Message message) {
+            assertSame(started, message);
+            started = null;
+            messages.add(message.getName());
+        }
+
+        @Override
+        public void onValueDescription(LabelDescription description) {
+            valueDescriptions++;
+        }
+
+        @Override
+        public void onComment(Comment comment) {
+            comments++;
+        }
+
+        @Override
+        public void onAttribute(Attribute attribute) {
+            attributes++;
+        }
+    }
+
+    private static Recorder parse(File file, boolean parallel) throws IOException {
+        DbcParser parser = new DbcParser();
+        parser.parallelParsing(parallel);
+        Recorder recorder = new Recorder();
+        parser.parse(file, recorder, new ByteArrayOutputStream());
+        return recorder;
+    }
+
+    @Test
+    public void testEvents() throws IOException {
+        Recorder recorder = parse(READ_IN_TEST, false);
+
+        assertEquals("", recorder.version);
+        assertEquals(2, recorder.nodes.size());
+        assertEquals("Bob", recorder.nodes.get(0));
+        assertEquals(14, recorder.messages.size());
+        assertEquals(2, recorder.multiplexors);
+        assertEquals(4, recorder.comments);
+        assertEquals(2, recorder.valueDescriptions);
+        assertTrue(recorder.signals > 0);
+        assertTrue(recorder.multiplexedSignals > 0);
+        assertTrue(recorder.attributes > 0);
+    }
+
+    @Test
+    public void testReaderConsumesEvents() throws IOException {
+        Recorder recorder = parse(READ_IN_TEST, false);
+        DbcReader reader = new DbcReader();
+        assertTrue(reader.parseFile(READ_IN_TEST, new ByteArrayOutputStream()));
+
+        List<String> names = new ArrayList<String>();
+        for (Message message : reader.getNetwork().getBus().get(0).getMessage()) {
+            names.add(message.getName());
+        }
+        List<String> expected = new ArrayList<String>(recorder.messages);
+        expected.remove("VECTOR__INDEPENDENT_SIG_MSG");
+        assertEquals(expected, names);
+
+        List<String> nodes = new ArrayList<String>();
+        for (Node node : reader.getNetwork().getNode()) {
+            nodes.add(node.getName());
+        }
+        assertEquals(recorder.nodes, nodes);
+    }
+
+    @Test
+    public void testParallelEvents() throws IOException {
+        File file = new File("src/test/resources/canfdtest.dbc");
+        Recorder sequential = parse(file, false);
+        Recorder parallel = parse(file, true);
+
+        assertEquals(sequential.messages, parallel.messages);
+        assertEquals(sequential.signals, parallel.signals);
+        assertEquals(sequential.comments, parallel.comments);
+        assertEquals(sequential.attributes, parallel.attributes);
+    }
+
+    @Test
+    public void testInterruptStopsParsing() throws IOException {
+        Recorder recorder = new Recorder();
+        Thread.currentThread().interrupt();
+        try {
+            new DbcParser().parse(READ_IN_TEST, recorder, new ByteArrayOutputStream());
+            fail("Parsing not interrupted");
+        } catch (InterruptedIOException e) {
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(recorder.messages.isEmpty());
+    }
+}
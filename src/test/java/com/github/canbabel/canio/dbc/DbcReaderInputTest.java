@@ -0,0 +1,119 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a CAN database read from any supported source results in the
+ * same KCD file.
+ */
+public class DbcReaderInputTest {
+
+    private static final File DBC = new File("src/test/resources/canfdtest.dbc");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] write(DbcReader reader, String name) throws IOException {
+        assertEquals(name, reader.getNetwork().getDocument().getName());
+        reader.getNetwork().getDocument().setName("dbc");
+        reader.getNetwork().getDocument().setDate("today");
+
+        File kcd = folder.newFile();
+        assertTrue(reader.writeKcdFile(kcd, true, false));
+        return Files.readAllBytes(kcd.toPath());
+    }
+
+    @Test
+    public void testSources() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        DbcReader reader = new DbcReader();
+        assertTrue(reader.parseFile(DBC, log));
+        byte[] expected = write(reader, "canfdtest.dbc");
+
+        reader = new DbcReader();
+        assertTrue(reader.parse(DBC.toPath(), "path", log));
+        assertArrayEquals(expected, write(reader, "path"));
+
+        reader = new DbcReader();
+        try (InputStream in = Files.newInputStream(DBC.toPath())) {
+            assertTrue(reader.parse(in, "stream", log));
+        }
+        assertArrayEquals(expected, write(reader, "stream"));
+
+        reader = new DbcReader();
+        try (InputStreamReader in = new InputStreamReader(Files.newInputStream(DBC.toPath()),
+                StandardCharsets.ISO_8859_1)) {
+            assertTrue(reader.parse(in, "reader", log));
+        }
+        assertArrayEquals(expected, write(reader, "reader"));
+
+        reader = new DbcReader();
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(DBC.toPath()));
+        assertTrue(reader.parse(buffer, "buffer", log));
+        assertEquals(0, buffer.position());
+        assertArrayEquals(expected, write(reader, "buffer"));
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        DbcReader reader = new DbcReader();
+        assertTrue(reader.parseFile(DBC, log));
+        byte[] expected = write(reader, "canfdtest.dbc");
+
+        Path gz = folder.getRoot().toPath().resolve("canfdtest.dbc.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+            Files.copy(DBC.toPath(), out);
+        }
+
+        reader = new DbcReader();
+        assertTrue(reader.parse(gz, "canfdtest.dbc", log));
+        assertArrayEquals(expected, write(reader, "canfdtest.dbc"));
+
+        reader = new DbcReader();
+        assertTrue(reader.parseFile(gz.toFile(), log));
+        assertArrayEquals(expected, write(reader, "canfdtest.dbc.gz"));
+    }
+
+    @Test
+    public void testMissingPath() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        DbcReader reader = new DbcReader();
+
+        assertFalse(reader.parse(folder.getRoot().toPath().resolve("missing.dbc"), "missing", log));
+        assertTrue(log.size() > 0);
+    }
+}
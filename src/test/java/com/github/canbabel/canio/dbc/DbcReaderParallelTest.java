@@ -0,0 +1,94 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that parsing message definitions in parallel produces the same KCD
+ * file as sequential parsing.
+ */
+public class DbcReaderParallelTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] convert(File dbc, boolean parallel) throws IOException {
+        DbcReader reader = new DbcReader();
+        reader.parallelParsing(parallel);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        assertTrue(reader.parseFile(dbc, log));
+        reader.getNetwork().getDocument().setDate("today");
+
+        File kcd = folder.newFile();
+        assertTrue(reader.writeKcdFile(kcd, true, false));
+        return Files.readAllBytes(kcd.toPath());
+    }
+
+    private void assertSameOutput(File dbc) throws IOException {
+        assertArrayEquals(dbc.getName(), convert(dbc, false), convert(dbc, true));
+    }
+
+    @Test
+    public void testResources() throws IOException {
+        assertSameOutput(new File("src/test/resources/CLI.dbc"));
+        assertSameOutput(new File("src/test/resources/canfdtest.dbc"));
+        assertSameOutput(new File("src/test/resources/read_in_test.dbc"));
+    }
+
+    @Test
+    public void testManyMessages() throws IOException {
+        File file = folder.newFile("parallel.dbc");
+        try (PrintWriter w = new PrintWriter(file, "ISO-8859-1")) {
+            w.println("VERSION \"\"");
+            w.println();
+            w.println("BU_: Motor Brake");
+            w.println();
+            for (int i = 0; i < 5000; i++) {
+                w.println("BO_ " + (0x80000000L | i) + " Msg" + i + ": 8 Motor");
+                w.println(" SG_ Mux" + i + " M : 0|8@1+ (1,0) [0|255] \"\" Brake");
+                for (int s = 0; s < 6; s++) {
+                    w.println(" SG_ Sig" + i + "_" + s + " m" + (s % 2) + " : " + (8 + s * 8)
+                            + "|8@1+ (0.5,0) [0|127.5] \"V\" Brake");
+                }
+                w.println(" SG_ Plain" + i + " : 56|8@0- (1,-10) [-10|245] \"\" Vector__XXX");
+                w.println();
+                /* Duplicate identifiers, the first message has to win */
+                if (i % 100 == 0) {
+                    w.println("BO_ " + (0x80000000L | i) + " Dup" + i + ": 8 Motor");
+                    w.println();
+                }
+            }
+            for (int i = 0; i < 5000; i += 7) {
+                w.println("CM_ BO_ " + (0x80000000L | i) + " \"Message " + i + "\";");
+                w.println("VAL_ " + (0x80000000L | i) + " Sig" + i + "_0 0 \"off\" 1 \"on\" ;");
+            }
+        }
+        assertSameOutput(file);
+    }
+}
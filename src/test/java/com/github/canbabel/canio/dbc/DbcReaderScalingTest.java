@@ -0,0 +1,119 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.BasicSignalType;
+import com.github.canbabel.canio.kcd.Message;
+import com.github.canbabel.canio.kcd.Multiplex;
+import com.github.canbabel.canio.kcd.MuxGroup;
+import com.github.canbabel.canio.kcd.Signal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that resolving labels, comments and attributes after parsing is
+ * complete for a large database. That the resolution scales linearly with the
+ * number of messages is measured by the parseFile benchmark of
+ * ConversionBenchmark, since wall-clock times are not reliable in a unit test.
+ */
+public class DbcReaderScalingTest {
+
+    private static final int LARGE = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File generate(int messages) throws IOException {
+        File file = folder.newFile("scaling" + messages + ".dbc");
+        DbcGenerator generator = new DbcGenerator();
+        generator.seed(messages);
+        generator.standardMessages(1000);
+        generator.extendedMessages(messages - 1000);
+        generator.signalsPerMessage(4);
+        generator.multiplexedMessages(messages / 10);
+        generator.valueDescriptions(messages);
+        generator.comments(2 * messages);
+        generator.attributes(2 * messages);
+        generator.write(file);
+        return file;
+    }
+
+    private static void parse(File file, DbcReader reader) {
+        assertTrue(reader.parseFile(file, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void resolutionIsComplete() throws IOException {
+        DbcReader reader = new DbcReader();
+        File file = generate(LARGE);
+        parse(file, reader);
+
+        List<Message> messages = reader.getNetwork().getBus().get(0).getMessage();
+        assertEquals(LARGE, messages.size());
+
+        int notes = 0;
+        int labelSets = 0;
+        int intervals = 0;
+        for (Message message : messages) {
+            notes += message.getNotes() != null ? 1 : 0;
+            intervals += message.getInterval() != 0 ? 1 : 0;
+            List<BasicSignalType> signals = new ArrayList<BasicSignalType>(message.getSignal());
+            for (Multiplex multiplex : message.getMultiplex()) {
+                signals.add(multiplex);
+                for (MuxGroup group : multiplex.getMuxGroup()) {
+                    signals.addAll(group.getSignal());
+                }
+            }
+            for (BasicSignalType signal : signals) {
+                if (signal instanceof Signal) {
+                    notes += ((Signal) signal).getNotes() != null ? 1 : 0;
+                    labelSets += ((Signal) signal).getLabelSet() != null ? 1 : 0;
+                } else {
+                    notes += ((Multiplex) signal).getNotes() != null ? 1 : 0;
+                    labelSets += ((Multiplex) signal).getLabelSet() != null ? 1 : 0;
+                }
+            }
+        }
+
+        /* Comments and value descriptions of multiplexors are not resolved by the reader */
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1);
+        long comments = lines.stream().filter(l -> l.startsWith("CM_ ") && !l.matches("CM_ SG_ \\d+ Mux\\d+ .*"))
+                .count();
+        long valueDescriptions = lines.stream().filter(l -> l.startsWith("VAL_ ") && !l.matches("VAL_ \\d+ Mux\\d+ .*"))
+                .count();
+        long cycleTimes = lines.stream().filter(l -> l.startsWith("BA_ \"GenMsgCycleTime\"")).count();
+
+        assertTrue(comments > LARGE);
+        assertEquals(comments, notes);
+        assertTrue(valueDescriptions > LARGE / 2);
+        assertEquals(valueDescriptions, labelSets);
+        assertTrue(cycleTimes > 0);
+        assertEquals(cycleTimes, intervals);
+    }
+}
@@ -104,6 +104,83 @@ public class DbcReaderTest {
         assertEquals("Vector__XXX", result[9]);
     }
 
+    @Test
+    public void testTokenizerNumbers() {
+        String[] numbers = { "0", "-0", "1", "-1", "0.1", "1e-05", "1E+3", "-2.5e-3", "655.35", "0.000123",
+            "123456789012345678", "1.7976931348623157E308", "4.9e-324", ".5", "1.", "+7", "3.14159265358979323846",
+            "1.0f", "Infinity" };
+        DbcTokenizer tokenizer = new DbcTokenizer();
+
+        for (String number : numbers) {
+            assertEquals(1, tokenizer.split(number));
+            assertEquals(number, Double.doubleToRawLongBits(Double.parseDouble(number)),
+                    Double.doubleToRawLongBits(tokenizer.parseDouble(0)));
+        }
+
+        assertEquals(2, tokenizer.split("-9223372036854775808 \"42\""));
+        assertEquals(Long.MIN_VALUE, tokenizer.parseLong(0));
+        assertEquals(42, tokenizer.parseLong(1));
+        assertEquals("42", tokenizer.unQuoted(1));
+
+        assertEquals(1, tokenizer.split("9223372036854775808"));
+        try {
+            tokenizer.parseLong(0);
+            fail("overflow not detected");
+        } catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void testKeywordLookup() {
+        assertEquals(DbcKeyword.MESSAGE, DbcKeyword.lookup("BO_ 1984 Messagename: 8 Producername"));
+        assertEquals(DbcKeyword.MESSAGE_TRANSMITTERS, DbcKeyword.lookup("BO_TX_BU_ 1984 : Motor,Brake;"));
+        assertEquals(DbcKeyword.NODES, DbcKeyword.lookup("BU_: Motor Brake"));
+        assertEquals(DbcKeyword.NODE_SIGNAL_RELATION, DbcKeyword.lookup("BU_SG_REL_ \"Attr\" BU_SG_REL_ Motor SG_ 1984 Sig 1;"));
+        assertEquals(DbcKeyword.BIT_TIMING, DbcKeyword.lookup("BS_:"));
+        assertEquals(DbcKeyword.VERSION, DbcKeyword.lookup("VERSION \"\""));
+        assertEquals(DbcKeyword.ATTRIBUTE_DEFAULT, DbcKeyword.lookup("BA_DEF_DEF_  \"GenMsgCycleTime\" 0;"));
+        assertEquals(DbcKeyword.RELATION_ATTRIBUTE_DEFAULT, DbcKeyword.lookup("BA_DEF_DEF_REL_ \"Attr\" 0;"));
+        assertEquals(DbcKeyword.SIGNAL_VALUE_TYPE, DbcKeyword.lookup("SIG_VALTYPE_ 1110 TestSigBigDouble1 : 2;"));
+        assertEquals(DbcKeyword.SIGNAL_MULTIPLEX_VALUE, DbcKeyword.lookup("SG_MUL_VAL_ 1984 Sig Mux 1-1;"));
+        assertEquals(DbcKeyword.VALUE_TABLE, DbcKeyword.lookup("VAL_TABLE_ Valuetable1 1 \"bar\" 0 \"foo\" ;"));
+        assertEquals(DbcKeyword.VALUE_DESCRIPTION, DbcKeyword.lookup("VAL_ 1112 Sig 1 \"on\" 0 \"off\" ;"));
+        assertEquals(DbcKeyword.ATTRIBUTE, DbcKeyword.lookup("BA_ \"GenMsgCycleTime\" BO_ 1110 20;"));
+        assertEquals(DbcKeyword.FILTER, DbcKeyword.lookup("FILTER"));
+
+        assertNull(DbcKeyword.lookup(" SG_ Sig : 0|8@1+ (1,0) [0|0] \"\" Vector__XXX"));
+        assertNull(DbcKeyword.lookup("\tNS_DESC_"));
+        assertNull(DbcKeyword.lookup("BO_X 1984"));
+        assertNull(DbcKeyword.lookup("FILTERED"));
+        assertNull(DbcKeyword.lookup(""));
+    }
+
+    @Test
+    public void testAllKeywordsHandled() throws IOException {
+        File file = File.createTempFile("keywords", ".dbc");
+        file.deleteOnExit();
+        try (PrintWriter w = new PrintWriter(file, "ISO-8859-1")) {
+            w.println("BO_ 1984 Msg: 8 Motor");
+            w.println(" SG_ Mux M : 0|8@1+ (1,0) [0|255] \"\" Brake");
+            w.println(" SG_ Sig m1 : 8|32@1+ (1,0) [0|0] \"\" Brake");
+            w.println("BA_DEF_REL_ BU_SG_REL_  \"Attr\" INT 0 10;");
+            w.println("BA_DEF_DEF_REL_ \"Attr\" 0;");
+            w.println("BA_REL_ \"Attr\" BU_SG_REL_ Brake SG_ 1984 Sig 1;");
+            w.println("BU_SG_REL_ Brake SG_ 1984 Sig;");
+            w.println("VAL_ 1984 Mux 1 \"one\" ;");
+            w.println("SIG_VALTYPE_ 1984 Sig : 1;");
+            w.println("SG_MUL_VAL_ 1984 Sig Mux 1-1;");
+            w.println("SIG_GROUP_ 1984 Group 1 : Sig;");
+        }
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        DbcReader reader = new DbcReader();
+
+        assertTrue(reader.parseFile(file, log));
+        assertEquals("", log.toString());
+        assertEquals("Sig", reader.getNetwork().getBus().get(0).getMessage().get(0).getMultiplex().get(0)
+                .getMuxGroup().get(0).getSignal().get(0).getName());
+    }
+
     @Test
     public void testUnQuote()
     {
@@ -0,0 +1,153 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.NetworkDefinition;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that an incrementally parsed network equals the network of a
+ * complete parse after each edit.
+ */
+public class IncrementalDbcReaderTest {
+
+    private static final String NAME = "read_in_test.dbc";
+
+    private static byte[] marshal(NetworkDefinition network) {
+        network.getDocument().setDate("today");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            Marshaller marshaller = JAXBContext.newInstance(NetworkDefinition.class).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            marshaller.marshal(network, out);
+        } catch (JAXBException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String read() throws IOException {
+        return new String(Files.readAllBytes(Paths.get("src/test/resources", NAME)), StandardCharsets.ISO_8859_1);
+    }
+
+    private static ByteBuffer bytes(String dbc) {
+        return ByteBuffer.wrap(dbc.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Parses the edited file incrementally and compares the result with a
+     * complete parse.
+     */
+    private static void assertParsed(IncrementalDbcReader incremental, String dbc, int parsedMessages) {
+        DbcReader reader = new DbcReader();
+        reader.parse(bytes(dbc), NAME, new ByteArrayOutputStream());
+        byte[] expected = marshal(reader.getNetwork());
+
+        NetworkDefinition network = incremental.parse(bytes(dbc), NAME, new ByteArrayOutputStream());
+        assertSame(network, incremental.getNetwork());
+        assertArrayEquals(expected, marshal(network));
+        assertEquals(parsedMessages, incremental.getParsedMessageCount());
+    }
+
+    @Test
+    public void testEdits() throws IOException {
+        IncrementalDbcReader incremental = new IncrementalDbcReader();
+        String dbc = read();
+
+        assertParsed(incremental, dbc, 13);
+        assertParsed(incremental, dbc, 0);
+
+        /* Single signal */
+        dbc = dbc.replace("SG_ TestSigBigUnsigned2 : 0|32@1+ (0.001,0)", "SG_ TestSigBigUnsigned2 : 0|32@1+ (0.002,0)");
+        assertParsed(incremental, dbc, 1);
+
+        /* Value description of the same message */
+        dbc = dbc.replace("VAL_ 1112 TestSigBigUnsigned2 2147483647 \"invalid\" 2147483646 \"init\"",
+                "VAL_ 1112 TestSigBigUnsigned2 2147483647 \"invalid\" 2147483646 \"initial\"");
+        assertParsed(incremental, dbc, 1);
+
+        /* Comment */
+        dbc = dbc.replace("CM_ SG_ 291 TestSigLittleUnsigned1 \"", "CM_ SG_ 291 TestSigLittleUnsigned1 \"Edited ");
+        assertParsed(incremental, dbc, 1);
+
+        /* New node */
+        dbc = dbc.replaceFirst("BU_: ", "BU_: Carol ");
+        assertParsed(incremental, dbc, 0);
+
+        /* Attribute definitions affect all messages */
+        dbc = dbc.replace("BA_DEF_DEF_  \"GenMsgCycleTime\" 0;", "BA_DEF_DEF_  \"GenMsgCycleTime\" 100;");
+        assertParsed(incremental, dbc, 13);
+    }
+
+    @Test
+    public void testMessageAddedAndRemoved() throws IOException {
+        IncrementalDbcReader incremental = new IncrementalDbcReader();
+        String dbc = read();
+        String message = "BO_ 1022 EmptyMsg: 8 Bob\r\n";
+        assertTrue(dbc.contains(message));
+
+        assertParsed(incremental, dbc, 13);
+        String removed = dbc.replace(message, "");
+        assertParsed(incremental, removed, 0);
+        assertParsed(incremental, dbc, 1);
+
+        /* All messages of an identifier are parsed again, only the first one gets its comments */
+        assertParsed(incremental, dbc.replace(message, message + "\r\n" + message), 2);
+    }
+
+    @Test
+    public void testOmitUnconsumedSignals() throws IOException {
+        IncrementalDbcReader incremental = new IncrementalDbcReader();
+        String dbc = read();
+
+        assertParsed(incremental, dbc, 13);
+        incremental.omitUnconsumedSignals(true);
+        NetworkDefinition network = incremental.parse(bytes(dbc), NAME, new ByteArrayOutputStream());
+        assertEquals(13, incremental.getParsedMessageCount());
+
+        DbcReader reader = new DbcReader();
+        reader.omitUnconsumedSignals(true);
+        reader.parse(bytes(dbc), NAME, new ByteArrayOutputStream());
+        assertArrayEquals(marshal(reader.getNetwork()), marshal(network));
+    }
+
+    @Test
+    public void testPath() throws IOException {
+        IncrementalDbcReader incremental = new IncrementalDbcReader();
+        NetworkDefinition network = incremental.parse(Paths.get("src/test/resources", NAME),
+                new ByteArrayOutputStream());
+        assertEquals(NAME, network.getDocument().getName());
+
+        DbcReader reader = new DbcReader();
+        reader.parse(bytes(read()), NAME, new ByteArrayOutputStream());
+        assertArrayEquals(marshal(reader.getNetwork()), marshal(network));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks validating KCD files while they are written.
+ */
+public class KcdValidationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /* GenMsgCycleTime exceeds the maximum interval of the schema */
+    private static final String INVALID_DBC = "VERSION \"\"\n\nBU_: Motor\n\n"
+            + "BO_ 100 Cyclic: 8 Motor\n SG_ Speed : 0|8@1+ (1,0) [0|255] \"\" Motor\n\n"
+            + "BA_DEF_ BO_  \"GenMsgCycleTime\" INT 0 100000;\n"
+            + "BA_ \"GenMsgCycleTime\" BO_ 100 70000;\n";
+
+    private static File resource(String name) {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(name);
+        return new File(url.getPath());
+    }
+
+    private File invalidDbc() throws IOException {
+        File dbc = folder.newFile("invalid.dbc");
+        Files.write(dbc.toPath(), INVALID_DBC.getBytes(StandardCharsets.ISO_8859_1));
+        return dbc;
+    }
+
+    @Test
+    public void validatesWithoutChangingOutput() throws IOException {
+        for (String name : new String[] { "canfdtest.dbc", "read_in_test.dbc", "CLI.dbc" }) {
+            for (boolean stax : new boolean[] { false, true }) {
+                DbcReader reader = new DbcReader();
+                reader.streamingKcdWriter(stax);
+                ByteArrayOutputStream log = new ByteArrayOutputStream();
+                assertTrue(reader.parseFile(resource(name), log));
+                reader.getNetwork().getDocument().setDate("today");
+
+                File plain = folder.newFile();
+                assertTrue(reader.writeKcdFile(plain, true, false));
+                assertFalse(reader.isKcdFileValid());
+
+                reader.validateKcdFile(true);
+                File validated = folder.newFile();
+                assertTrue(reader.writeKcdFile(validated, true, true));
+                assertTrue(name, reader.isKcdFileValid());
+                assertEquals(0, log.size());
+
+                File gzipped = folder.newFile();
+                reader.validateKcdFile(false);
+                assertTrue(reader.writeKcdFile(gzipped, true, true));
+                assertArrayEquals(Files.readAllBytes(gzipped.toPath()), Files.readAllBytes(validated.toPath()));
+            }
+        }
+    }
+
+    @Test
+    public void reportsSchemaViolations() throws IOException {
+        File dbc = invalidDbc();
+        for (boolean stax : new boolean[] { false, true }) {
+            DbcReader reader = new DbcReader();
+            reader.streamingKcdWriter(stax);
+            reader.validateKcdFile(true);
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            assertTrue(reader.parseFile(dbc, log));
+
+            /* The file is written anyway */
+            File kcd = folder.newFile();
+            assertTrue(reader.writeKcdFile(kcd, true, false));
+            assertFalse(reader.isKcdFileValid());
+            assertTrue(new String(Files.readAllBytes(kcd.toPath()), StandardCharsets.UTF_8)
+                    .contains("interval=\"70000\""));
+            assertTrue(log.toString(), log.toString().contains("70000"));
+        }
+    }
+
+    @Test
+    public void streamingConverterValidates() throws IOException {
+        StreamingDbcConverter converter = new StreamingDbcConverter();
+        converter.validateKcdFile(true);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        assertTrue(converter.convert(resource("canfdtest.dbc"), folder.newFile(), true, false, log));
+        assertTrue(converter.isKcdFileValid());
+        assertEquals(0, log.size());
+
+        assertTrue(converter.convert(invalidDbc(), folder.newFile(), true, false, log));
+        assertFalse(converter.isKcdFileValid());
+        assertTrue(log.toString().contains("70000"));
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import com.github.canbabel.canio.kcd.Message;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that messages parsed on demand equal the messages of a complete
+ * parse.
+ */
+public class LazyDbcReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] write(DbcReader reader) throws IOException {
+        reader.getNetwork().getDocument().setDate("today");
+        File kcd = folder.newFile();
+        assertTrue(reader.writeKcdFile(kcd, true, false));
+        return Files.readAllBytes(kcd.toPath());
+    }
+
+    private void assertSameMessages(File dbc, LazyDbcReader lazy) throws IOException {
+        DbcReader reader = new DbcReader();
+        assertTrue(reader.parseFile(dbc, new ByteArrayOutputStream()));
+        byte[] expected = write(reader);
+
+        List<Message> messages = reader.getNetwork().getBus().get(0).getMessage();
+        List<String> names = new ArrayList<String>();
+        List<Message> lazyMessages = new ArrayList<Message>();
+        for (Message message : messages) {
+            names.add(message.getName());
+            Message lazyMessage = lazy.getMessage(message.getName());
+            assertNotNull(message.getName(), lazyMessage);
+            assertSame(lazyMessage, lazy.getMessage(message.getName()));
+            lazyMessages.add(lazyMessage);
+        }
+        assertEquals(names, lazy.getMessageNames());
+
+        messages.clear();
+        messages.addAll(lazyMessages);
+        assertArrayEquals(dbc.getName(), expected, write(reader));
+    }
+
+    @Test
+    public void testResources() throws IOException {
+        for (String name : new String[] { "CLI.dbc", "canfdtest.dbc", "read_in_test.dbc" }) {
+            File dbc = new File("src/test/resources/" + name);
+            try (LazyDbcReader lazy = new LazyDbcReader(dbc.toPath(), new ByteArrayOutputStream())) {
+                assertSameMessages(dbc, lazy);
+            }
+        }
+    }
+
+    @Test
+    public void testBufferAndGzip() throws IOException {
+        File dbc = new File("src/test/resources/canfdtest.dbc");
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(dbc.toPath()));
+        assertSameMessages(dbc, new LazyDbcReader(buffer, "canfdtest.dbc", new ByteArrayOutputStream()));
+
+        Path gz = folder.getRoot().toPath().resolve("canfdtest.dbc.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+            Files.copy(dbc.toPath(), out);
+        }
+        try (LazyDbcReader lazy = new LazyDbcReader(gz, new ByteArrayOutputStream())) {
+            assertSameMessages(dbc, lazy);
+        }
+    }
+
+    @Test
+    public void testLookupById() throws IOException {
+        File dbc = new File("src/test/resources/read_in_test.dbc");
+        try (LazyDbcReader lazy = new LazyDbcReader(dbc.toPath(), new ByteArrayOutputStream())) {
+            /* BO_ 2684354547 ExtMsgBig2 is extended frame format */
+            Message message = lazy.getMessage(2684354547L & 0x1FFFFFFF, true);
+            assertNotNull(message);
+            assertSame(message, lazy.getMessage(message.getName()));
+            assertNull(lazy.getMessage(2684354547L & 0x1FFFFFFF, false));
+            assertNull(lazy.getMessage("NoSuchMessage"));
+            assertNull(lazy.getMessage("VECTOR__INDEPENDENT_SIG_MSG"));
+        }
+    }
+}
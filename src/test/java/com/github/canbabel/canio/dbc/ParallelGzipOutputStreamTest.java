@@ -0,0 +1,118 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the output of the ParallelGzipOutputStream is a standard gzip
+ * stream.
+ */
+public class ParallelGzipOutputStreamTest {
+
+    /* Compressible text with some random content */
+    private static byte[] content(int length) {
+        Random random = new Random(length);
+        StringBuilder sb = new StringBuilder(length + 100);
+        while (sb.length() < length) {
+            sb.append("<Signal name=\"Sig").append(random.nextInt(1000)).append("\" offset=\"")
+                    .append(random.nextInt(64)).append("\"/>\n");
+        }
+        return sb.substring(0, length).getBytes();
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] compress(byte[] content, int level, int blockSize, int chunk, boolean parallel)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, level, blockSize, parallel)) {
+            for (int i = 0; i < content.length; i += chunk) {
+                gzip.write(content, i, Math.min(chunk, content.length - i));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        for (int length : new int[] { 0, 1, 1023, 1024, 1025, 100000, 1000000 }) {
+            byte[] content = content(length);
+            for (int level : new int[] { Deflater.DEFAULT_COMPRESSION, 0, 1, 9 }) {
+                for (boolean parallel : new boolean[] { true, false }) {
+                    String message = length + "/" + level + "/" + parallel;
+                    assertArrayEquals(message, content, gunzip(compress(content, level, 1024, 777, parallel)));
+                    assertArrayEquals(message, content, gunzip(compress(content, level, 64 * 1024, 100000, parallel)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void singleBytesAndFlush() throws IOException {
+        byte[] content = content(5000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, 6, 1024, true)) {
+            for (byte b : content) {
+                gzip.write(b);
+                if (b == '\n') {
+                    gzip.flush();
+                }
+            }
+        }
+        assertArrayEquals(content, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    public void compressesLikeGzip() throws IOException {
+        byte[] content = content(1000000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        /* The dictionary keeps the ratio close to a single deflate stream */
+        byte[] parallel = compress(content, Deflater.DEFAULT_COMPRESSION, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE,
+                8192, true);
+        assertTrue(parallel.length < out.size() * 1.02);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevel() throws IOException {
+        new ParallelGzipOutputStream(new ByteArrayOutputStream(), 10, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBlockSize() throws IOException {
+        new ParallelGzipOutputStream(new ByteArrayOutputStream(), 6, 100);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.dbc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the two pass conversion produces the same KCD file as
+ * DbcReader.
+ */
+public class StreamingDbcConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /* The documents are created at different times */
+    private static String withoutDate(byte[] kcd) {
+        return new String(kcd, StandardCharsets.UTF_8).replaceFirst("date=\"[^\"]*\"", "");
+    }
+
+    private void assertSameConversion(File dbc, boolean omitUnconsumedSignals) throws IOException {
+        DbcReader reader = new DbcReader();
+        reader.omitUnconsumedSignals(omitUnconsumedSignals);
+        ByteArrayOutputStream readerLog = new ByteArrayOutputStream();
+        assertTrue(reader.parseFile(dbc, readerLog));
+        File expected = folder.newFile();
+        assertTrue(reader.writeKcdFile(expected, true, false));
+
+        StreamingDbcConverter converter = new StreamingDbcConverter();
+        converter.omitUnconsumedSignals(omitUnconsumedSignals);
+        ByteArrayOutputStream converterLog = new ByteArrayOutputStream();
+        File actual = folder.newFile();
+        assertTrue(converter.convert(dbc, actual, true, false, converterLog));
+
+        assertEquals(dbc.getName(), withoutDate(Files.readAllBytes(expected.toPath())),
+                withoutDate(Files.readAllBytes(actual.toPath())));
+        assertEquals(reader.getNetwork().getBus().get(0).getMessage().size(), converter.getMessageCount());
+        assertEquals(readerLog.size(), converterLog.size());
+    }
+
+    @Test
+    public void sameResultAsDbcReader() throws IOException {
+        for (String name : new String[] { "canfdtest.dbc", "read_in_test.dbc", "CLI.dbc" }) {
+            URL url = Thread.currentThread().getContextClassLoader().getResource(name);
+            assertSameConversion(new File(url.getPath()), false);
+            assertSameConversion(new File(url.getPath()), true);
+        }
+    }
+
+    @Test
+    public void sameResultForGeneratedDatabase() throws IOException {
+        File dbc = folder.newFile("generated.dbc");
+        DbcGenerator generator = new DbcGenerator();
+        generator.seed(13);
+        generator.nodes(5);
+        generator.standardMessages(300);
+        generator.extendedMessages(600);
+        generator.fdMessages(100);
+        generator.signalsPerMessage(6);
+        generator.multiplexedMessages(100);
+        generator.valueDescriptions(1000);
+        generator.comments(2000);
+        generator.attributes(2000);
+        generator.write(dbc);
+
+        assertSameConversion(dbc, false);
+    }
+
+    @Test
+    public void gzippedOutput() throws IOException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource("canfdtest.dbc");
+        File plain = folder.newFile();
+        File gzipped = folder.newFile();
+        StreamingDbcConverter converter = new StreamingDbcConverter();
+        assertTrue(converter.convert(new File(url.getPath()), plain, false, false, new ByteArrayOutputStream()));
+        assertTrue(converter.convert(new File(url.getPath()), gzipped, false, true, new ByteArrayOutputStream()));
+
+        try (InputStream in = new GZIPInputStream(new FileInputStream(gzipped))) {
+            assertEquals(withoutDate(Files.readAllBytes(plain.toPath())), withoutDate(in.readAllBytes()));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.kcd;
+
+import com.github.canbabel.canio.dbc.ConversionEngine;
+import com.github.canbabel.canio.dbc.DbcReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.validation.ValidatorHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the KcdStreamWriter produces the same output as JAXB.
+ */
+public class KcdStreamWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String marshal(NetworkDefinition network, boolean prettyPrint) throws Exception {
+        Marshaller marshaller = JAXBContext.newInstance(NetworkDefinition.class).createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, prettyPrint);
+        StringWriter w = new StringWriter();
+        marshaller.marshal(network, w);
+        return w.toString();
+    }
+
+    private static String write(NetworkDefinition network, boolean prettyPrint) throws Exception {
+        StringWriter w = new StringWriter();
+        new KcdStreamWriter(w, prettyPrint).write(network);
+        return w.toString();
+    }
+
+    /**
+     * Network using all elements of the format, special characters and unset
+     * optional attributes.
+     */
+    private static NetworkDefinition network() {
+        NetworkDefinition network = new NetworkDefinition();
+        Document document = new Document();
+        document.setName("<Test> & \"quotes\"\t");
+        document.setContent("first line\r\nsecond line > third");
+        network.setDocument(document);
+
+        Node node = new Node();
+        node.setId("1");
+        node.setName("Motor");
+        Var var = new Var();
+        var.setName("Temperature");
+        var.setNotes("in degC");
+        Value varValue = new Value();
+        varValue.setType("double");
+        varValue.setMin(Double.NEGATIVE_INFINITY);
+        varValue.setMax(Double.NaN);
+        var.setValue(varValue);
+        node.getVar().add(var);
+        network.getNode().add(node);
+        Node empty = new Node();
+        empty.setId("2");
+        network.getNode().add(empty);
+
+        Bus bus = new Bus();
+        bus.setName("Body");
+        bus.setBaudrate(250000);
+        Message message = new Message();
+        message.setId("0x1F");
+        message.setName("Status");
+        message.setLength("8");
+        message.setInterval(100);
+        message.setFormat("extended");
+        message.setFd(true);
+        message.setNotes("Status & mode");
+        Producer producer = new Producer();
+        NodeRef ref = new NodeRef();
+        ref.setId("1");
+        producer.getNodeRef().add(ref);
+        message.setProducer(producer);
+
+        Multiplex multiplex = new Multiplex();
+        multiplex.setName("Mode");
+        multiplex.setOffset(0);
+        multiplex.setLength(2);
+        MuxGroup group = new MuxGroup();
+        group.setCount(1);
+        Signal muxed = new Signal();
+        muxed.setName("Low");
+        muxed.setOffset(8);
+        muxed.setEndianess("big");
+        group.getSignal().add(muxed);
+        multiplex.getMuxGroup().add(group);
+        LabelSet muxLabels = new LabelSet();
+        LabelGroup range = new LabelGroup();
+        range.setName("valid");
+        range.setFrom(BigInteger.ZERO);
+        range.setTo(BigInteger.valueOf(2));
+        muxLabels.getLabelOrLabelGroup().add(range);
+        multiplex.setLabelSet(muxLabels);
+        message.getMultiplex().add(multiplex);
+
+        Signal signal = new Signal();
+        signal.setName("Speed");
+        signal.setOffset(16);
+        signal.setLength(16);
+        Consumer consumer = new Consumer();
+        consumer.getNodeRef().add(ref);
+        signal.setConsumer(consumer);
+        Value value = new Value();
+        value.setSlope(0.01);
+        value.setIntercept(-40.0);
+        value.setUnit("km/h");
+        value.setMax(1.0E7);
+        signal.setValue(value);
+        LabelSet labels = new LabelSet();
+        Label label = new Label();
+        label.setName("\"invalid\"");
+        label.setType("error");
+        label.setValue(new BigInteger("4294967295"));
+        labels.getLabelOrLabelGroup().add(label);
+        signal.setLabelSet(labels);
+        message.getSignal().add(signal);
+        bus.getMessage().add(message);
+
+        Message plain = new Message();
+        plain.setId("0x020");
+        plain.setName("Empty");
+        bus.getMessage().add(plain);
+        network.getBus().add(bus);
+
+        Bus diagnosis = new Bus();
+        diagnosis.setName("Diagnosis");
+        network.getBus().add(diagnosis);
+        return network;
+    }
+
+    @Test
+    public void sameOutputAsJaxb() throws Exception {
+        NetworkDefinition network = network();
+        assertEquals(marshal(network, true), write(network, true));
+        assertEquals(marshal(network, false), write(network, false));
+    }
+
+    @Test
+    public void sameFilesAsJaxb() throws Exception {
+        for (String name : new String[] { "canfdtest.dbc", "read_in_test.dbc", "CLI.dbc" }) {
+            URL url = Thread.currentThread().getContextClassLoader().getResource(name);
+            DbcReader reader = new DbcReader();
+            assertTrue(reader.parseFile(new File(url.getPath()), new ByteArrayOutputStream()));
+            reader.getNetwork().getDocument().setDate("today");
+
+            for (boolean prettyPrint : new boolean[] { true, false }) {
+                File jaxb = folder.newFile();
+                File stax = folder.newFile();
+                reader.streamingKcdWriter(false);
+                assertTrue(reader.writeKcdFile(jaxb, prettyPrint, false));
+                reader.streamingKcdWriter(true);
+                assertTrue(reader.writeKcdFile(stax, prettyPrint, false));
+
+                assertArrayEquals(name, Files.readAllBytes(jaxb.toPath()), Files.readAllBytes(stax.toPath()));
+            }
+        }
+    }
+
+    private static String validate(NetworkDefinition network, final List<SAXParseException> errors)
+            throws Exception {
+        ValidatorHandler validator = ConversionEngine.getDefault().newValidatorHandler();
+        validator.setErrorHandler(new DefaultHandler() {
+            @Override
+            public void error(SAXParseException e) {
+                errors.add(e);
+            }
+        });
+        StringWriter w = new StringWriter();
+        new KcdStreamWriter(w, true, validator).write(network);
+        return w.toString();
+    }
+
+    @Test
+    public void validatesWhileWriting() throws Exception {
+        NetworkDefinition network = network();
+        List<SAXParseException> errors = new ArrayList<SAXParseException>();
+        assertEquals(write(network, true), validate(network, errors));
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        /* Interval is limited to 60000 ms */
+        network.getBus().get(0).getMessage().get(0).setInterval(70000);
+        assertEquals(write(network, true), validate(network, errors));
+        assertFalse(errors.isEmpty());
+        assertTrue(errors.get(0).getMessage().contains("70000"));
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.kcd;
+
+import com.github.canbabel.canio.dbc.DbcGenerator;
+import com.github.canbabel.canio.dbc.DbcReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the semantic network checker with hand built messages.
+ */
+public class NetworkCheckerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static NetworkDefinition network(Message... messages) {
+        NetworkDefinition network = new NetworkDefinition();
+        Bus bus = new Bus();
+        bus.setName("Private");
+        for (Message m : messages) {
+            bus.getMessage().add(m);
+        }
+        network.getBus().add(bus);
+        return network;
+    }
+
+    private static Message message(String id, String length) {
+        Message m = new Message();
+        m.setId(id);
+        m.setName("M" + id);
+        m.setLength(length);
+        return m;
+    }
+
+    private static Signal signal(String name, int offset, int length, boolean bigEndian) {
+        Signal s = new Signal();
+        s.setName(name);
+        s.setOffset(offset);
+        s.setLength(length);
+        if (bigEndian) {
+            s.setEndianess("big");
+        }
+        return s;
+    }
+
+    private static Signal signal(String name, int offset, int length, String type, double slope, Double min,
+            Double max) {
+        Signal s = signal(name, offset, length, false);
+        Value value = new Value();
+        value.setType(type);
+        value.setSlope(slope);
+        value.setMin(min);
+        value.setMax(max);
+        s.setValue(value);
+        return s;
+    }
+
+    private static List<NetworkChecker.Finding> check(Message... messages) {
+        return new NetworkChecker().check(network(messages));
+    }
+
+    private static void assertFinding(NetworkChecker.Finding finding, NetworkChecker.Problem problem,
+            String signal, String otherSignal) {
+        assertEquals(finding.toString(), problem, finding.getProblem());
+        assertEquals(finding.toString(), signal, finding.getSignal());
+        assertEquals(finding.toString(), otherSignal, finding.getOtherSignal());
+        assertEquals("Private", finding.getBus());
+    }
+
+    @Test
+    public void findsOverlappingSignals() {
+        Message m = message("0x100", "8");
+        m.getSignal().add(signal("A", 0, 8, false));
+        m.getSignal().add(signal("B", 4, 8, false));
+        m.getSignal().add(signal("C", 12, 52, false));
+
+        List<NetworkChecker.Finding> findings = check(m);
+        assertEquals(1, findings.size());
+        assertFinding(findings.get(0), NetworkChecker.Problem.OVERLAPPING_SIGNALS, "B", "A");
+        assertSame(m, findings.get(0).getMessage());
+    }
+
+    @Test
+    public void laysOutBigEndianSignals() {
+        /* DBC start bit 7 with 16 bits occupies the first two bytes */
+        int offset = DbcReader.bigEndianLeastSignificantBitOffset(7, 16);
+        Message m = message("0x100", "8");
+        m.getSignal().add(signal("Big", offset, 16, true));
+        m.getSignal().add(signal("Third", 16, 8, false));
+        m.getSignal().add(signal("Last", 56, 16, true));
+        assertTrue(check(m).isEmpty());
+
+        m.getSignal().add(signal("First", 0, 1, false));
+        List<NetworkChecker.Finding> findings = check(m);
+        assertEquals(1, findings.size());
+        assertFinding(findings.get(0), NetworkChecker.Problem.OVERLAPPING_SIGNALS, "First", "Big");
+
+        /* Continues before the first byte */
+        Message outside = message("0x101", "8");
+        outside.getSignal().add(signal("Before", 0, 16, true));
+        findings = check(outside);
+        assertEquals(1, findings.size());
+        assertFinding(findings.get(0), NetworkChecker.Problem.SIGNAL_OUTSIDE_MESSAGE, "Before", null);
+    }
+
+    @Test
+    public void findsSignalsOutsideMessage() {
+        Message classic = message("0x100", "8");
+        classic.getSignal().add(signal("Inside", 48, 8, false));
+        classic.getSignal().add(signal("Outside", 60, 8, false));
+
+        Message shortMessage = message("0x101", "2");
+        shortMessage.getSignal().add(signal("Byte3", 16, 8, false));
+
+        Message fd = message("0x102", "64");
+        fd.setFd(true);
+        fd.getSignal().add(signal("Inside", 500, 12, false));
+        fd.getSignal().add(signal("Outside", 506, 8, false));
+
+        Message auto = message("0x103", null);
+        auto.setFd(true);
+        auto.getSignal().add(signal("Inside", 200, 64, false));
+
+        List<NetworkChecker.Finding> findings = check(classic, shortMessage, fd, auto);
+        assertEquals(findings.toString(), 4, findings.size());
+        assertFinding(findings.get(0), NetworkChecker.Problem.SIGNAL_OUTSIDE_MESSAGE, "Outside", null);
+        assertFinding(findings.get(1), NetworkChecker.Problem.SIGNAL_OUTSIDE_MESSAGE, "Byte3", null);
+        assertFinding(findings.get(2), NetworkChecker.Problem.SIGNAL_OUTSIDE_MESSAGE, "Outside", null);
+        assertFinding(findings.get(3), NetworkChecker.Problem.OVERLAPPING_SIGNALS, "Outside", "Inside");
+        assertSame(fd, findings.get(3).getMessage());
+    }
+
+    @Test
+    public void findsDuplicateMessages() {
+        Message first = message("0x1A0", "8");
+        Message extended = message("0x1A0", "8");
+        extended.setFormat("extended");
+        Message duplicate = message("0x01A0", "8");
+
+        List<NetworkChecker.Finding> findings = check(first, extended, duplicate);
+        assertEquals(1, findings.size());
+        assertFinding(findings.get(0), NetworkChecker.Problem.DUPLICATE_MESSAGE, null, null);
+        assertSame(duplicate, findings.get(0).getMessage());
+
+        /* Messages of different buses do not collide */
+        NetworkDefinition network = network(message("0x1A0", "8"));
+        network.getBus().addAll(network(message("0x1A0", "8")).getBus());
+        assertTrue(new NetworkChecker().check(network).isEmpty());
+    }
+
+    @Test
+    public void checksMuxGroups() {
+        Message m = message("0x100", "8");
+        Multiplex mux = new Multiplex();
+        mux.setName("Mux");
+        mux.setOffset(0);
+        mux.setLength(8);
+        m.getMultiplex().add(mux);
+        m.getSignal().add(signal("Plain", 16, 8, false));
+
+        /* Groups are sent alternatively and may share bits */
+        for (int i = 0; i < 3; i++) {
+            MuxGroup group = new MuxGroup();
+            group.setCount(i);
+            group.getSignal().add(signal("Group" + i, 8, 8, false));
+            mux.getMuxGroup().add(group);
+        }
+        assertTrue(check(m).isEmpty());
+
+        mux.getMuxGroup().get(1).getSignal().add(signal("OnMux", 4, 2, false));
+        mux.getMuxGroup().get(2).getSignal().add(signal("OnPlain", 20, 8, false));
+        List<NetworkChecker.Finding> findings = check(m);
+        assertEquals(findings.toString(), 2, findings.size());
+        assertFinding(findings.get(0), NetworkChecker.Problem.OVERLAPPING_MULTIPLEXOR, "OnMux", "Mux");
+        assertFinding(findings.get(1), NetworkChecker.Problem.OVERLAPPING_SIGNALS, "OnPlain", "Plain");
+    }
+
+    @Test
+    public void checksEncodableRange() {
+        Message m = message("0x100", "64");
+        m.setFd(true);
+        m.getSignal().add(signal("Scaled", 0, 8, "unsigned", 0.5, 0.0, 127.5));
+        m.getSignal().add(signal("Rounded", 8, 8, "unsigned", 0.0039215686, 0.0, 1.0));
+        m.getSignal().add(signal("Signed", 16, 8, "signed", 1.0, -128.0, 127.0));
+        m.getSignal().add(signal("NoRange", 24, 8, "unsigned", 1.0, 0.0, 0.0));
+        m.getSignal().add(signal("Float", 32, 32, "single", 1.0, -1e30, 1e30));
+        m.getSignal().add(signal("Double", 64, 64, "double", 1.0, -1e300, 1e300));
+        assertTrue(check(m).toString(), check(m).isEmpty());
+
+        m.getSignal().add(signal("TooLarge", 128, 8, "unsigned", 1.0, null, 300.0));
+        m.getSignal().add(signal("TooSmall", 136, 8, "signed", 1.0, -129.0, 0.5));
+        m.getSignal().add(signal("Negative", 144, 4, "unsigned", 1.0, -1.0, 15.0));
+        List<NetworkChecker.Finding> findings = check(m);
+        assertEquals(findings.toString(), 3, findings.size());
+        assertFinding(findings.get(0), NetworkChecker.Problem.RANGE_NOT_ENCODABLE, "TooLarge", null);
+        assertFinding(findings.get(1), NetworkChecker.Problem.RANGE_NOT_ENCODABLE, "TooSmall", null);
+        assertFinding(findings.get(2), NetworkChecker.Problem.RANGE_NOT_ENCODABLE, "Negative", null);
+    }
+
+    @Test
+    public void acceptsResourceDatabases() {
+        for (String name : new String[] { "canfdtest.dbc", "read_in_test.dbc", "CLI.dbc" }) {
+            URL url = Thread.currentThread().getContextClassLoader().getResource(name);
+            DbcReader reader = new DbcReader();
+            assertTrue(reader.parseFile(new File(url.getPath()), new ByteArrayOutputStream()));
+            List<NetworkChecker.Finding> findings = new NetworkChecker().check(reader.getNetwork());
+            assertTrue(name + ": " + findings, findings.isEmpty());
+        }
+    }
+
+    @Test
+    public void checksLargeNetworkQuickly() throws IOException {
+        File file = folder.newFile("large.dbc");
+        DbcGenerator generator = new DbcGenerator();
+        generator.standardMessages(1000);
+        generator.extendedMessages(9000);
+        generator.fdMessages(1000);
+        generator.multiplexedMessages(1000);
+        generator.write(file);
+
+        DbcReader reader = new DbcReader();
+        assertTrue(reader.parseFile(file, new ByteArrayOutputStream()));
+        NetworkChecker checker = new NetworkChecker();
+        assertTrue(checker.check(reader.getNetwork()).isEmpty());
+
+        long start = System.nanoTime();
+        assertTrue(checker.check(reader.getNetwork()).isEmpty());
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue(millis + " ms", millis < 1000);
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the batch mode of the command line interface.
+ */
+public class BatchCommandLineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String output;
+
+    private int run(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int code = BatchCommandLine.run(args, new PrintStream(out, true));
+        output = out.toString();
+        return code;
+    }
+
+    private File copy(String resource, File target) throws IOException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(resource);
+        target.getParentFile().mkdirs();
+        Files.copy(new File(url.getPath()).toPath(), target.toPath());
+        return target;
+    }
+
+    /* root/canfdtest.dbc, root/sub/read_in_test.dbc, root/sub/deep/CLI.dbc and a text file */
+    private File tree() throws IOException {
+        File root = folder.newFolder("root");
+        copy("canfdtest.dbc", new File(root, "canfdtest.dbc"));
+        copy("read_in_test.dbc", new File(root, "sub/read_in_test.dbc"));
+        copy("CLI.dbc", new File(root, "sub/deep/CLI.dbc"));
+        Files.write(new File(root, "sub/notes.txt").toPath(), "no database".getBytes(StandardCharsets.UTF_8));
+        return root;
+    }
+
+    @Test
+    public void convertsDirectoriesRecursively() throws IOException {
+        File root = tree();
+        assertEquals(output, BatchCommandLine.OK, run("-threads", "2", root.getPath()));
+        assertTrue(new File(root, "canfdtest.kcd").exists());
+        assertTrue(new File(root, "sub/read_in_test.kcd").exists());
+        assertTrue(new File(root, "sub/deep/CLI.kcd").exists());
+        assertFalse(new File(root, "sub/notes.kcd").exists());
+        assertTrue(output, output.contains("3 of 3 files converted, 0 failed, 0 invalid, 0 skipped"));
+        assertTrue(output, output.matches("(?s).*OK +\\d+ ms  .*canfdtest.dbc -> canfdtest.kcd.*"));
+
+        /* Existing files are only replaced on request */
+        assertEquals(BatchCommandLine.OK, run(root.getPath()));
+        assertTrue(output, output.contains("0 of 3 files converted, 0 failed, 0 invalid, 3 skipped"));
+        assertEquals(BatchCommandLine.OK, run("-overwrite", root.getPath()));
+        assertTrue(output, output.contains("3 of 3 files converted"));
+    }
+
+    @Test
+    public void copiesUnchangedFilesFromCache() throws IOException {
+        File root = tree();
+        File cache = new File(folder.getRoot(), "cache");
+        assertEquals(output, BatchCommandLine.OK, run("-gzip", "-cache", cache.getPath(), root.getPath()));
+        assertTrue(output, output.contains("3 of 3 files converted, 0 failed, 0 invalid, 0 skipped, 0 cached"));
+        File kcd = new File(root, "sub/read_in_test.kcd.gz");
+        byte[] converted = Files.readAllBytes(kcd.toPath());
+
+        assertEquals(output, BatchCommandLine.OK,
+                run("-gzip", "-overwrite", "-cache", cache.getPath(), root.getPath()));
+        assertTrue(output, output.contains("3 of 3 files converted, 0 failed, 0 invalid, 0 skipped, 3 cached"));
+        assertTrue(output, output.matches("(?s).*CACHED +\\d+ ms  .*read_in_test.dbc -> read_in_test.kcd.gz.*"));
+        assertArrayEquals(converted, Files.readAllBytes(kcd.toPath()));
+
+        /* Changed files and options are converted again */
+        Files.write(new File(root, "canfdtest.dbc").toPath(), "\n".getBytes(StandardCharsets.ISO_8859_1),
+                java.nio.file.StandardOpenOption.APPEND);
+        assertEquals(output, BatchCommandLine.OK,
+                run("-gzip", "-overwrite", "-cache", cache.getPath(), root.getPath()));
+        assertTrue(output, output.contains("0 skipped, 2 cached"));
+        assertEquals(output, BatchCommandLine.OK, run("-overwrite", "-cache", cache.getPath(), root.getPath()));
+        assertTrue(output, output.contains("0 skipped, 0 cached"));
+    }
+
+    @Test
+    public void expandsGlobPatterns() throws IOException {
+        File root = tree();
+        assertEquals(output, BatchCommandLine.OK, run(root.getPath() + "/sub/*.dbc"));
+        assertTrue(new File(root, "sub/read_in_test.kcd").exists());
+        assertFalse(new File(root, "sub/deep/CLI.kcd").exists());
+        assertTrue(output, output.contains("1 of 1 files converted"));
+
+        assertEquals(output, BatchCommandLine.OK, run(root.getPath() + "/**/C*.dbc"));
+        assertTrue(new File(root, "sub/deep/CLI.kcd").exists());
+        assertFalse(new File(root, "canfdtest.kcd").exists());
+    }
+
+    @Test
+    public void writesCompressedCompactFiles() throws IOException {
+        File dbc = copy("canfdtest.dbc", new File(folder.getRoot(), "canfdtest.dbc"));
+        assertEquals(output, BatchCommandLine.OK, run("-gzip", "-compact", "-omit", dbc.getPath()));
+
+        File kcd = new File(folder.getRoot(), "canfdtest.kcd.gz");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(kcd.toPath()))) {
+            in.transferTo(content);
+        }
+        String xml = content.toString("UTF-8");
+        assertTrue(xml.startsWith("<?xml"));
+        assertFalse(xml.contains("\n    <"));
+    }
+
+    @Test
+    public void reportsFailuresByExitCode() throws IOException {
+        File dbc = copy("CLI.dbc", new File(folder.getRoot(), "CLI.dbc"));
+        /* The KCD file can not be written */
+        assertTrue(new File(folder.getRoot(), "CLI.kcd").mkdir());
+        assertEquals(output, BatchCommandLine.CONVERSION_FAILED, run("-overwrite", dbc.getPath()));
+        assertTrue(output, output.startsWith("FAILED"));
+        assertTrue(output, output.contains("0 of 1 files converted, 1 failed"));
+    }
+
+    @Test
+    public void reportsInvalidOutputByExitCode() throws IOException {
+        File dbc = new File(folder.getRoot(), "invalid.dbc");
+        String content = "VERSION \"\"\n\nBU_: Motor\n\nBO_ 100 Cyclic: 8 Motor\n"
+                + " SG_ Speed : 0|8@1+ (1,0) [0|255] \"\" Motor\n\n"
+                + "BA_DEF_ BO_  \"GenMsgCycleTime\" INT 0 100000;\nBA_ \"GenMsgCycleTime\" BO_ 100 70000;\n";
+        Files.write(dbc.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+
+        assertEquals(output, BatchCommandLine.INVALID_OUTPUT, run(dbc.getPath()));
+        assertTrue(output, output.startsWith("INVALID"));
+        assertTrue(output, output.contains("Failed to validate output KCD."));
+        assertTrue(new File(folder.getRoot(), "invalid.kcd").exists());
+    }
+
+    @Test
+    public void rejectsInvalidCommandLines() {
+        assertEquals(BatchCommandLine.USAGE, run());
+        assertTrue(output, output.contains("No input files"));
+        assertEquals(BatchCommandLine.USAGE, run("-threads", "0", "x.dbc"));
+        assertEquals(BatchCommandLine.USAGE, run("-threads"));
+        assertEquals(BatchCommandLine.USAGE, run("-unknown", "x.dbc"));
+        assertTrue(output, output.contains("Unknown option -unknown"));
+        assertEquals(BatchCommandLine.USAGE, run(new File(folder.getRoot(), "missing.dbc").getPath()));
+        assertTrue(output, output.contains("No DBC files found"));
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URL;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.*;
+
+public class ConversionDaemonTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private ConversionDaemon daemon;
+    private Thread serving;
+    private String output;
+
+    private void start(SocketAddress address) throws IOException {
+        daemon = new ConversionDaemon(address, new PrintStream(log, true));
+        serving = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        serving.start();
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        if (daemon != null) {
+            daemon.close();
+            serving.join(10000);
+        }
+    }
+
+    private int client(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int code = DaemonClient.run(args, new PrintStream(out, true));
+        output = out.toString();
+        return code;
+    }
+
+    private File copy(String resource) throws IOException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(resource);
+        File target = new File(folder.getRoot(), resource);
+        Files.copy(new File(url.getPath()).toPath(), target.toPath());
+        return target;
+    }
+
+    @Test
+    public void convertsOverTcp() throws IOException {
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        String port = Integer.toString(((InetSocketAddress) daemon.getAddress()).getPort());
+        File dbc = copy("canfdtest.dbc");
+
+        assertEquals(output, BatchCommandLine.OK, client("-port", port, "-gzip", dbc.getPath()));
+        assertTrue(output, output.contains("1 of 1 files converted"));
+        assertTrue(new File(folder.getRoot(), "canfdtest.kcd.gz").exists());
+
+        /* Exit codes of the conversion are passed through */
+        assertEquals(output, BatchCommandLine.USAGE, client("-port", port, "-unknown", dbc.getPath()));
+        assertTrue(output, output.startsWith("Unknown option -unknown"));
+        assertTrue(log.toString(), log.toString().contains("Exit code 2"));
+    }
+
+    @Test
+    public void stopsOnRequestAndRemovesSocket() throws Exception {
+        File socket = new File(folder.getRoot(), "daemon.sock");
+        /* Left behind by a daemon that has been killed */
+        assertTrue(socket.createNewFile());
+        start(ConversionDaemon.address(socket.getPath(), 0));
+
+        File dbc = copy("CLI.dbc");
+        assertEquals(output, BatchCommandLine.OK, client("-socket", socket.getPath(), "-compact", dbc.getPath()));
+        assertTrue(new File(folder.getRoot(), "CLI.kcd").exists());
+
+        assertEquals(output, BatchCommandLine.OK, client("-socket", socket.getPath(), ConversionDaemon.SHUTDOWN));
+        serving.join(10000);
+        assertFalse(serving.isAlive());
+        assertFalse(socket.exists());
+
+        assertEquals(output, DaemonClient.DAEMON_UNAVAILABLE, client("-socket", socket.getPath(), dbc.getPath()));
+        assertTrue(output, output.startsWith("No conversion daemon at "));
+    }
+
+    @Test
+    public void finishesAcceptedRequestsBeforeStopping() throws Exception {
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        String port = Integer.toString(((InetSocketAddress) daemon.getAddress()).getPort());
+        File dbc = copy("CLI.dbc");
+        try (SocketChannel c = SocketChannel.open(daemon.getAddress())) {
+            /* Accepted, but the rest of the request is still missing */
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(c));
+            request.writeUTF(ConversionDaemon.PROTOCOL);
+            request.writeUTF(new String(Files.readAllBytes(ConversionDaemon.tokenFile(daemon.getAddress())),
+                    StandardCharsets.US_ASCII));
+            request.flush();
+
+            assertEquals(output, BatchCommandLine.OK, client("-port", port, ConversionDaemon.SHUTDOWN));
+            serving.join(500);
+            assertTrue(serving.isAlive());
+
+            request.writeUTF(folder.getRoot().getPath());
+            request.writeInt(1);
+            request.writeUTF(dbc.getPath());
+            request.flush();
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+            byte type;
+            while ((type = response.readByte()) == ConversionDaemon.OUTPUT) {
+                response.skipBytes(response.readInt());
+            }
+            assertEquals(ConversionDaemon.EXIT, type);
+            assertEquals(BatchCommandLine.OK, response.readInt());
+        }
+        serving.join(10000);
+        assertFalse(serving.isAlive());
+        assertTrue(new File(folder.getRoot(), "CLI.kcd").exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesSocketInUse() throws IOException {
+        SocketAddress address = ConversionDaemon.address(new File(folder.getRoot(), "daemon.sock").getPath(), 0);
+        start(address);
+        new ConversionDaemon(address, new PrintStream(log, true));
+    }
+
+    @Test
+    public void rejectsRequestWithoutToken() throws IOException {
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try (SocketChannel c = SocketChannel.open(daemon.getAddress())) {
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(c));
+            request.writeUTF(ConversionDaemon.PROTOCOL);
+            request.writeUTF("guessed");
+            /* The daemon answers without waiting for the rest of the request */
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+            byte type;
+            while ((type = response.readByte()) == ConversionDaemon.OUTPUT) {
+                response.skipBytes(response.readInt());
+            }
+            assertEquals(ConversionDaemon.EXIT, type);
+            assertEquals(DaemonClient.DAEMON_UNAVAILABLE, response.readInt());
+        }
+        assertTrue(log.toString(), log.toString().contains("Rejected request with invalid token"));
+    }
+
+    @Test
+    public void keepsTokenAndDefaultSocketPrivate() throws IOException {
+        Path directory = ConversionDaemon.privateDirectory();
+        assertEquals(directory, ((UnixDomainSocketAddress) ConversionDaemon.address(null, 0)).getPath().getParent());
+        assertEquals("rwx------", PosixFilePermissions.toString(
+                Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS)));
+
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Path token = ConversionDaemon.tokenFile(daemon.getAddress());
+        assertEquals(directory, token.getParent());
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(token)));
+        daemon.close();
+        assertFalse(Files.exists(token));
+    }
+
+    @Test
+    public void resolvesPathsAgainstWorkingDirectory() throws IOException {
+        copy("CLI.dbc");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(BatchCommandLine.OK, BatchCommandLine.run(new String[] { "CLI.dbc" }, folder.getRoot(),
+                new PrintStream(out, true)));
+        assertTrue(new File(folder.getRoot(), "CLI.kcd").exists());
+    }
+
+    @Test
+    public void rejectsMissingArguments() {
+        assertEquals(BatchCommandLine.USAGE, client("-port", "1234"));
+        assertEquals(BatchCommandLine.USAGE, client("-port", "x", "a.dbc"));
+    }
+}
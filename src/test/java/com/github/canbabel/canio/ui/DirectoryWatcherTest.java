@@ -0,0 +1,156 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.github.canbabel.canio.dbc.BatchConverter;
+
+import static org.junit.Assert.*;
+
+public class DirectoryWatcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private DirectoryWatcher watcher;
+    private Thread watching;
+
+    private void start(long debounce) throws IOException {
+        BatchConverter converter = new BatchConverter();
+        converter.parallelism(1);
+        watcher = new DirectoryWatcher(Arrays.asList(folder.getRoot()), converter, false, debounce,
+                new PrintStream(output, true));
+        watching = new Thread(() -> {
+            try {
+                watcher.watch();
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+            }
+        });
+        watching.start();
+    }
+
+    @After
+    public void stop() throws InterruptedException {
+        if (watcher != null) {
+            watcher.close();
+            watching.join(10000);
+            assertFalse(watching.isAlive());
+        }
+    }
+
+    private File copy(String resource, File target) throws IOException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(resource);
+        target.getParentFile().mkdirs();
+        Files.copy(new File(url.getPath()).toPath(), target.toPath());
+        return target;
+    }
+
+    private int conversions(String name) {
+        Matcher m = Pattern.compile("OK +\\d+ ms  .*" + Pattern.quote(name)).matcher(output.toString());
+        int count = 0;
+        while (m.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    /* Waits until the file has been converted the given number of times */
+    private void awaitConversions(String name, int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 20000;
+        while (conversions(name) < count && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        assertEquals(output.toString(), count, conversions(name));
+    }
+
+    @Test
+    public void convertsOutdatedFilesOnStart() throws Exception {
+        copy("CLI.dbc", new File(folder.getRoot(), "CLI.dbc"));
+        File current = copy("canfdtest.dbc", new File(folder.getRoot(), "sub/canfdtest.dbc"));
+        File kcd = new File(current.getParentFile(), "canfdtest.kcd");
+        assertTrue(kcd.createNewFile());
+        assertTrue(kcd.setLastModified(current.lastModified() + 1000));
+
+        start(50);
+        awaitConversions("CLI.dbc", 1);
+        assertTrue(new File(folder.getRoot(), "CLI.kcd").exists());
+        assertEquals(0, conversions("canfdtest.dbc"));
+        assertEquals(0, kcd.length());
+    }
+
+    @Test
+    public void reconvertsChangedFilesOnceAfterBurst() throws Exception {
+        File dbc = copy("CLI.dbc", new File(folder.getRoot(), "CLI.dbc"));
+        start(300);
+        awaitConversions("CLI.dbc", 1);
+
+        /* A burst of writes as when saving in an editor */
+        for (int i = 0; i < 10; i++) {
+            Files.write(dbc.toPath(), "\n".getBytes(StandardCharsets.ISO_8859_1), StandardOpenOption.APPEND);
+            Thread.sleep(10);
+        }
+        awaitConversions("CLI.dbc", 2);
+        Thread.sleep(600);
+        assertEquals(output.toString(), 2, conversions("CLI.dbc"));
+    }
+
+    @Test
+    public void watchesNewDirectories() throws Exception {
+        start(50);
+        long end = System.currentTimeMillis() + 20000;
+        while (!output.toString().contains("Watching") && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+
+        File sub = new File(folder.getRoot(), "new/deeper");
+        assertTrue(sub.mkdirs());
+        copy("canfdtest.dbc", new File(sub, "canfdtest.dbc"));
+        awaitConversions("canfdtest.dbc", 1);
+        assertTrue(new File(sub, "canfdtest.kcd").exists());
+    }
+
+    @Test
+    public void rejectsInvalidArguments() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(BatchCommandLine.USAGE, DirectoryWatcher.run(new String[0], new PrintStream(out, true)));
+        assertEquals(BatchCommandLine.USAGE, DirectoryWatcher.run(new String[] { "-debounce", "x",
+            folder.getRoot().getPath() }, new PrintStream(out, true)));
+        assertEquals(BatchCommandLine.USAGE, DirectoryWatcher.run(new String[] {
+            new File(folder.getRoot(), "missing").getPath() }, new PrintStream(out, true)));
+        assertTrue(out.toString(), out.toString().contains("No directory "));
+    }
+}
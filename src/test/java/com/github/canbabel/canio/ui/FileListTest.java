@@ -0,0 +1,97 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import static org.junit.Assert.*;
+
+public class FileListTest {
+
+    private final List<String> events = new ArrayList<String>();
+
+    private FileList newList() {
+        FileList list = new FileList();
+        list.addListDataListener(new ListDataListener() {
+
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                events.add("added " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                events.add("changed");
+            }
+        });
+        return list;
+    }
+
+    @Test
+    public void addFileNotifiesAddedIndex() {
+        FileList list = newList();
+        list.addFile(new File("a.dbc"));
+        list.addFile(new File("b.dbc"));
+
+        assertEquals(Arrays.asList("added 0-0", "added 1-1"), events);
+        assertEquals(new File("b.dbc"), list.getElementAt(1));
+    }
+
+    @Test
+    public void addFilesNotifiesOnceAndSkipsDuplicates() {
+        FileList list = newList();
+        list.addFile(new File("a.dbc"));
+        int added = list.addFiles(Arrays.asList(new File("b.dbc"), new File("./a.dbc"),
+                new File("c.dbc"), new File("b.dbc").getAbsoluteFile()));
+
+        assertEquals(2, added);
+        assertEquals(3, list.getSize());
+        assertEquals(Arrays.asList("added 0-0", "added 1-2"), events);
+
+        assertEquals(0, list.addFiles(Arrays.asList(new File("c.dbc"))));
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    public void removedFilesCanBeAddedAgain() {
+        FileList list = newList();
+        list.addFiles(Arrays.asList(new File("a.dbc"), new File("b.dbc")));
+        list.remove(0);
+        list.addFile(new File("a.dbc"));
+        assertEquals(Arrays.asList(new File("b.dbc"), new File("a.dbc")), list.getFiles());
+
+        list.clear();
+        list.clear();
+        list.addFile(new File("b.dbc"));
+        assertEquals(Arrays.asList("added 0-1", "removed 0-0", "added 1-1", "removed 0-1", "added 0-0"),
+                events);
+    }
+}
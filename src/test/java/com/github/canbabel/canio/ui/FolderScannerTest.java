@@ -0,0 +1,138 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import static org.junit.Assert.*;
+
+public class FolderScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Collects the results of a scan */
+    private static class Collector implements FolderScanner.Listener {
+        final List<List<File>> chunks = new ArrayList<List<File>>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile boolean cancelled;
+        volatile boolean onEdt = true;
+
+        @Override
+        public void found(List<File> files) {
+            onEdt &= SwingUtilities.isEventDispatchThread();
+            chunks.add(files);
+        }
+
+        @Override
+        public void finished(boolean cancelled) {
+            onEdt &= SwingUtilities.isEventDispatchThread();
+            this.cancelled = cancelled;
+            finished.countDown();
+        }
+
+        Set<File> files() {
+            Set<File> files = new HashSet<File>();
+            for (List<File> chunk : chunks) {
+                files.addAll(chunk);
+            }
+            return files;
+        }
+    }
+
+    private Set<File> createTree(File root, int count) throws Exception {
+        Set<File> dbcFiles = new HashSet<File>();
+        for (int i = 0; i < count; i++) {
+            File dir = new File(root, "bus" + (i % 7) + File.separator + "sub" + (i % 3));
+            dir.mkdirs();
+            File dbc = new File(dir, "file" + i + (i % 2 == 0 ? ".dbc" : ".DBC"));
+            assertTrue(dbc.createNewFile());
+            dbcFiles.add(dbc);
+            assertTrue(new File(dir, "file" + i + ".kcd").createNewFile());
+        }
+        new File(root, "folder.dbc").mkdir();
+        return dbcFiles;
+    }
+
+    @Test
+    public void findsDbcFilesInAllFolders() throws Exception {
+        File a = folder.newFolder("a");
+        File b = folder.newFolder("b");
+        Set<File> expected = createTree(a, 2500);
+        expected.addAll(createTree(b, 10));
+
+        Collector collector = new Collector();
+        new FolderScanner(Arrays.asList(a, b), collector).start();
+
+        assertTrue(collector.finished.await(30, TimeUnit.SECONDS));
+        assertFalse(collector.cancelled);
+        assertTrue(collector.onEdt);
+        assertEquals(expected, collector.files());
+        for (List<File> chunk : collector.chunks) {
+            assertFalse(chunk.isEmpty());
+        }
+    }
+
+    @Test
+    public void cancelledScanDropsFiles() throws Exception {
+        createTree(folder.getRoot(), 100);
+
+        final Collector collector = new Collector();
+        final FolderScanner scanner = new FolderScanner(Arrays.asList(folder.getRoot()), collector);
+        /* Cancel before the scan delivers anything to the blocked EDT */
+        SwingUtilities.invokeAndWait(() -> {
+            scanner.start();
+            scanner.cancel();
+        });
+
+        assertTrue(collector.finished.await(30, TimeUnit.SECONDS));
+        assertTrue(collector.cancelled);
+        assertTrue(scanner.isCancelled());
+        assertTrue(collector.chunks.isEmpty());
+    }
+
+    @Test
+    public void skipsMissingFolders() throws Exception {
+        Collector collector = new Collector();
+        new FolderScanner(Arrays.asList(new File(folder.getRoot(), "missing")), collector).start();
+
+        assertTrue(collector.finished.await(30, TimeUnit.SECONDS));
+        assertFalse(collector.cancelled);
+        assertTrue(collector.chunks.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void startsOnlyOnce() {
+        FolderScanner scanner = new FolderScanner(Arrays.asList(folder.getRoot()), new Collector());
+        scanner.start();
+        scanner.start();
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ *  CANBabel - Translator for Controller Area Network description formats
+ *  Copyright (C) 2011-2025 julietkilo and Jan-Niklas Meier
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ **/
+package com.github.canbabel.canio.ui;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the log console appends in batches and keeps a bounded number
+ * of lines.
+ */
+public class LogConsoleTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String text(final JTextArea area) throws Exception {
+        final String[] text = new String[1];
+        SwingUtilities.invokeAndWait(() -> text[0] = area.getText());
+        return text[0];
+    }
+
+    /* Keeps the EDT busy until the latch is released */
+    private static CountDownLatch blockEdt() {
+        final CountDownLatch release = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return release;
+    }
+
+    @Test
+    public void appendsFlushedTextInBatches() throws Exception {
+        LogConsole console = new LogConsole();
+        JTextArea area = new JTextArea();
+        console.setTextArea(area);
+        final AtomicInteger inserts = new AtomicInteger();
+        area.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                inserts.incrementAndGet();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        CountDownLatch release = blockEdt();
+        PrintWriter writer = new PrintWriter(console);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            writer.println("Line does not match " + i);
+            writer.flush();
+            expected.append("Line does not match ").append(i).append(System.lineSeparator());
+        }
+        release.countDown();
+
+        assertEquals(expected.toString(), text(area));
+        assertEquals(1, inserts.get());
+    }
+
+    @Test
+    public void keepsLatestLines() throws Exception {
+        LogConsole console = new LogConsole(100);
+        JTextArea area = new JTextArea();
+        console.setTextArea(area);
+        PrintWriter writer = new PrintWriter(console);
+        for (int i = 0; i < 1000; i++) {
+            writer.print("line " + i + "\n");
+            writer.flush();
+        }
+
+        String text = text(area);
+        assertTrue(text.startsWith("line 901\n"));
+        assertTrue(text.endsWith("line 999\n"));
+        assertEquals(100, area.getLineCount());
+    }
+
+    @Test
+    public void boundsTextWaitingForEdt() throws Exception {
+        LogConsole console = new LogConsole(10);
+        JTextArea area = new JTextArea();
+        console.setTextArea(area);
+
+        CountDownLatch release = blockEdt();
+        PrintWriter writer = new PrintWriter(console);
+        for (int i = 0; i < 100000; i++) {
+            writer.print("line " + i + "\n");
+        }
+        writer.flush();
+        release.countDown();
+
+        String text = text(area);
+        assertTrue(text.length() < 10 * 256);
+        assertTrue(text.endsWith("line 99999\n"));
+        assertEquals(10, area.getLineCount());
+    }
+
+    @Test
+    public void showsTextWrittenBeforeArea() throws Exception {
+        LogConsole console = new LogConsole();
+        PrintWriter writer = new PrintWriter(console);
+        writer.print("early\n");
+        writer.flush();
+
+        JTextArea area = new JTextArea();
+        console.setTextArea(area);
+        writer.print("late\n");
+        writer.flush();
+        assertEquals("early\nlate\n", text(area));
+    }
+
+    @Test
+    public void spillsCompleteLogToFile() throws Exception {
+        LogConsole console = new LogConsole(10);
+        JTextArea area = new JTextArea();
+        console.setTextArea(area);
+        File file = folder.newFile("log.txt");
+        console.spillTo(file);
+        assertEquals(file, console.getSpillFile());
+
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(console, StandardCharsets.ISO_8859_1));
+        for (int i = 0; i < 1000; i++) {
+            writer.print("line " + i + " \u00e4\n");
+        }
+        writer.flush();
+        console.stopSpilling();
+        assertNull(console.getSpillFile());
+        writer.print("not spilled\n");
+        writer.flush();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1);
+        assertEquals(1000, lines.size());
+        assertEquals("line 0 \u00e4", lines.get(0));
+        assertTrue(text(area).endsWith("line 999 \u00e4\nnot spilled\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyLog() {
+        new LogConsole(0);
+    }
+}